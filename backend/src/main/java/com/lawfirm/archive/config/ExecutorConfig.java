@@ -0,0 +1,70 @@
+package com.lawfirm.archive.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台线程池配置
+ */
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * 批量下载时预取MinIO对象的线程池，所有批量下载请求共享
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService downloadPrefetchExecutor(
+            @Value("${app.download.prefetch-threads:8}") int threads) {
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("download-prefetch-"));
+    }
+
+    /**
+     * 分片上传合并/入库线程池，队列有界，满时拒绝新的合并请求
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService uploadFinalizeExecutor(
+            @Value("${app.upload.finalize-threads:2}") int threads,
+            @Value("${app.upload.finalize-queue-capacity:100}") int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("upload-finalize-"));
+    }
+
+    /**
+     * 范围读取未命中后在后台将文档读入磁盘缓存的线程池，队列有界，满时跳过本次填充
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService documentCacheFillExecutor(
+            @Value("${app.storage.cache.fill-threads:2}") int threads,
+            @Value("${app.storage.cache.fill-queue-capacity:100}") int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("document-cache-fill-"));
+    }
+
+    /**
+     * 过期上传清理时并行删除暂存数据的线程池
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService uploadCleanupExecutor(
+            @Value("${app.upload.cleanup-threads:4}") int threads) {
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("upload-cleanup-"));
+    }
+
+    /**
+     * 文档全文索引的文本提取线程池，队列有界，领取待索引文档的数量不超过队列剩余容量
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor documentIndexExecutor(
+            @Value("${app.search.index.threads:2}") int threads,
+            @Value("${app.search.index.queue-capacity:50}") int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("document-index-"));
+    }
+}
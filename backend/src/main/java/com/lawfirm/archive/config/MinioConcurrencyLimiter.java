@@ -0,0 +1,139 @@
+package com.lawfirm.archive.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 限制对同一MinIO主机同时进行的请求数，包括读取响应正文的时间
+ * 调度器的 maxRequestsPerHost 在收到响应头后即释放名额，下载正文不受其限制；这里的许可在正文关闭或读完时才归还
+ * 许可在等待时间内取不到时请求失败，避免持有许可的线程再次请求时互相等待
+ */
+public class MinioConcurrencyLimiter implements Interceptor {
+    private final int maxPerHost;
+
+    private final long timeoutNanos;
+
+    private final Map<String, Semaphore> hosts = new ConcurrentHashMap<>();
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final Timer permitWait;
+
+    public MinioConcurrencyLimiter(int maxPerHost, Duration timeout, MeterRegistry meterRegistry) {
+        this.maxPerHost = maxPerHost;
+        this.timeoutNanos = timeout.toNanos();
+        this.permitWait = Timer.builder("minio.http.permit.wait")
+                .description("等待MinIO主机并发许可的时间，达到每主机并发上限时升高")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("minio.http.permits.active", active, AtomicInteger::get)
+                .description("持有并发许可的MinIO请求数（含正在读取正文的请求）").register(meterRegistry);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String host = request.url().host() + ":" + request.url().port();
+        Semaphore semaphore = hosts.computeIfAbsent(host, key -> new Semaphore(maxPerHost));
+
+        long started = System.nanoTime();
+        try {
+            if (!semaphore.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                permitWait.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                throw new IOException("MinIO并发请求已达上限: " + host);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待MinIO并发许可时被中断");
+        }
+        permitWait.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        active.incrementAndGet();
+
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                active.decrementAndGet();
+                semaphore.release();
+            }
+        };
+        try {
+            Response response = chain.proceed(request);
+            ResponseBody body = response.body();
+            if (body == null || body.contentLength() == 0) {
+                release.run();
+                return response;
+            }
+            return response.newBuilder().body(new PermitReleasingBody(body, release)).build();
+        } catch (IOException | RuntimeException e) {
+            release.run();
+            throw e;
+        }
+    }
+
+    /**
+     * 正文关闭或读完时归还许可
+     */
+    private static final class PermitReleasingBody extends ResponseBody {
+        private final ResponseBody body;
+
+        private final BufferedSource source;
+
+        PermitReleasingBody(ResponseBody body, Runnable release) {
+            this.body = body;
+            this.source = Okio.buffer(new ForwardingSource(body.source()) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long read = super.read(sink, byteCount);
+                    if (read == -1) {
+                        release.run();
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        release.run();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return body.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
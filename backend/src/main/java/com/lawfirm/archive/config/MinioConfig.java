@@ -1,11 +1,20 @@
 package com.lawfirm.archive.config;
 
+import com.lawfirm.archive.service.MinioMultipartClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import lombok.Data;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 @Data
 @Configuration
 @ConfigurationProperties(prefix = "minio")
@@ -14,12 +23,91 @@ public class MinioConfig {
     private String accessKey;
     private String secretKey;
     private String bucketName;
+    private Http http = new Http();
 
+    /**
+     * 同步与异步客户端共用的HTTP连接
+     */
     @Bean
-    public MinioClient minioClient() {
+    public OkHttpClient minioHttpClient(MeterRegistry meterRegistry) {
+        ConnectionPool connectionPool = new ConnectionPool(
+                http.getMaxIdleConnections(), http.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS);
+        // MinIO客户端的请求都经调度器执行，调度器的名额在收到响应头后释放；下载正文由并发许可限制
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(http.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(http.getMaxRequestsPerHost());
+
+        return new OkHttpClient.Builder()
+                .connectionPool(connectionPool)
+                .dispatcher(dispatcher)
+                .connectTimeout(http.getConnectTimeout())
+                .readTimeout(http.getReadTimeout())
+                .writeTimeout(http.getWriteTimeout())
+                .retryOnConnectionFailure(true)
+                .addInterceptor(new MinioRetryInterceptor(http.getMaxRetries(), http.getRetryBackoff()))
+                .addInterceptor(new MinioConcurrencyLimiter(http.getMaxActiveRequestsPerHost(),
+                        http.getPermitTimeout(), meterRegistry))
+                .eventListenerFactory(new MinioHttpMetrics(connectionPool, dispatcher, meterRegistry))
+                .build();
+    }
+
+    @Bean
+    public MinioClient minioClient(OkHttpClient minioHttpClient) {
         return MinioClient.builder()
                 .endpoint(endpoint)
                 .credentials(accessKey, secretKey)
+                .httpClient(minioHttpClient)
                 .build();
     }
-} 
\ No newline at end of file
+
+    @Bean
+    public MinioMultipartClient minioMultipartClient(OkHttpClient minioHttpClient) {
+        return new MinioMultipartClient(MinioAsyncClient.builder()
+                .endpoint(endpoint)
+                .credentials(accessKey, secretKey)
+                .httpClient(minioHttpClient)
+                .build());
+    }
+
+    /**
+     * MinIO客户端的HTTP连接配置
+     */
+    @Data
+    public static class Http {
+        /**
+         * 连接池保留的最大空闲连接数，不限制连接总数
+         */
+        private int maxIdleConnections = 64;
+        private Duration keepAlive = Duration.ofMinutes(5);
+        /**
+         * 调度器同时执行的最大请求数（至收到响应头）
+         */
+        private int maxRequests = 256;
+        /**
+         * 调度器对同一主机同时执行的最大请求数（至收到响应头），超出的请求排队等待
+         */
+        private int maxRequestsPerHost = 64;
+        /**
+         * 对同一主机同时进行的最大请求数，包括读取响应正文的时间
+         */
+        private int maxActiveRequestsPerHost = 256;
+        /**
+         * 等待并发许可的最长时间，超时的请求失败
+         */
+        private Duration permitTimeout = Duration.ofSeconds(30);
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        /**
+         * 两次读取之间的最长间隔，不限制整个下载的时间
+         */
+        private Duration readTimeout = Duration.ofSeconds(60);
+        private Duration writeTimeout = Duration.ofSeconds(60);
+        /**
+         * 读取请求遇到连接错误或服务端繁忙时的最大重试次数
+         */
+        private int maxRetries = 2;
+        /**
+         * 首次重试的等待时间，之后每次加倍
+         */
+        private Duration retryBackoff = Duration.ofMillis(200);
+    }
+}
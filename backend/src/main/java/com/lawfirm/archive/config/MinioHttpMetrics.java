@@ -0,0 +1,233 @@
+package com.lawfirm.archive.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MinIO客户端的HTTP指标
+ * minio.http.requests：按S3操作与状态码统计到收到响应头的耗时（含排队与建立连接），下载正文的时间不计入
+ * minio.http.connect：建立新连接（TCP与TLS握手）的耗时，按成功与失败区分；复用连接池中的连接时不计入
+ * minio.http.dispatcher.queue：异步请求在调度器中排队的时间，达到 maxRequests/maxRequestsPerHost 时升高
+ * minio.http.in.flight、minio.http.pool.connections、minio.http.dispatcher.queued：当前并发请求、连接数与排队的异步请求
+ * MinIO客户端（含同步的 MinioClient）的请求都经调度器异步执行
+ */
+public class MinioHttpMetrics implements EventListener.Factory {
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Timer dispatcherQueue;
+
+    private final Timer connectSucceeded;
+
+    private final Timer connectFailed;
+
+    public MinioHttpMetrics(ConnectionPool connectionPool, Dispatcher dispatcher, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.dispatcherQueue = Timer.builder("minio.http.dispatcher.queue")
+                .description("异步MinIO请求在调度器中排队的时间")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.connectSucceeded = connectTimer(meterRegistry, "success");
+        this.connectFailed = connectTimer(meterRegistry, "failure");
+
+        Gauge.builder("minio.http.in.flight", inFlight, AtomicInteger::get)
+                .description("进行中的MinIO请求数").register(meterRegistry);
+        Gauge.builder("minio.http.pool.connections", connectionPool,
+                        pool -> pool.connectionCount() - pool.idleConnectionCount())
+                .tag("state", "active").description("MinIO连接数").register(meterRegistry);
+        Gauge.builder("minio.http.pool.connections", connectionPool, ConnectionPool::idleConnectionCount)
+                .tag("state", "idle").description("MinIO连接数").register(meterRegistry);
+        Gauge.builder("minio.http.dispatcher.queued", dispatcher, Dispatcher::queuedCallsCount)
+                .description("等待执行的异步MinIO请求数").register(meterRegistry);
+    }
+
+    private static Timer connectTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("minio.http.connect")
+                .description("建立MinIO连接的耗时")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public EventListener create(Call call) {
+        return new Listener();
+    }
+
+    /**
+     * 由请求的方法与参数推断S3操作名，只用于指标标签
+     */
+    static String operation(Request request) {
+        HttpUrl url = request.url();
+        String method = request.method();
+        Set<String> params = url.queryParameterNames();
+        if (params.contains("uploadId")) {
+            return switch (method) {
+                case "PUT" -> request.header("x-amz-copy-source") != null ? "UploadPartCopy" : "UploadPart";
+                case "POST" -> "CompleteMultipartUpload";
+                case "DELETE" -> "AbortMultipartUpload";
+                default -> "ListParts";
+            };
+        }
+        if (params.contains("uploads")) {
+            return "POST".equals(method) ? "CreateMultipartUpload" : "ListMultipartUploads";
+        }
+        if (params.contains("delete")) {
+            return "DeleteObjects";
+        }
+
+        List<String> segments = url.pathSegments();
+        boolean object = segments.size() > 1 && !segments.get(1).isEmpty();
+        if (!object) {
+            if (params.contains("location")) {
+                return "GetBucketLocation";
+            }
+            return switch (method) {
+                case "GET" -> "ListObjects";
+                case "HEAD" -> "HeadBucket";
+                case "PUT" -> "CreateBucket";
+                default -> method + "Bucket";
+            };
+        }
+        return switch (method) {
+            case "GET" -> "GetObject";
+            case "HEAD" -> "HeadObject";
+            case "PUT" -> request.header("x-amz-copy-source") != null ? "CopyObject" : "PutObject";
+            case "DELETE" -> "DeleteObject";
+            default -> method + "Object";
+        };
+    }
+
+    /**
+     * 单个请求的事件，重试时每次尝试分别计时
+     */
+    private final class Listener extends EventListener {
+        private long callStart;
+        private long attemptStart;
+        private long connectStart;
+        private boolean started;
+        /**
+         * 发起请求的线程，异步请求在调度器的线程中执行
+         */
+        private Thread caller;
+        /**
+         * 请求已开始执行（选择路由或取得连接）
+         */
+        private boolean executing;
+        /**
+         * 本次尝试已收到响应头
+         */
+        private boolean responded;
+
+        @Override
+        public void callStart(Call call) {
+            inFlight.incrementAndGet();
+            started = true;
+            caller = Thread.currentThread();
+            callStart = System.nanoTime();
+            attemptStart = callStart;
+        }
+
+        @Override
+        public void proxySelectStart(Call call, HttpUrl url) {
+            executionStarted();
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            connectSucceeded.record(System.nanoTime() - connectStart, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol,
+                                  IOException ioe) {
+            connectFailed.record(System.nanoTime() - connectStart, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            executionStarted();
+            responded = false;
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            responded = true;
+            record(call.request(), String.valueOf(response.code()));
+        }
+
+        @Override
+        public void connectionReleased(Call call, Connection connection) {
+            // 重试时从释放连接开始计算下一次尝试
+            attemptStart = System.nanoTime();
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            finish();
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            // 下载正文时的失败已按响应状态计入
+            if (!responded) {
+                record(call.request(), "IO_ERROR");
+            }
+            finish();
+        }
+
+        /**
+         * 请求第一次开始执行时，异步请求记录在调度器中的排队时间；同步请求在调用线程中直接执行，不计入
+         */
+        private void executionStarted() {
+            if (executing) {
+                return;
+            }
+            executing = true;
+            if (Thread.currentThread() != caller) {
+                dispatcherQueue.record(System.nanoTime() - callStart, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void record(Request request, String status) {
+            Timer.builder("minio.http.requests")
+                    .description("MinIO请求到收到响应头的耗时")
+                    .tag("operation", operation(request))
+                    .tag("status", status)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - attemptStart, TimeUnit.NANOSECONDS);
+        }
+
+        private void finish() {
+            if (started) {
+                started = false;
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.lawfirm.archive.config;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 重试MinIO读取请求
+ * 只重试没有请求体的GET、HEAD请求：上传的请求体可能是只能读取一次的流，由调用方决定是否重试
+ * 连接错误与服务端繁忙（5xx）时按指数退避加随机抖动等待后重试，响应头已返回后的读取错误不重试
+ */
+@Slf4j
+public class MinioRetryInterceptor implements Interceptor {
+    private static final Set<String> RETRYABLE_METHODS = Set.of("GET", "HEAD");
+
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(500, 502, 503, 504);
+
+    private final int maxRetries;
+
+    private final long backoffMillis;
+
+    public MinioRetryInterceptor(int maxRetries, Duration backoff) {
+        this.maxRetries = maxRetries;
+        this.backoffMillis = backoff.toMillis();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (maxRetries <= 0 || !RETRYABLE_METHODS.contains(request.method())) {
+            return chain.proceed(request);
+        }
+
+        for (int attempt = 0; ; attempt++) {
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                // 请求已取消或线程被中断时不再重试
+                if (attempt >= maxRetries || chain.call().isCanceled() || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                log.warn("MinIO请求失败，第{}次重试: {} {}, {}", attempt + 1, request.method(),
+                        request.url().encodedPath(), e.getMessage());
+                sleep(attempt);
+                continue;
+            }
+            if (attempt >= maxRetries || !RETRYABLE_STATUSES.contains(response.code())) {
+                return response;
+            }
+            log.warn("MinIO服务端繁忙({})，第{}次重试: {} {}", response.code(), attempt + 1, request.method(),
+                    request.url().encodedPath());
+            response.close();
+            sleep(attempt);
+        }
+    }
+
+    private void sleep(int attempt) throws IOException {
+        long delay = backoffMillis << Math.min(attempt, 10);
+        try {
+            Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("重试等待被中断");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.lawfirm.archive.config;
+
+import com.lawfirm.archive.service.UploadAdmissionService;
+import com.lawfirm.archive.service.UploadAdmissionService.Permit;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * 上传请求的准入控制
+ * 在读取请求体之前获取写入许可（multipart 延迟解析），被拒绝的请求不会占用临时文件空间
+ */
+@RequiredArgsConstructor
+public class UploadAdmissionInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = UploadAdmissionInterceptor.class.getName() + ".permit";
+
+    private final UploadAdmissionService uploadAdmissionService;
+
+    /**
+     * 请求体大小是否计入暂存总量；分片在初始化任务时已按文件大小计入
+     */
+    private final boolean reserveStaging;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 跨域预检等请求不经过控制器
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        Permit permit = reserveStaging
+                ? uploadAdmissionService.acquireWrite(Math.max(request.getContentLengthLong(), 0))
+                : uploadAdmissionService.acquireWrite();
+        request.setAttribute(PERMIT_ATTRIBUTE, permit);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Permit permit) {
+            permit.close();
+        }
+    }
+}
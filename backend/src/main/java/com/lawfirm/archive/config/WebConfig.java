@@ -1,12 +1,18 @@
 package com.lawfirm.archive.config;
 
+import com.lawfirm.archive.service.UploadAdmissionService;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
+@RequiredArgsConstructor
 public class WebConfig implements WebMvcConfigurer {
+
+    private final UploadAdmissionService uploadAdmissionService;
     
     @Value("${app.cors.allowed-origins:http://localhost:5173,http://localhost:3000}")
     private String[] allowedOrigins;
@@ -17,8 +23,17 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOrigins(allowedOrigins)
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH", "HEAD")
                 .allowedHeaders("*")
-                .exposedHeaders("Content-Disposition", "Authorization")
+                .exposedHeaders("Content-Disposition", "Authorization", "Content-Range", "Accept-Ranges", "ETag", "Retry-After")
                 .allowCredentials(true)
                 .maxAge(3600);
     }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 分片写入与直接上传需要获取写入许可
+        registry.addInterceptor(new UploadAdmissionInterceptor(uploadAdmissionService, false))
+                .addPathPatterns("/api/chunked-upload/chunk", "/api/chunked-upload/*/chunks/*");
+        registry.addInterceptor(new UploadAdmissionInterceptor(uploadAdmissionService, true))
+                .addPathPatterns("/api/documents/upload");
+    }
 } 
\ No newline at end of file
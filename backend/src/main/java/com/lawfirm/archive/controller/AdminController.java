@@ -40,6 +40,29 @@ public class AdminController {
         }
     }
     
+    /**
+     * 清理旧版本分片上传遗留的分片对象，升级后执行一次
+     */
+    @PostMapping("/cleanup-legacy-chunks")
+    public ResponseEntity<Map<String, Object>> cleanupLegacyChunkObjects() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            log.info("开始清理旧版分片对象");
+            int deleted = dataMigrationService.cleanupLegacyChunkObjects();
+
+            response.put("success", true);
+            response.put("message", "旧版分片对象清理完成");
+            response.put("deleted", deleted);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("旧版分片对象清理失败", e);
+
+            response.put("success", false);
+            response.put("message", "旧版分片对象清理失败: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
     /**
      * 检查MinIO连接状态
      */
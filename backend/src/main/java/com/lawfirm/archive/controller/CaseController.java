@@ -1,11 +1,17 @@
 package com.lawfirm.archive.controller;
 
+import com.lawfirm.archive.dto.CaseSearchCriteria;
+import com.lawfirm.archive.dto.CaseSummaryDto;
 import com.lawfirm.archive.model.Case;
 import com.lawfirm.archive.repository.CaseRepository;
+import com.lawfirm.archive.service.CategoryService;
+import com.lawfirm.archive.service.DocumentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -14,16 +20,25 @@ public class CaseController {
     @Autowired
     private CaseRepository caseRepository;
 
-    // 获取所有案件
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    // 分页检索案件，返回列表字段与文档数
     @GetMapping
-    public List<Case> getAllCases() {
-        return caseRepository.findAll();
+    public Page<CaseSummaryDto> searchCases(CaseSearchCriteria criteria,
+                                            @PageableDefault(size = 20) Pageable pageable) {
+        return caseRepository.search(criteria, pageable);
     }
 
     // 新增案件
     @PostMapping
     public Case createCase(@RequestBody Case newCase) {
-        return caseRepository.save(newCase);
+        Case saved = caseRepository.save(newCase);
+        categoryService.invalidateTree();
+        return saved;
     }
 
     // 获取单个案件
@@ -36,12 +51,15 @@ public class CaseController {
     @PutMapping("/{id}")
     public Case updateCase(@PathVariable Long id, @RequestBody Case updatedCase) {
         updatedCase.setId(id);
-        return caseRepository.save(updatedCase);
+        Case saved = caseRepository.save(updatedCase);
+        categoryService.invalidateTree();
+        return saved;
     }
 
-    // 删除案件
+    // 删除案件（连同案件下的文档）
     @DeleteMapping("/{id}")
     public void deleteCase(@PathVariable Long id) {
-        caseRepository.deleteById(id);
+        documentService.deleteCase(id);
+        categoryService.invalidateTree();
     }
 } 
\ No newline at end of file
@@ -1,42 +1,48 @@
 package com.lawfirm.archive.controller;
 
+import com.lawfirm.archive.dto.CategoryTreeNodeDto;
 import com.lawfirm.archive.model.Category;
-import com.lawfirm.archive.repository.CategoryRepository;
+import com.lawfirm.archive.service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/categories")
 public class CategoryController {
     @Autowired
-    private CategoryRepository categoryRepository;
+    private CategoryService categoryService;
 
+    // 全部分类的平铺列表，不含上下级与案件集合
     @GetMapping
     public List<Category> getAll() {
-        return categoryRepository.findAll();
+        return categoryService.findAll();
+    }
+
+    // 完整分类树，附带各分类的案件数
+    @GetMapping("/tree")
+    public List<CategoryTreeNodeDto> getTree() {
+        return categoryService.getTree();
     }
 
     @GetMapping("/{id}")
-    public Optional<Category> getById(@PathVariable Long id) {
-        return categoryRepository.findById(id);
+    public Category getById(@PathVariable Long id) {
+        return categoryService.findById(id);
     }
 
     @PostMapping
     public Category create(@RequestBody Category category) {
-        return categoryRepository.save(category);
+        return categoryService.create(category);
     }
 
     @PutMapping("/{id}")
     public Category update(@PathVariable Long id, @RequestBody Category category) {
-        category.setId(id);
-        return categoryRepository.save(category);
+        return categoryService.update(id, category);
     }
 
     @DeleteMapping("/{id}")
     public void delete(@PathVariable Long id) {
-        categoryRepository.deleteById(id);
+        categoryService.delete(id);
     }
-} 
\ No newline at end of file
+}
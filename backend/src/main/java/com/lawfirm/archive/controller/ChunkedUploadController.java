@@ -4,15 +4,18 @@ import com.lawfirm.archive.dto.ChunkDTO;
 import com.lawfirm.archive.dto.ChunkResponse;
 import com.lawfirm.archive.dto.MergeChunksDTO;
 import com.lawfirm.archive.exception.StorageException;
-import com.lawfirm.archive.model.Document;
 import com.lawfirm.archive.model.UploadTask;
 import com.lawfirm.archive.service.ChunkedUploadService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+
 @RestController
 @RequestMapping("/api/chunked-upload")
 @RequiredArgsConstructor
@@ -31,13 +34,14 @@ public class ChunkedUploadController {
             @RequestParam String fileType,
             @RequestParam Long caseId,
             @RequestParam(required = false) String category,
-            @RequestParam(required = false) String remarks) {
+            @RequestParam(required = false) String remarks,
+            @RequestParam(required = false) String contentHash) {
         
         log.info("初始化分片上传: fileName={}, fileSize={}, fileType={}, caseId={}", 
                 fileName, fileSize, fileType, caseId);
         
         UploadTask task = chunkedUploadService.initUpload(
-                fileName, fileSize, fileType, caseId, category, remarks);
+                fileName, fileSize, fileType, caseId, category, remarks, contentHash);
         
         return ResponseEntity.ok(task);
     }
@@ -50,7 +54,9 @@ public class ChunkedUploadController {
             @RequestParam("file") MultipartFile file,
             @RequestParam("taskId") String taskId,
             @RequestParam("chunkNumber") int chunkNumber,
-            @RequestParam("totalChunks") int totalChunks) {
+            @RequestParam("totalChunks") int totalChunks,
+            @RequestParam(value = "checksum", required = false) String checksum,
+            @RequestParam(value = "checksumAlgorithm", required = false) String checksumAlgorithm) {
         
         log.info("上传分片: taskId={}, chunkNumber={}/{}", taskId, chunkNumber, totalChunks);
         
@@ -60,6 +66,8 @@ public class ChunkedUploadController {
             chunkDTO.setChunkNumber(chunkNumber);
             chunkDTO.setTotalChunks(totalChunks);
             chunkDTO.setFile(file);
+            chunkDTO.setChecksum(checksum);
+            chunkDTO.setChecksumAlgorithm(checksumAlgorithm);
             
             ChunkResponse response = chunkedUploadService.processChunk(chunkDTO);
             return ResponseEntity.ok(response);
@@ -69,15 +77,46 @@ public class ChunkedUploadController {
         }
     }
 
+    /**
+     * 上传分片（请求体即分片数据）
+     * 请求体直接写入最终位置，不经过multipart解析与临时文件，也不受multipart大小限制
+     */
+    @PutMapping(value = "/{taskId}/chunks/{chunkNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<ChunkResponse> uploadChunkBody(
+            @PathVariable String taskId,
+            @PathVariable int chunkNumber,
+            @RequestHeader(HttpHeaders.CONTENT_LENGTH) long contentLength,
+            @RequestParam(value = "checksum", required = false) String checksum,
+            @RequestParam(value = "checksumAlgorithm", required = false) String checksumAlgorithm,
+            InputStream body) {
+        
+        log.info("上传分片: taskId={}, chunkNumber={}, size={}", taskId, chunkNumber, contentLength);
+        
+        try {
+            ChunkDTO chunkDTO = new ChunkDTO();
+            chunkDTO.setTaskId(taskId);
+            chunkDTO.setChunkNumber(chunkNumber);
+            chunkDTO.setChecksum(checksum);
+            chunkDTO.setChecksumAlgorithm(checksumAlgorithm);
+            
+            ChunkResponse response = chunkedUploadService.processChunk(chunkDTO, body, contentLength);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("上传分片失败", e);
+            throw new StorageException("上传分片失败: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * 合并分片
      */
     @PostMapping("/merge")
-    public ResponseEntity<Document> mergeChunks(@RequestBody MergeChunksDTO mergeRequest) {
+    public ResponseEntity<UploadTask> mergeChunks(@RequestBody MergeChunksDTO mergeRequest) {
         log.info("合并分片: taskId={}", mergeRequest.getTaskId());
         
-        Document document = chunkedUploadService.mergeChunks(mergeRequest.getTaskId());
-        return ResponseEntity.ok(document);
+        // 合并在后台执行，通过 /status/{taskId} 查询进度
+        UploadTask task = chunkedUploadService.mergeChunks(mergeRequest.getTaskId());
+        return ResponseEntity.accepted().body(task);
     }
 
     /**
@@ -1,18 +1,34 @@
 package com.lawfirm.archive.controller;
 
-import com.lawfirm.archive.exception.ResourceNotFoundException;
+import com.lawfirm.archive.dto.BatchResultDto;
+import com.lawfirm.archive.dto.BatchSortRequest;
+import com.lawfirm.archive.dto.DocumentPageDto;
+import com.lawfirm.archive.dto.DocumentSearchHitDto;
 import com.lawfirm.archive.model.Document;
-import com.lawfirm.archive.repository.DocumentRepository;
+import com.lawfirm.archive.service.DocumentOrderService;
+import com.lawfirm.archive.service.DocumentSearchService;
 import com.lawfirm.archive.service.DocumentService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -22,13 +38,43 @@ import java.util.Map;
 @Slf4j
 public class DocumentController {
     private final DocumentService documentService;
-    private final DocumentRepository documentRepository;
+    private final DocumentSearchService documentSearchService;
+    private final DocumentOrderService documentOrderService;
 
     @GetMapping
     public List<Document> getDocuments(@RequestParam Long caseId) {
         return documentService.getDocumentsByCase(caseId);
     }
 
+    /**
+     * 分页查询案件文档，下一页传入上一页返回的 nextSortOrder、nextId
+     */
+    @GetMapping("/page")
+    public DocumentPageDto getDocumentPage(
+            @RequestParam Long caseId,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String fileType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate uploadedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate uploadedTo,
+            @RequestParam(required = false) Integer afterSortOrder,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "100") int limit) {
+        return documentService.getDocumentPage(caseId, category, fileType, uploadedFrom, uploadedTo,
+                afterSortOrder, afterId, limit);
+    }
+
+    /**
+     * 全文检索文档内容与文件名，摘要包含文档正文，访客不可使用
+     */
+    @GetMapping("/search")
+    @PreAuthorize("hasAnyRole('ADMIN', 'CASE_MANAGER', 'LAWYER', 'ARCHIVIST')")
+    public Page<DocumentSearchHitDto> searchDocuments(
+            @RequestParam String q,
+            @RequestParam(required = false) Long caseId,
+            @PageableDefault(size = 20) Pageable pageable) {
+        return documentSearchService.search(q, caseId, pageable);
+    }
+
     @PostMapping("/upload")
     public ResponseEntity<Document> uploadDocument(
             @RequestParam("file") MultipartFile file,
@@ -41,33 +87,35 @@ public class DocumentController {
     }
 
     @GetMapping("/{id}/download")
-    public ResponseEntity<byte[]> downloadDocument(@PathVariable Long id) throws Exception {
-        Document doc = documentRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Document", "id", id));
-        byte[] content = documentService.downloadDocument(id);
+    public ResponseEntity<StreamingResponseBody> downloadDocument(
+            @PathVariable Long id,
+            @RequestHeader HttpHeaders requestHeaders) throws Exception {
+        Document doc = documentService.getDocument(id);
         
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
         headers.setContentDispositionFormData("attachment", doc.getFileName());
         
         log.info("下载文件: {}, ID: {}", doc.getFileName(), id);
-        return new ResponseEntity<>(content, headers, HttpStatus.OK);
+        return streamDocument(doc, requestHeaders, headers);
     }
 
     @PostMapping("/batch-download")
-    public ResponseEntity<byte[]> batchDownloadDocuments(@RequestBody Map<String, List<Long>> requestBody) throws Exception {
+    public ResponseEntity<StreamingResponseBody> batchDownloadDocuments(@RequestBody Map<String, List<Long>> requestBody) {
         List<Long> ids = requestBody.get("ids");
         if (ids == null || ids.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
         
         log.info("批量下载文件, 文件数量: {}", ids.size());
-        byte[] zipContent = documentService.batchDownloadDocuments(ids);
+        // 先校验并加载全部元数据，再边读取边写出压缩包
+        List<Document> documents = documentService.getDocuments(ids);
+        StreamingResponseBody body = out -> documentService.writeDocumentsZip(documents, out);
         
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
         headers.setContentDispositionFormData("attachment", "documents.zip");
-        return new ResponseEntity<>(zipContent, headers, HttpStatus.OK);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
     }
 
     @DeleteMapping("/{id}")
@@ -86,6 +134,44 @@ public class DocumentController {
         return ResponseEntity.ok(doc);
     }
 
+    /**
+     * 将文档移到同一案件的另一文档之前（beforeId）或之后（afterId），只更新被移动的文档
+     */
+    @PutMapping("/{id}/move")
+    public ResponseEntity<Document> moveDocument(
+            @PathVariable Long id,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) Long afterId) {
+        if ((beforeId == null) == (afterId == null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("移动文件, ID: {}, 之前: {}, 之后: {}", id, beforeId, afterId);
+        Document doc = beforeId != null
+                ? documentOrderService.move(id, beforeId, true)
+                : documentOrderService.move(id, afterId, false);
+        return ResponseEntity.ok(doc);
+    }
+
+    /**
+     * 拖拽排序后一次提交同一案件下所有位置变化的文档
+     */
+    @PutMapping("/batch-sort")
+    public ResponseEntity<BatchResultDto> batchUpdateSortOrder(@RequestBody BatchSortRequest request) {
+        if (request.getCaseId() == null || request.getItems() == null || request.getItems().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        Map<Long, Integer> sortOrders = new LinkedHashMap<>();
+        for (BatchSortRequest.Item item : request.getItems()) {
+            if (item.getId() == null || item.getSortOrder() == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            sortOrders.put(item.getId(), item.getSortOrder());
+        }
+
+        log.info("批量更新文件排序, 案件ID: {}, 文件数量: {}", request.getCaseId(), sortOrders.size());
+        return ResponseEntity.ok(documentService.batchUpdateSortOrder(request.getCaseId(), sortOrders));
+    }
+
     @PutMapping("/{id}/remarks")
     public ResponseEntity<Document> updateRemarks(
             @PathVariable Long id,
@@ -96,18 +182,16 @@ public class DocumentController {
     }
 
     @PutMapping("/batch-remarks")
-    public ResponseEntity<Void> batchUpdateRemarks(@RequestBody Map<String, Object> payload) {
-        @SuppressWarnings("unchecked")
-        List<Long> ids = (List<Long>) payload.get("ids");
+    public ResponseEntity<BatchResultDto> batchUpdateRemarks(@RequestBody Map<String, Object> payload) {
+        List<Long> ids = toIds(payload.get("ids"));
         String remarks = (String) payload.get("remarks");
         
-        if (ids == null || ids.isEmpty()) {
+        if (ids.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
         
         log.info("批量更新文件备注, 文件数量: {}", ids.size());
-        documentService.batchUpdateRemarks(ids, remarks);
-        return ResponseEntity.ok().build();
+        return ResponseEntity.ok(documentService.batchUpdateRemarks(ids, remarks));
     }
 
     @PutMapping("/{id}/category")
@@ -120,18 +204,16 @@ public class DocumentController {
     }
 
     @PutMapping("/batch-category")
-    public ResponseEntity<Void> batchUpdateCategory(@RequestBody Map<String, Object> payload) {
-        @SuppressWarnings("unchecked")
-        List<Long> ids = (List<Long>) payload.get("ids");
+    public ResponseEntity<BatchResultDto> batchUpdateCategory(@RequestBody Map<String, Object> payload) {
+        List<Long> ids = toIds(payload.get("ids"));
         String category = (String) payload.get("category");
         
-        if (ids == null || ids.isEmpty()) {
+        if (ids.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
         
         log.info("批量更新文件分类, 文件数量: {}", ids.size());
-        documentService.batchUpdateCategory(ids, category);
-        return ResponseEntity.ok().build();
+        return ResponseEntity.ok(documentService.batchUpdateCategory(ids, category));
     }
 
     @PostMapping("/batch-delete")
@@ -147,15 +229,100 @@ public class DocumentController {
     }
 
     @GetMapping("/{id}/preview")
-    public ResponseEntity<byte[]> previewDocument(@PathVariable Long id) throws Exception {
-        Document doc = documentRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Document", "id", id));
-        byte[] content = documentService.previewDocument(id);
+    public ResponseEntity<StreamingResponseBody> previewDocument(
+            @PathVariable Long id,
+            @RequestHeader HttpHeaders requestHeaders) throws Exception {
+        Document doc = documentService.getDocument(id);
         
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.valueOf(doc.getFileType()));
         
         log.info("预览文件: {}, ID: {}", doc.getFileName(), id);
-        return new ResponseEntity<>(content, headers, HttpStatus.OK);
+        return streamDocument(doc, requestHeaders, headers);
+    }
+
+    /**
+     * 流式输出文档内容，支持Range/If-Range断点续传与随机读取
+     */
+    private ResponseEntity<StreamingResponseBody> streamDocument(
+            Document doc, HttpHeaders requestHeaders, HttpHeaders headers) throws Exception {
+        long contentLength = documentService.getContentLength(doc);
+        // 存储对象写入后不再修改，存储名称即可作为强校验ETag
+        String etag = "\"" + DigestUtils.md5DigestAsHex(doc.getStorageName().getBytes(StandardCharsets.UTF_8)) + "\"";
+        headers.setETag(etag);
+        if (doc.getUploadTime() != null) {
+            headers.setLastModified(doc.getUploadTime());
+        }
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long start = 0;
+        long end = contentLength - 1;
+        HttpStatus status = HttpStatus.OK;
+
+        List<HttpRange> ranges = getRequestedRanges(requestHeaders, etag, doc);
+        // 仅支持单一范围，多范围请求按完整内容返回
+        if (ranges.size() == 1) {
+            HttpRange range = ranges.get(0);
+            try {
+                start = range.getRangeStart(contentLength);
+                end = range.getRangeEnd(contentLength);
+            } catch (IllegalArgumentException e) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + contentLength);
+                return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            }
+            status = HttpStatus.PARTIAL_CONTENT;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + contentLength);
+        }
+
+        long offset = start;
+        long length = end - start + 1;
+        headers.setContentLength(length);
+        StreamingResponseBody body = out -> documentService.writeDocument(doc, offset, length, out);
+        return new ResponseEntity<>(body, headers, status);
+    }
+
+    /**
+     * 解析Range请求头，If-Range与当前版本不匹配时忽略Range
+     */
+    private List<HttpRange> getRequestedRanges(HttpHeaders requestHeaders, String etag, Document doc) {
+        String rangeHeader = requestHeaders.getFirst(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return Collections.emptyList();
+        }
+
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                return Collections.emptyList();
+            }
+            try {
+                long ifRangeDate = requestHeaders.getFirstDate(HttpHeaders.IF_RANGE);
+                if (doc.getUploadTime() == null
+                        || ifRangeDate != doc.getUploadTime().toEpochSecond() * 1000) {
+                    return Collections.emptyList();
+                }
+            } catch (IllegalArgumentException e) {
+                return Collections.emptyList();
+            }
+        }
+
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // 无法解析的Range按普通请求处理
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * JSON数组中的数字按大小反序列化为Integer或Long，统一转换为Long
+     */
+    private static List<Long> toIds(Object value) {
+        if (!(value instanceof List<?> list)) {
+            return Collections.emptyList();
+        }
+        return list.stream()
+                .map(id -> ((Number) id).longValue())
+                .toList();
     }
-} 
\ No newline at end of file
+}
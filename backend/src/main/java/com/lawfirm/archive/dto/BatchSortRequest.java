@@ -0,0 +1,35 @@
+package com.lawfirm.archive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量调整文档排序请求，拖拽排序后提交同一案件下位置变化的文档
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSortRequest {
+    /**
+     * 案件ID，只更新属于该案件的文档
+     */
+    private Long caseId;
+
+    /**
+     * 文档的新排序值
+     */
+    private List<Item> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private Long id;
+        private Integer sortOrder;
+    }
+}
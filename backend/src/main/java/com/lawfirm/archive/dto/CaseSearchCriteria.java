@@ -0,0 +1,44 @@
+package com.lawfirm.archive.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 案件检索条件，为空的条件不参与过滤
+ */
+@Data
+public class CaseSearchCriteria {
+    /**
+     * 同时匹配案号、案由、当事人
+     */
+    private String keyword;
+
+    private String caseNumber;
+
+    private String parties;
+
+    private String court;
+
+    private String caseReason;
+
+    private String status;
+
+    private Long categoryId;
+
+    /**
+     * 包含其中任一标签的案件
+     */
+    private List<Long> tagIds;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate filingDateFrom;
+
+    /**
+     * 包含当天
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate filingDateTo;
+}
@@ -0,0 +1,42 @@
+package com.lawfirm.archive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * 案件列表项DTO，不含文档与标签集合
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaseSummaryDto {
+    private Long id;
+
+    private String caseNumber;
+
+    private String caseReason;
+
+    private String parties;
+
+    private String agents;
+
+    private String court;
+
+    private String procedure;
+
+    private String status;
+
+    private LocalDate filingDate;
+
+    private Long categoryId;
+
+    private String categoryName;
+
+    /**
+     * 未删除的文档数
+     */
+    private Long documentCount;
+}
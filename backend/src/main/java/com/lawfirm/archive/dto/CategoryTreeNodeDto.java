@@ -0,0 +1,37 @@
+package com.lawfirm.archive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分类树节点DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryTreeNodeDto {
+    private Long id;
+
+    private String name;
+
+    private Long parentId;
+
+    /**
+     * 直接属于该分类的案件数
+     */
+    private long caseCount;
+
+    /**
+     * 该分类及全部子分类的案件数
+     */
+    private long totalCaseCount;
+
+    @Builder.Default
+    private List<CategoryTreeNodeDto> children = new ArrayList<>();
+}
@@ -27,4 +27,14 @@ public class ChunkDTO {
      * 分片文件
      */
     private MultipartFile file;
+    
+    /**
+     * 分片校验值（十六进制），可选
+     */
+    private String checksum;
+    
+    /**
+     * 校验算法：CRC32C 或 MD5，为空时按校验值长度判断
+     */
+    private String checksumAlgorithm;
 } 
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.lawfirm.archive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 文档列表的一页，按 (sortOrder, id) 翻页
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentPageDto {
+    private List<DocumentSummaryDto> items;
+
+    /**
+     * 是否还有下一页
+     */
+    private boolean hasMore;
+
+    /**
+     * 下一页的起点，作为 afterSortOrder、afterId 传入；没有下一页时为null
+     */
+    private Integer nextSortOrder;
+
+    private Long nextId;
+}
@@ -0,0 +1,35 @@
+package com.lawfirm.archive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 全文检索结果DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentSearchHitDto {
+    private Long documentId;
+
+    private Long caseId;
+
+    private String fileName;
+
+    private String fileType;
+
+    private String category;
+
+    /**
+     * 相关度，文件名命中高于正文命中
+     */
+    private float rank;
+
+    /**
+     * 正文摘要，已转义为HTML，检索词以 &lt;mark&gt; 标出
+     */
+    private String snippet;
+}
@@ -0,0 +1,31 @@
+package com.lawfirm.archive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.ZonedDateTime;
+
+/**
+ * 文档列表项DTO，只包含列表展示需要的字段
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentSummaryDto {
+    private Long id;
+
+    private String fileName;
+
+    private String fileType;
+
+    private Long fileSize;
+
+    private String category;
+
+    private Integer sortOrder;
+
+    private ZonedDateTime uploadTime;
+
+    private String remarks;
+}
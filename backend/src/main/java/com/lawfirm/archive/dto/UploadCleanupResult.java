@@ -0,0 +1,50 @@
+package com.lawfirm.archive.dto;
+
+import lombok.Data;
+
+/**
+ * 过期上传清理结果
+ * 清理过程中可能由多个线程累加
+ */
+@Data
+public class UploadCleanupResult {
+    /**
+     * 清理锁被其他实例持有，本次未执行
+     */
+    private boolean skipped;
+
+    /**
+     * 合并中断、标记为失败的任务数
+     */
+    private long recoveredMerges;
+
+    /**
+     * 删除的过期任务数
+     */
+    private long deletedTasks;
+
+    /**
+     * 清理的过期任务暂存数
+     */
+    private long discardedStagings;
+
+    /**
+     * 清理的无主暂存数据数（临时文件、未完成的分片上传、旧版分片对象）
+     */
+    private long orphansRemoved;
+
+    /**
+     * 回收的字节数
+     */
+    private long bytesReclaimed;
+
+    public synchronized void addDiscarded(long bytes) {
+        discardedStagings++;
+        bytesReclaimed += bytes;
+    }
+
+    public synchronized void addOrphan(long bytes) {
+        orphansRemoved++;
+        bytesReclaimed += bytes;
+    }
+}
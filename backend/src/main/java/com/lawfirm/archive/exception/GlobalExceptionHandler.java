@@ -1 +1,40 @@
- 
\ No newline at end of file
+package com.lawfirm.archive.exception;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+@RestControllerAdvice
+@Slf4j
+public class GlobalExceptionHandler {
+
+    /**
+     * 请求被限流时返回429，并通过Retry-After告知客户端重试间隔
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Map<String, Object>> handleTooManyRequests(TooManyRequestsException e) {
+        log.warn("请求被限流: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of(
+                        "status", HttpStatus.TOO_MANY_REQUESTS.value(),
+                        "message", e.getMessage()));
+    }
+
+    /**
+     * 服务层以 {@link IllegalArgumentException} 拒绝的请求参数返回400
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleIllegalArgument(IllegalArgumentException e) {
+        log.warn("请求参数错误: {}", e.getMessage());
+        return ResponseEntity.badRequest()
+                .body(Map.of(
+                        "status", HttpStatus.BAD_REQUEST.value(),
+                        "message", e.getMessage() != null ? e.getMessage() : "请求参数错误"));
+    }
+}
@@ -2,11 +2,13 @@ package com.lawfirm.archive.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.SQLRestriction;
 import java.time.ZonedDateTime;
 
 @Data
 @Entity
 @Table(name = "documents")
+@SQLRestriction("deleted_at IS NULL")
 public class Document {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -25,6 +27,12 @@ public class Document {
     @Column(name = "storage_name", nullable = false)
     private String storageName;
 
+    /**
+     * 文件内容的SHA-256
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @Column(name = "file_type")
     private String fileType;
 
@@ -42,10 +50,16 @@ public class Document {
 
     private String category;
 
-    @Column(name = "sort_order")
+    @Column(name = "sort_order", nullable = false)
     private Integer sortOrder = 0;
 
     private String remarks;
 
     private Integer version = 1;
+
+    /**
+     * 删除时间，已删除的文档不出现在查询结果中，宽限期后清除
+     */
+    @Column(name = "deleted_at")
+    private ZonedDateTime deletedAt;
 } 
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.lawfirm.archive.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.ZonedDateTime;
+
+/**
+ * 文档全文检索记录，检索向量 search_vector 只由原生SQL读写
+ */
+@Data
+@Entity
+@Table(name = "document_texts")
+public class DocumentText {
+    /**
+     * 等待提取
+     */
+    public static final String STATUS_PENDING = "PENDING";
+    /**
+     * 正在提取
+     */
+    public static final String STATUS_PROCESSING = "PROCESSING";
+    /**
+     * 已建立索引
+     */
+    public static final String STATUS_INDEXED = "INDEXED";
+    /**
+     * 文件类型不支持或文件过大，只索引文件名
+     */
+    public static final String STATUS_SKIPPED = "SKIPPED";
+    /**
+     * 多次提取失败
+     */
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Id
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(columnDefinition = "TEXT")
+    private String content;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "locked_until")
+    private ZonedDateTime lockedUntil;
+
+    @Column(name = "indexed_at")
+    private ZonedDateTime indexedAt;
+
+    @Column(name = "created_at", nullable = false)
+    private ZonedDateTime createdAt;
+}
@@ -0,0 +1,35 @@
+package com.lawfirm.archive.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.ZonedDateTime;
+
+/**
+ * 定时任务锁，多实例部署时保证同一任务只有一个实例在执行
+ */
+@Data
+@Entity
+@Table(name = "scheduler_locks")
+public class SchedulerLock {
+    /**
+     * 锁名称
+     */
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    /**
+     * 锁租约到期时间，到期后其他实例可以获取
+     */
+    @Column(name = "locked_until", nullable = false)
+    private ZonedDateTime lockedUntil;
+
+    @Column(name = "locked_at", nullable = false)
+    private ZonedDateTime lockedAt;
+
+    /**
+     * 持有锁的实例
+     */
+    @Column(name = "locked_by", nullable = false)
+    private String lockedBy;
+}
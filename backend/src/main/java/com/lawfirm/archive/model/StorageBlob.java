@@ -0,0 +1,35 @@
+package com.lawfirm.archive.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.ZonedDateTime;
+
+/**
+ * 按内容寻址的存储对象，多个文档可共享同一对象
+ */
+@Data
+@Entity
+@Table(name = "storage_blobs")
+public class StorageBlob {
+    /**
+     * 文件内容的SHA-256（十六进制）
+     */
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "storage_name", nullable = false)
+    private String storageName;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    /**
+     * 引用该对象的文档数
+     */
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount = 0;
+
+    @Column(name = "created_at")
+    private ZonedDateTime createdAt;
+}
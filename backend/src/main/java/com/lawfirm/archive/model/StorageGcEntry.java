@@ -0,0 +1,38 @@
+package com.lawfirm.archive.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.ZonedDateTime;
+
+/**
+ * 待删除的存储对象
+ */
+@Data
+@Entity
+@Table(name = "storage_gc_queue")
+public class StorageGcEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "storage_name", nullable = false)
+    private String storageName;
+
+    /**
+     * 最早删除时间：登记时为宽限期结束时间，删除失败后推迟到下次重试时间
+     */
+    @Column(name = "not_before", nullable = false)
+    private ZonedDateTime notBefore;
+
+    /**
+     * 已失败的删除次数
+     */
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private ZonedDateTime createdAt;
+}
@@ -1,14 +1,16 @@
 package com.lawfirm.archive.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.ZonedDateTime;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * 分片上传任务
@@ -18,6 +20,7 @@ import java.util.Set;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@DynamicUpdate
 @Table(name = "upload_tasks")
 public class UploadTask {
     /**
@@ -59,19 +62,41 @@ public class UploadTask {
     private Integer uploadedChunks;
     
     /**
-     * 已上传分片列表
+     * 合并阶段已写入存储的字节数
      */
-    @ElementCollection
-    @CollectionTable(name = "upload_task_chunks", joinColumns = @JoinColumn(name = "task_id"))
-    @Column(name = "chunk_number")
-    @Builder.Default
-    private Set<Integer> uploadedChunkNumbers = new HashSet<>();
+    @Column(name = "processed_bytes")
+    private Long processedBytes;
+    
+    /**
+     * 已上传分片位图，第n个分片对应第n-1位（与PostgreSQL set_bit的位序一致）
+     */
+    @JsonIgnore
+    @Column(name = "chunk_bitmap")
+    private byte[] chunkBitmap;
     
     /**
      * 存储名称
      */
     private String storageName;
     
+    /**
+     * MinIO分片上传ID，为空表示分片暂存在本地临时目录
+     */
+    @Column(name = "upload_id")
+    private String uploadId;
+    
+    /**
+     * 文件内容的SHA-256
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+    
+    /**
+     * 合并完成后生成的文档ID
+     */
+    @Column(name = "document_id")
+    private Long documentId;
+    
     /**
      * 分类
      */
@@ -125,6 +150,22 @@ public class UploadTask {
         CANCELED      // 取消
     }
     
+    /**
+     * 已上传分片列表
+     */
+    @Transient
+    public Set<Integer> getUploadedChunkNumbers() {
+        Set<Integer> numbers = new TreeSet<>();
+        if (chunkBitmap != null) {
+            for (int i = 0; i < chunkBitmap.length * 8; i++) {
+                if ((chunkBitmap[i / 8] >> (i % 8) & 1) == 1) {
+                    numbers.add(i + 1);
+                }
+            }
+        }
+        return numbers;
+    }
+    
     /**
      * 是否已完成所有分片上传
      */
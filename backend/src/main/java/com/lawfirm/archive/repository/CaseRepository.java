@@ -2,9 +2,31 @@ package com.lawfirm.archive.repository;
 
 import com.lawfirm.archive.model.Case;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface CaseRepository extends JpaRepository<Case, Long> {
-    // 可根据需要添加自定义查询方法
-} 
\ No newline at end of file
+public interface CaseRepository extends JpaRepository<Case, Long>, CaseRepositoryCustom {
+    /**
+     * 锁定案件行直到事务结束，用于串行化同一案件的文档排序调整
+     */
+    @Query(value = "SELECT id FROM cases WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
+
+    /**
+     * 一条聚合查询统计各分类直接包含的案件数
+     */
+    @Query("SELECT c.categoryId AS categoryId, COUNT(c) AS caseCount FROM Case c " +
+            "WHERE c.categoryId IS NOT NULL GROUP BY c.categoryId")
+    List<CategoryCaseCount> countByCategory();
+
+    interface CategoryCaseCount {
+        Long getCategoryId();
+
+        long getCaseCount();
+    }
+}
@@ -0,0 +1,13 @@
+package com.lawfirm.archive.repository;
+
+import com.lawfirm.archive.dto.CaseSearchCriteria;
+import com.lawfirm.archive.dto.CaseSummaryDto;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface CaseRepositoryCustom {
+    /**
+     * 按条件分页检索案件，只查询列表字段与文档数
+     */
+    Page<CaseSummaryDto> search(CaseSearchCriteria criteria, Pageable pageable);
+}
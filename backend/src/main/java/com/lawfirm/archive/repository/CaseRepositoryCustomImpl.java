@@ -0,0 +1,161 @@
+package com.lawfirm.archive.repository;
+
+import com.lawfirm.archive.dto.CaseSearchCriteria;
+import com.lawfirm.archive.dto.CaseSummaryDto;
+import com.lawfirm.archive.model.Case;
+import com.lawfirm.archive.model.Category;
+import com.lawfirm.archive.model.Document;
+import com.lawfirm.archive.model.Tag;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 模糊条件按 lower(字段) LIKE 拼接，与三元组索引的表达式一致
+ * 文档数以相关子查询计算，只对当前页的案件执行
+ */
+public class CaseRepositoryCustomImpl implements CaseRepositoryCustom {
+    /**
+     * 允许排序的字段
+     */
+    private static final Set<String> SORTABLE = Set.of(
+            "id", "caseNumber", "caseReason", "court", "status", "filingDate");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<CaseSummaryDto> search(CaseSearchCriteria criteria, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<CaseSummaryDto> query = cb.createQuery(CaseSummaryDto.class);
+        Root<Case> root = query.from(Case.class);
+        Join<Case, Category> category = root.join("category", JoinType.LEFT);
+
+        Subquery<Long> documentCount = query.subquery(Long.class);
+        Root<Document> document = documentCount.from(Document.class);
+        documentCount.select(cb.count(document)).where(cb.equal(document.get("caseId"), root.get("id")));
+
+        query.select(cb.construct(CaseSummaryDto.class,
+                        root.get("id"), root.get("caseNumber"), root.get("caseReason"), root.get("parties"),
+                        root.get("agents"), root.get("court"), root.get("procedure"), root.get("status"),
+                        root.get("filingDate"), root.get("categoryId"), category.get("name"), documentCount))
+                .where(predicates(cb, query, root, criteria))
+                .orderBy(orders(cb, root, pageable.getSort()));
+
+        List<CaseSummaryDto> content = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<Case> countRoot = countQuery.from(Case.class);
+        countQuery.select(cb.count(countRoot)).where(predicates(cb, countQuery, countRoot, criteria));
+        long total = entityManager.createQuery(countQuery).getSingleResult();
+
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    private Predicate[] predicates(CriteriaBuilder cb, CriteriaQuery<?> query, Root<Case> root,
+                                   CaseSearchCriteria criteria) {
+        List<Predicate> predicates = new ArrayList<>();
+
+        // 关键词：案号、案由、当事人任一包含
+        if (StringUtils.hasText(criteria.getKeyword())) {
+            String pattern = containsPattern(criteria.getKeyword());
+            predicates.add(cb.or(
+                    contains(cb, root.get("caseNumber"), pattern),
+                    contains(cb, root.get("caseReason"), pattern),
+                    contains(cb, root.get("parties"), pattern)));
+        }
+
+        // 单字段模糊匹配
+        addContains(cb, predicates, root.get("caseNumber"), criteria.getCaseNumber());
+        addContains(cb, predicates, root.get("parties"), criteria.getParties());
+        addContains(cb, predicates, root.get("court"), criteria.getCourt());
+        addContains(cb, predicates, root.get("caseReason"), criteria.getCaseReason());
+
+        // 状态与分类过滤
+        if (StringUtils.hasText(criteria.getStatus())) {
+            predicates.add(cb.equal(root.get("status"), criteria.getStatus()));
+        }
+        if (criteria.getCategoryId() != null) {
+            predicates.add(cb.equal(root.get("categoryId"), criteria.getCategoryId()));
+        }
+
+        // 标签过滤：用EXISTS避免连接产生重复行
+        if (criteria.getTagIds() != null && !criteria.getTagIds().isEmpty()) {
+            Subquery<Long> tagged = query.subquery(Long.class);
+            Root<Case> correlated = tagged.correlate(root);
+            Join<Case, Tag> tag = correlated.join("tags");
+            tagged.select(tag.get("id")).where(tag.get("id").in(criteria.getTagIds()));
+            predicates.add(cb.exists(tagged));
+        }
+
+        // 立案日期范围
+        if (criteria.getFilingDateFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.get("filingDate"), criteria.getFilingDateFrom()));
+        }
+        if (criteria.getFilingDateTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(root.get("filingDate"), criteria.getFilingDateTo()));
+        }
+
+        return predicates.toArray(new Predicate[0]);
+    }
+
+    private List<Order> orders(CriteriaBuilder cb, Root<Case> root, Sort sort) {
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            if (!SORTABLE.contains(order.getProperty())) {
+                continue;
+            }
+            Expression<?> path = root.get(order.getProperty());
+            orders.add(order.isAscending() ? cb.asc(path) : cb.desc(path));
+        }
+        if (orders.isEmpty()) {
+            orders.add(cb.desc(root.get("filingDate")));
+        }
+        // id 保证翻页顺序稳定
+        orders.add(cb.desc(root.get("id")));
+        return orders;
+    }
+
+    private static void addContains(CriteriaBuilder cb, List<Predicate> predicates, Expression<String> field,
+                                    String value) {
+        if (StringUtils.hasText(value)) {
+            predicates.add(contains(cb, field, containsPattern(value)));
+        }
+    }
+
+    private static Predicate contains(CriteriaBuilder cb, Expression<String> field, String pattern) {
+        return cb.like(cb.lower(field), pattern, '\\');
+    }
+
+    /**
+     * 转义LIKE通配符，用户输入按字面匹配
+     */
+    private static String containsPattern(String value) {
+        String escaped = value.trim().toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
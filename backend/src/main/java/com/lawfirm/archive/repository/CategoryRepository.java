@@ -2,8 +2,33 @@ package com.lawfirm.archive.repository;
 
 import com.lawfirm.archive.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
-} 
\ No newline at end of file
+    /**
+     * 一条递归查询读取从顶级分类出发可达的全部分类，父分类排在子分类之前
+     * 按路径跳过成环的分类，不可达的分类（父分类已删除或成环）不返回
+     */
+    @Query(value = "WITH RECURSIVE tree AS (" +
+            "SELECT id, name, parent_id, 0 AS depth, ARRAY[id] AS path " +
+            "FROM categories WHERE parent_id IS NULL " +
+            "UNION ALL " +
+            "SELECT c.id, c.name, c.parent_id, t.depth + 1, t.path || c.id " +
+            "FROM categories c JOIN tree t ON c.parent_id = t.id " +
+            "WHERE c.id <> ALL(t.path)) " +
+            "SELECT id, name, parent_id AS parentId FROM tree ORDER BY depth, name, id",
+            nativeQuery = true)
+    List<CategoryTreeRow> findTree();
+
+    interface CategoryTreeRow {
+        Long getId();
+
+        String getName();
+
+        Long getParentId();
+    }
+}
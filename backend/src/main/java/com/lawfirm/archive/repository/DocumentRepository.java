@@ -2,11 +2,131 @@ package com.lawfirm.archive.repository;
 
 import com.lawfirm.archive.model.Document;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface DocumentRepository extends JpaRepository<Document, Long> {
+public interface DocumentRepository extends JpaRepository<Document, Long>, DocumentRepositoryCustom {
     List<Document> findByCaseEntityIdOrderBySortOrderAsc(Long caseId);
+
+    boolean existsByStorageName(String storageName);
+
+    /**
+     * 一条语句删除案件下的全部文档记录，包括已软删除的记录
+     */
+    @Modifying
+    @Query(value = "DELETE FROM documents WHERE case_id = :caseId", nativeQuery = true)
+    int deleteByCaseId(@Param("caseId") Long caseId);
+
+    /**
+     * 一条语句更新多个文档的备注
+     */
+    @Modifying
+    @Query("UPDATE Document d SET d.remarks = :remarks, d.updatedAt = :updatedAt " +
+            "WHERE d.id IN :ids AND d.deletedAt IS NULL")
+    int updateRemarks(@Param("ids") Collection<Long> ids, @Param("remarks") String remarks,
+                      @Param("updatedAt") ZonedDateTime updatedAt);
+
+    /**
+     * 一条语句更新多个文档的分类
+     */
+    @Modifying
+    @Query("UPDATE Document d SET d.category = :category, d.updatedAt = :updatedAt " +
+            "WHERE d.id IN :ids AND d.deletedAt IS NULL")
+    int updateCategory(@Param("ids") Collection<Long> ids, @Param("category") String category,
+                       @Param("updatedAt") ZonedDateTime updatedAt);
+
+    /**
+     * 案件末尾的排序值：当前最大值加一个间隔，超出int范围时取最大值，之后移动文档时重新编号
+     */
+    @Query(value = "SELECT CAST(LEAST(COALESCE(MAX(sort_order) + CAST(:gap AS BIGINT), 0), 2147483647) AS INTEGER) " +
+            "FROM documents WHERE case_id = :caseId AND deleted_at IS NULL", nativeQuery = true)
+    int nextSortOrder(@Param("caseId") Long caseId, @Param("gap") int gap);
+
+    @Query(value = "SELECT sort_order FROM documents WHERE id = :id AND case_id = :caseId AND deleted_at IS NULL",
+            nativeQuery = true)
+    Integer findSortOrder(@Param("caseId") Long caseId, @Param("id") Long id);
+
+    /**
+     * 按 (sort_order, id) 顺序位于指定位置之前的最后一个文档的排序值，不含excludeId
+     */
+    @Query(value = "SELECT sort_order FROM documents WHERE case_id = :caseId AND deleted_at IS NULL " +
+            "AND id <> :excludeId AND (sort_order, id) < (:sortOrder, :id) " +
+            "ORDER BY sort_order DESC, id DESC LIMIT 1", nativeQuery = true)
+    Integer findPreviousSortOrder(@Param("caseId") Long caseId, @Param("sortOrder") int sortOrder,
+                                  @Param("id") Long id, @Param("excludeId") Long excludeId);
+
+    /**
+     * 按 (sort_order, id) 顺序位于指定位置之后的第一个文档的排序值，不含excludeId
+     */
+    @Query(value = "SELECT sort_order FROM documents WHERE case_id = :caseId AND deleted_at IS NULL " +
+            "AND id <> :excludeId AND (sort_order, id) > (:sortOrder, :id) " +
+            "ORDER BY sort_order, id LIMIT 1", nativeQuery = true)
+    Integer findNextSortOrder(@Param("caseId") Long caseId, @Param("sortOrder") int sortOrder,
+                              @Param("id") Long id, @Param("excludeId") Long excludeId);
+
+    /**
+     * 只更新一个文档的排序值，不写回其他字段；执行后清空持久化上下文，之后读取的是数据库中的最新值
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE documents SET sort_order = :sortOrder, updated_at = :updatedAt " +
+            "WHERE id = :id AND deleted_at IS NULL", nativeQuery = true)
+    int updateSortOrder(@Param("id") Long id, @Param("sortOrder") int sortOrder,
+                        @Param("updatedAt") ZonedDateTime updatedAt);
+
+    /**
+     * 按当前顺序重新编号案件下的文档，相邻文档间隔gap，只更新排序值变化的行
+     */
+    @Modifying
+    @Query(value = "UPDATE documents d SET sort_order = r.position * :gap FROM (" +
+            "SELECT id, row_number() OVER (ORDER BY sort_order, id) - 1 AS position " +
+            "FROM documents WHERE case_id = :caseId AND deleted_at IS NULL) r " +
+            "WHERE d.id = r.id AND d.sort_order <> r.position * :gap", nativeQuery = true)
+    int renumberSortOrders(@Param("caseId") Long caseId, @Param("gap") int gap);
+
+    @Modifying
+    @Query(value = "INSERT INTO document_order_rebalance (case_id) VALUES (:caseId) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int requestSortRebalance(@Param("caseId") Long caseId);
+
+    @Query(value = "SELECT case_id FROM document_order_rebalance ORDER BY requested_at LIMIT :limit",
+            nativeQuery = true)
+    List<Long> findSortRebalanceRequests(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM document_order_rebalance WHERE case_id = :caseId", nativeQuery = true)
+    int deleteSortRebalanceRequest(@Param("caseId") Long caseId);
+
+    /**
+     * 标记文档已删除
+     */
+    @Modifying
+    @Query(value = "UPDATE documents SET deleted_at = :deletedAt WHERE id IN (:ids) AND deleted_at IS NULL",
+            nativeQuery = true)
+    int markDeleted(@Param("ids") Collection<Long> ids, @Param("deletedAt") ZonedDateTime deletedAt);
+
+    /**
+     * 仍被未删除文档使用的存储名称
+     */
+    @Query(value = "SELECT DISTINCT storage_name FROM documents " +
+            "WHERE storage_name IN (:storageNames) AND deleted_at IS NULL",
+            nativeQuery = true)
+    List<String> findReferencedStorageNames(@Param("storageNames") Collection<String> storageNames);
+
+    /**
+     * 清除删除时间早于指定时间的文档记录，每次最多limit条
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM documents WHERE id IN " +
+            "(SELECT id FROM documents WHERE deleted_at < :before LIMIT :limit)",
+            nativeQuery = true)
+    int purgeDeleted(@Param("before") ZonedDateTime before, @Param("limit") int limit);
 } 
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.lawfirm.archive.repository;
+
+import com.lawfirm.archive.dto.DocumentSummaryDto;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface DocumentRepositoryCustom {
+    /**
+     * 按 (sortOrder, id) 顺序查询案件文档，从指定位置之后开始，只查询列表字段
+     * 各过滤条件为null时不过滤；afterSortOrder、afterId为null时从第一条开始
+     */
+    List<DocumentSummaryDto> findSummaries(Long caseId, String category, String fileType,
+                                           ZonedDateTime uploadedFrom, ZonedDateTime uploadedTo,
+                                           Integer afterSortOrder, Long afterId, int limit);
+
+    /**
+     * 以 UPDATE ... SET sort_order = CASE id WHEN ... END 批量更新案件下文档的排序值
+     * 每条语句最多更新 {@link #SORT_UPDATE_CHUNK} 个文档，只更新属于该案件且未删除的文档
+     * @param sortOrders 文档ID到新排序值
+     * @return 更新的文档数
+     */
+    int updateSortOrders(Long caseId, Map<Long, Integer> sortOrders);
+
+    /**
+     * 单条语句更新的文档数上限，每个文档占用三个绑定参数，不超过PostgreSQL单条语句的参数上限
+     */
+    int SORT_UPDATE_CHUNK = 5000;
+}
@@ -0,0 +1,109 @@
+package com.lawfirm.archive.repository;
+
+import com.lawfirm.archive.dto.DocumentSummaryDto;
+import com.lawfirm.archive.model.Document;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 只拼接实际使用的条件，使查询能按索引 (case_id, sort_order, id) 定位并顺序读取
+ */
+public class DocumentRepositoryCustomImpl implements DocumentRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<DocumentSummaryDto> findSummaries(Long caseId, String category, String fileType,
+                                                  ZonedDateTime uploadedFrom, ZonedDateTime uploadedTo,
+                                                  Integer afterSortOrder, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DocumentSummaryDto> query = cb.createQuery(DocumentSummaryDto.class);
+        Root<Document> root = query.from(Document.class);
+        Path<Integer> sortOrder = root.get("sortOrder");
+        Path<Long> id = root.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(root.get("caseId"), caseId));
+
+        // 分类过滤
+        if (StringUtils.hasText(category)) {
+            predicates.add(cb.equal(root.get("category"), category));
+        }
+
+        // 类型过滤：完整的MIME类型精确匹配，只有主类型（如 image）时匹配该主类型下的全部类型
+        if (StringUtils.hasText(fileType)) {
+            predicates.add(fileType.contains("/")
+                    ? cb.equal(root.get("fileType"), fileType)
+                    : cb.like(root.get("fileType"), fileType + "/%"));
+        }
+
+        // 上传时间过滤
+        if (uploadedFrom != null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.get("uploadTime"), uploadedFrom));
+        }
+        if (uploadedTo != null) {
+            predicates.add(cb.lessThan(root.get("uploadTime"), uploadedTo));
+        }
+
+        // 翻页位置：sortOrder >= a AND (sortOrder > a OR id > b)，前一个条件用于索引范围扫描
+        if (afterSortOrder != null && afterId != null) {
+            predicates.add(cb.greaterThanOrEqualTo(sortOrder, afterSortOrder));
+            predicates.add(cb.or(cb.greaterThan(sortOrder, afterSortOrder), cb.greaterThan(id, afterId)));
+        }
+
+        query.select(cb.construct(DocumentSummaryDto.class,
+                        id, root.get("fileName"), root.get("fileType"), root.get("fileSize"),
+                        root.get("category"), sortOrder, root.get("uploadTime"), root.get("remarks")))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(sortOrder), cb.asc(id));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    public int updateSortOrders(Long caseId, Map<Long, Integer> sortOrders) {
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(sortOrders.entrySet());
+        int updated = 0;
+        for (int from = 0; from < entries.size(); from += SORT_UPDATE_CHUNK) {
+            List<Map.Entry<Long, Integer>> chunk = entries.subList(from, Math.min(entries.size(), from + SORT_UPDATE_CHUNK));
+
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaUpdate<Document> update = cb.createCriteriaUpdate(Document.class);
+            Root<Document> root = update.from(Document.class);
+            Path<Long> id = root.get("id");
+            Path<Integer> sortOrder = root.get("sortOrder");
+
+            CriteriaBuilder.SimpleCase<Long, Integer> newSortOrder = cb.selectCase(id);
+            List<Long> ids = new ArrayList<>(chunk.size());
+            for (Map.Entry<Long, Integer> entry : chunk) {
+                newSortOrder.when(entry.getKey(), entry.getValue());
+                ids.add(entry.getKey());
+            }
+            newSortOrder.otherwise(sortOrder);
+
+            update.set(sortOrder, newSortOrder)
+                    .set(root.<ZonedDateTime>get("updatedAt"), ZonedDateTime.now())
+                    .where(cb.equal(root.get("caseId"), caseId),
+                            id.in(ids),
+                            cb.isNull(root.get("deletedAt")));
+            updated += entityManager.createQuery(update).executeUpdate();
+        }
+        return updated;
+    }
+}
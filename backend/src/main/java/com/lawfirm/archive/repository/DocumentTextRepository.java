@@ -0,0 +1,106 @@
+package com.lawfirm.archive.repository;
+
+import com.lawfirm.archive.model.DocumentText;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Repository
+public interface DocumentTextRepository extends JpaRepository<DocumentText, Long> {
+    /**
+     * 领取待处理的文档，多个实例同时领取时互不重复
+     * 到达重试时间的待处理记录与租约已过期（处理中的实例异常退出）的记录均可领取
+     * @return 领取到的文档ID
+     */
+    @Transactional
+    @Query(value = "UPDATE document_texts SET status = 'PROCESSING', locked_until = :leaseUntil " +
+            "WHERE document_id IN (SELECT document_id FROM document_texts " +
+            "WHERE (status = 'PENDING' AND (locked_until IS NULL OR locked_until <= :now)) " +
+            "OR (status = 'PROCESSING' AND locked_until <= :now) " +
+            "ORDER BY document_id LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING document_id",
+            nativeQuery = true)
+    List<Long> claim(@Param("now") ZonedDateTime now,
+                     @Param("leaseUntil") ZonedDateTime leaseUntil,
+                     @Param("limit") int limit);
+
+    /**
+     * 保存提取的文本并建立检索向量，文件名权重高于正文
+     * 两段文本均为已分词、以空格分隔的词
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE document_texts SET status = :status, content = :content, " +
+            "search_vector = setweight(to_tsvector('simple', :nameTokens), 'A') " +
+            "|| setweight(to_tsvector('simple', :contentTokens), 'D'), " +
+            "last_error = NULL, locked_until = NULL, indexed_at = CURRENT_TIMESTAMP " +
+            "WHERE document_id = :documentId",
+            nativeQuery = true)
+    int saveIndex(@Param("documentId") Long documentId,
+                  @Param("status") String status,
+                  @Param("content") String content,
+                  @Param("nameTokens") String nameTokens,
+                  @Param("contentTokens") String contentTokens);
+
+    /**
+     * 记录提取失败，未达到最大次数时在重试时间后重新领取
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE document_texts SET status = :status, attempts = attempts + 1, " +
+            "last_error = :error, locked_until = :retryAt WHERE document_id = :documentId",
+            nativeQuery = true)
+    int markFailed(@Param("documentId") Long documentId,
+                   @Param("status") String status,
+                   @Param("error") String error,
+                   @Param("retryAt") ZonedDateTime retryAt);
+
+    /**
+     * 按相关度检索未删除的文档，摘要取正文中首个检索词附近的文本
+     * 正文不含检索词（只匹配文件名）时摘要取正文开头
+     */
+    @Query(value = "SELECT d.id AS documentId, d.case_id AS caseId, d.file_name AS fileName, " +
+            "d.file_type AS fileType, d.category AS category, " +
+            "ts_rank_cd(t.search_vector, q) AS rank, " +
+            "substring(t.content FROM greatest(1, strpos(lower(t.content), :anchor) - :snippetBefore) " +
+            "FOR :snippetLength) AS snippet " +
+            "FROM document_texts t " +
+            "JOIN documents d ON d.id = t.document_id, plainto_tsquery('simple', :tokens) AS q " +
+            "WHERE t.search_vector @@ q AND d.deleted_at IS NULL " +
+            "AND (CAST(:caseId AS BIGINT) IS NULL OR d.case_id = :caseId) " +
+            "ORDER BY rank DESC, d.id DESC",
+            countQuery = "SELECT COUNT(*) FROM document_texts t JOIN documents d ON d.id = t.document_id " +
+                    "WHERE t.search_vector @@ plainto_tsquery('simple', :tokens) AND d.deleted_at IS NULL " +
+                    "AND (CAST(:caseId AS BIGINT) IS NULL OR d.case_id = :caseId)",
+            nativeQuery = true)
+    Page<DocumentSearchRow> search(@Param("tokens") String tokens,
+                                   @Param("anchor") String anchor,
+                                   @Param("caseId") Long caseId,
+                                   @Param("snippetBefore") int snippetBefore,
+                                   @Param("snippetLength") int snippetLength,
+                                   Pageable pageable);
+
+    interface DocumentSearchRow {
+        Long getDocumentId();
+
+        Long getCaseId();
+
+        String getFileName();
+
+        String getFileType();
+
+        String getCategory();
+
+        Float getRank();
+
+        String getSnippet();
+    }
+}
@@ -0,0 +1,37 @@
+package com.lawfirm.archive.repository;
+
+import com.lawfirm.archive.model.SchedulerLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLock, String> {
+    /**
+     * 获取锁：锁不存在或租约已到期时登记为当前实例持有，时间以数据库为准
+     * @return 获取成功时为1
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO scheduler_locks (name, locked_until, locked_at, locked_by) " +
+            "VALUES (:name, now() + make_interval(secs => :leaseSeconds), now(), :owner) " +
+            "ON CONFLICT (name) DO UPDATE SET locked_until = EXCLUDED.locked_until, " +
+            "locked_at = EXCLUDED.locked_at, locked_by = EXCLUDED.locked_by " +
+            "WHERE scheduler_locks.locked_until <= now()",
+            nativeQuery = true)
+    int tryLock(@Param("name") String name,
+                @Param("leaseSeconds") long leaseSeconds,
+                @Param("owner") String owner);
+
+    /**
+     * 释放当前实例持有的锁
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE scheduler_locks SET locked_until = now() WHERE name = :name AND locked_by = :owner",
+            nativeQuery = true)
+    int unlock(@Param("name") String name, @Param("owner") String owner);
+}
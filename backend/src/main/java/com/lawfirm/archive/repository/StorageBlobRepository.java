@@ -0,0 +1,63 @@
+package com.lawfirm.archive.repository;
+
+import com.lawfirm.archive.model.StorageBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StorageBlobRepository extends JpaRepository<StorageBlob, String> {
+    /**
+     * 新增引用：对象不存在时登记，已存在时引用数加一
+     */
+    @Modifying
+    @Query(value = "INSERT INTO storage_blobs (content_hash, storage_name, file_size, ref_count, created_at) " +
+            "VALUES (:hash, :storageName, :fileSize, 1, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (content_hash) DO UPDATE SET ref_count = storage_blobs.ref_count + 1",
+            nativeQuery = true)
+    int addReference(@Param("hash") String hash,
+                     @Param("storageName") String storageName,
+                     @Param("fileSize") Long fileSize);
+
+    /**
+     * 已登记且大小一致的对象引用数加一，返回更新行数
+     */
+    @Modifying
+    @Query("UPDATE StorageBlob b SET b.refCount = b.refCount + 1 WHERE b.contentHash = :hash AND b.fileSize = :fileSize")
+    int incrementRefCount(@Param("hash") String hash, @Param("fileSize") Long fileSize);
+
+    /**
+     * 按待删除的文档批量减少引用数，同一对象被其中多个文档引用时一次减去对应数量
+     * 需在删除文档记录之前执行
+     */
+    @Modifying
+    @Query(value = "UPDATE storage_blobs b SET ref_count = b.ref_count - d.refs " +
+            "FROM (SELECT content_hash, storage_name, COUNT(*) AS refs FROM documents " +
+            "WHERE id IN (:documentIds) AND content_hash IS NOT NULL " +
+            "GROUP BY content_hash, storage_name) d " +
+            "WHERE b.content_hash = d.content_hash AND b.storage_name = d.storage_name AND b.ref_count > 0",
+            nativeQuery = true)
+    int decrementRefCounts(@Param("documentIds") Collection<Long> documentIds);
+
+    /**
+     * 批量删除已无引用的对象登记
+     * @return 被删除登记的存储名称
+     */
+    @Transactional
+    @Query(value = "DELETE FROM storage_blobs WHERE content_hash IN (:hashes) AND ref_count <= 0 " +
+            "RETURNING storage_name",
+            nativeQuery = true)
+    List<String> deleteUnreferenced(@Param("hashes") Collection<String> hashes);
+
+    /**
+     * 已登记的存储名称
+     */
+    @Query("SELECT b.storageName FROM StorageBlob b WHERE b.storageName IN :storageNames")
+    List<String> findRegisteredStorageNames(@Param("storageNames") Collection<String> storageNames);
+}
@@ -0,0 +1,34 @@
+package com.lawfirm.archive.repository;
+
+import com.lawfirm.archive.model.StorageGcEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StorageGcQueueRepository extends JpaRepository<StorageGcEntry, Long> {
+    /**
+     * 以一条语句登记待删除的存储对象
+     * 存储名称均来自本次删除的文档，按文档表取值，需在删除文档记录之前执行
+     */
+    @Modifying
+    @Query(value = "INSERT INTO storage_gc_queue (storage_name, not_before, attempts, created_at) " +
+            "SELECT DISTINCT storage_name, :notBefore, 0, CURRENT_TIMESTAMP FROM documents " +
+            "WHERE storage_name IN (:storageNames)",
+            nativeQuery = true)
+    int enqueue(@Param("storageNames") Collection<String> storageNames,
+                @Param("notBefore") ZonedDateTime notBefore);
+
+    /**
+     * 查询已到删除时间的对象
+     */
+    @Query("SELECT e FROM StorageGcEntry e WHERE e.notBefore <= :now ORDER BY e.notBefore, e.id")
+    List<StorageGcEntry> findDue(@Param("now") ZonedDateTime now, Pageable pageable);
+}
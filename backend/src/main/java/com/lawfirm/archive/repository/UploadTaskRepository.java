@@ -1,8 +1,13 @@
 package com.lawfirm.archive.repository;
 
 import com.lawfirm.archive.model.UploadTask;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.ZonedDateTime;
 import java.util.List;
@@ -10,9 +15,106 @@ import java.util.List;
 @Repository
 public interface UploadTaskRepository extends JpaRepository<UploadTask, String> {
     /**
-     * 查询过期的上传任务
+     * 按ID顺序分页查询过期的上传任务
+     * @param afterId 上一页最后一个任务ID，第一页传空字符串
      */
-    List<UploadTask> findByStatusInAndCreatedAtBefore(
-            List<UploadTask.UploadTaskStatus> statuses, 
-            ZonedDateTime createdAt);
+    @Query("SELECT t FROM UploadTask t WHERE t.status IN :statuses AND t.updatedAt < :before " +
+            "AND t.id > :afterId ORDER BY t.id")
+    List<UploadTask> findExpired(@Param("statuses") List<UploadTask.UploadTaskStatus> statuses,
+                                 @Param("before") ZonedDateTime before,
+                                 @Param("afterId") String afterId,
+                                 Pageable pageable);
+
+    /**
+     * 统计暂存中任务的文件大小总和：指定状态的任务，加上租约未过期的合并中任务
+     * 超过租约仍处于合并中的任务视为合并已中断，不计入，等待清理任务标记为失败
+     */
+    @Query("SELECT COALESCE(SUM(t.fileSize), 0) FROM UploadTask t WHERE t.status IN :statuses " +
+            "OR (t.status = com.lawfirm.archive.model.UploadTask.UploadTaskStatus.MERGING " +
+            "AND t.updatedAt >= :leaseStart)")
+    long sumStagedFileSize(@Param("statuses") List<UploadTask.UploadTaskStatus> statuses,
+                           @Param("leaseStart") ZonedDateTime leaseStart);
+
+    /**
+     * 批量删除仍处于过期状态的任务，查询之后重新变为活动状态的任务不会被删除
+     * @param statuses 任务状态名称
+     * @return 实际删除的任务ID
+     */
+    @Transactional
+    @Query(value = "DELETE FROM upload_tasks WHERE id IN (:ids) AND status IN (:statuses) " +
+            "AND updated_at < :before RETURNING id",
+            nativeQuery = true)
+    List<String> deleteExpired(@Param("ids") List<String> ids,
+                               @Param("statuses") List<String> statuses,
+                               @Param("before") ZonedDateTime before);
+
+    /**
+     * 将超过租约时间没有进展的合并中任务标记为失败，合并进展时会更新 updated_at
+     * 执行合并的节点崩溃、重启或合并任务未能执行时，任务由此退出合并中状态，之后按失败任务过期清理
+     * @return 标记为失败的任务的存储对象名称
+     */
+    @Transactional
+    @Query(value = "UPDATE upload_tasks SET status = 'FAILED', updated_at = CURRENT_TIMESTAMP " +
+            "WHERE status = 'MERGING' AND updated_at < :before RETURNING storage_name",
+            nativeQuery = true)
+    List<String> failStaleMerges(@Param("before") ZonedDateTime before);
+
+    boolean existsByUploadId(String uploadId);
+
+    /**
+     * 在分片位图中标记分片已上传，首次标记时累加已上传数量，全部到齐时任务切换为完成
+     * 单条语句在行锁内完成，并发上传同一任务的多个分片不会丢失更新
+     * @param index 分片下标（从0开始）
+     * @return 更新行数，任务状态不允许上传时为0
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE upload_tasks SET " +
+            "chunk_bitmap = set_bit(chunk_bitmap, :index, 1), " +
+            "uploaded_chunks = uploaded_chunks + 1 - get_bit(chunk_bitmap, :index), " +
+            "status = CASE WHEN uploaded_chunks + 1 - get_bit(chunk_bitmap, :index) >= total_chunks " +
+            "THEN 'COMPLETED' ELSE 'IN_PROGRESS' END, " +
+            "updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND status IN ('INITIALIZED', 'IN_PROGRESS')",
+            nativeQuery = true)
+    int markChunkUploaded(@Param("id") String id, @Param("index") int index);
+
+    @Query("SELECT t.uploadedChunks FROM UploadTask t WHERE t.id = :id")
+    Integer findUploadedChunksById(@Param("id") String id);
+
+    /**
+     * 按当前状态条件更新任务状态，返回更新行数
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadTask t SET t.status = :to, t.updatedAt = :now WHERE t.id = :id AND t.status = :from")
+    int updateStatus(@Param("id") String id,
+                     @Param("from") UploadTask.UploadTaskStatus from,
+                     @Param("to") UploadTask.UploadTaskStatus to,
+                     @Param("now") ZonedDateTime now);
+
+    /**
+     * 合并完成：仅当任务仍在合并中时切换为已合并并记录文档，合并期间被取消或判定中断的任务返回0
+     */
+    @Modifying
+    @Query("UPDATE UploadTask t SET t.status = com.lawfirm.archive.model.UploadTask.UploadTaskStatus.MERGED, " +
+            "t.documentId = :documentId, t.processedBytes = :processedBytes, t.contentHash = :contentHash, " +
+            "t.storageName = :storageName, t.updatedAt = :now " +
+            "WHERE t.id = :id AND t.status = com.lawfirm.archive.model.UploadTask.UploadTaskStatus.MERGING")
+    int markMerged(@Param("id") String id,
+                   @Param("documentId") Long documentId,
+                   @Param("processedBytes") long processedBytes,
+                   @Param("contentHash") String contentHash,
+                   @Param("storageName") String storageName,
+                   @Param("now") ZonedDateTime now);
+
+    /**
+     * 更新合并进度
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadTask t SET t.processedBytes = :bytes, t.updatedAt = :now WHERE t.id = :id")
+    int updateProcessedBytes(@Param("id") String id,
+                             @Param("bytes") long bytes,
+                             @Param("now") ZonedDateTime now);
 } 
\ No newline at end of file
@@ -0,0 +1,158 @@
+package com.lawfirm.archive.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lawfirm.archive.dto.CategoryTreeNodeDto;
+import com.lawfirm.archive.exception.ResourceNotFoundException;
+import com.lawfirm.archive.model.Category;
+import com.lawfirm.archive.repository.CaseRepository;
+import com.lawfirm.archive.repository.CategoryRepository;
+import com.lawfirm.archive.repository.CategoryRepository.CategoryTreeRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分类管理与分类树
+ * 分类树由一条递归查询和一条案件数聚合查询构建，缓存在本节点；分类增删改时失效，
+ * 案件增删改时也失效以更新案件数；其他节点的修改在缓存过期后可见
+ */
+@Service
+@Slf4j
+public class CategoryService {
+    private static final String TREE_KEY = "tree";
+
+    private final CategoryRepository categoryRepository;
+
+    private final CaseRepository caseRepository;
+
+    private final Cache<String, List<CategoryTreeNodeDto>> treeCache;
+
+    public CategoryService(CategoryRepository categoryRepository, CaseRepository caseRepository,
+                           @Value("${app.category.tree-cache-seconds:300}") long treeCacheSeconds) {
+        this.categoryRepository = categoryRepository;
+        this.caseRepository = caseRepository;
+        this.treeCache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(treeCacheSeconds))
+                .build();
+    }
+
+    public List<Category> findAll() {
+        return categoryRepository.findAll();
+    }
+
+    public Category findById(Long id) {
+        return categoryRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Category", "id", id));
+    }
+
+    /**
+     * 分类树，顶级分类按名称排序，各节点附带案件数
+     */
+    public List<CategoryTreeNodeDto> getTree() {
+        return treeCache.get(TREE_KEY, key -> loadTree());
+    }
+
+    public Category create(Category category) {
+        category.setId(null);
+        checkParent(null, category.getParentId());
+        Category saved = categoryRepository.save(category);
+        invalidateTree();
+        return saved;
+    }
+
+    public Category update(Long id, Category category) {
+        if (!categoryRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Category", "id", id);
+        }
+        category.setId(id);
+        checkParent(id, category.getParentId());
+        Category saved = categoryRepository.save(category);
+        invalidateTree();
+        return saved;
+    }
+
+    public void delete(Long id) {
+        categoryRepository.deleteById(id);
+        invalidateTree();
+    }
+
+    /**
+     * 使分类树缓存失效，分类或案件的分类变化后调用
+     */
+    public void invalidateTree() {
+        treeCache.invalidate(TREE_KEY);
+    }
+
+    /**
+     * 上级分类必须存在，且不能是分类自身或其子分类
+     */
+    private void checkParent(Long id, Long parentId) {
+        if (parentId == null) {
+            return;
+        }
+        if (!categoryRepository.existsById(parentId)) {
+            throw new ResourceNotFoundException("Category", "id", parentId);
+        }
+        if (id == null) {
+            return;
+        }
+        Map<Long, Long> parents = new HashMap<>();
+        for (CategoryTreeRow row : categoryRepository.findTree()) {
+            parents.put(row.getId(), row.getParentId());
+        }
+        for (Long current = parentId; current != null; current = parents.get(current)) {
+            if (current.equals(id)) {
+                throw new IllegalArgumentException("上级分类不能是分类自身或其子分类");
+            }
+        }
+    }
+
+    private List<CategoryTreeNodeDto> loadTree() {
+        Map<Long, Long> caseCounts = new HashMap<>();
+        for (CaseRepository.CategoryCaseCount count : caseRepository.countByCategory()) {
+            caseCounts.put(count.getCategoryId(), count.getCaseCount());
+        }
+
+        // 父分类排在子分类之前，子分类的父节点总已创建
+        List<CategoryTreeRow> rows = categoryRepository.findTree();
+        Map<Long, CategoryTreeNodeDto> nodes = new HashMap<>();
+        List<CategoryTreeNodeDto> roots = new ArrayList<>();
+        List<CategoryTreeNodeDto> ordered = new ArrayList<>(rows.size());
+        for (CategoryTreeRow row : rows) {
+            long caseCount = caseCounts.getOrDefault(row.getId(), 0L);
+            CategoryTreeNodeDto node = CategoryTreeNodeDto.builder()
+                    .id(row.getId())
+                    .name(row.getName())
+                    .parentId(row.getParentId())
+                    .caseCount(caseCount)
+                    .totalCaseCount(caseCount)
+                    .build();
+            nodes.put(node.getId(), node);
+            ordered.add(node);
+            CategoryTreeNodeDto parent = row.getParentId() == null ? null : nodes.get(row.getParentId());
+            if (parent == null) {
+                roots.add(node);
+            } else {
+                parent.getChildren().add(node);
+            }
+        }
+
+        // 逆序累加，子分类的合计在父分类之前完成
+        for (int i = ordered.size() - 1; i >= 0; i--) {
+            CategoryTreeNodeDto node = ordered.get(i);
+            CategoryTreeNodeDto parent = node.getParentId() == null ? null : nodes.get(node.getParentId());
+            if (parent != null) {
+                parent.setTotalCaseCount(parent.getTotalCaseCount() + node.getTotalCaseCount());
+            }
+        }
+        log.debug("分类树已加载: {} 个分类", ordered.size());
+        return List.copyOf(roots);
+    }
+}
@@ -0,0 +1,52 @@
+package com.lawfirm.archive.service;
+
+import com.lawfirm.archive.dto.UploadCleanupResult;
+import com.lawfirm.archive.model.UploadTask;
+
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.time.ZonedDateTime;
+import java.util.function.LongConsumer;
+
+/**
+ * 分片暂存
+ * 决定分片在合并前存放的位置；暂存在共享存储上时，任意节点都可以接收分片和完成合并
+ */
+public interface ChunkStaging {
+    /**
+     * 当前存储后端下是否可用
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * 为上传任务创建暂存区
+     * @return 需要记录在任务上的暂存标识（MinIO分片上传ID），没有时为null
+     */
+    String create(UploadTask task) throws Exception;
+
+    /**
+     * 写入一个分片，同一分片重复写入时覆盖
+     * @param data 分片数据流，由调用方负责关闭
+     */
+    void writeChunk(UploadTask task, int chunkNumber, InputStream data, long size) throws Exception;
+
+    /**
+     * 将所有分片组装为存储中的最终对象，完成后暂存区即被释放
+     * @param digest 不为null时，将完整文件内容依次写入该摘要
+     * @param progress 已处理字节数的回调
+     */
+    void complete(UploadTask task, MessageDigest digest, LongConsumer progress) throws Exception;
+
+    /**
+     * 丢弃暂存的分片
+     * @return 回收的字节数
+     */
+    long discard(UploadTask task);
+
+    /**
+     * 清理早于指定时间创建、且已没有对应上传任务的暂存数据
+     */
+    void sweepOrphans(ZonedDateTime before, UploadCleanupResult result) throws Exception;
+}
@@ -2,28 +2,39 @@ package com.lawfirm.archive.service;
 
 import com.lawfirm.archive.dto.ChunkDTO;
 import com.lawfirm.archive.dto.ChunkResponse;
-import com.lawfirm.archive.model.Document;
+import com.lawfirm.archive.dto.UploadCleanupResult;
 import com.lawfirm.archive.model.UploadTask;
 
+import java.io.InputStream;
+
 /**
  * 分片上传服务接口
  */
 public interface ChunkedUploadService {
     /**
      * 初始化上传任务
+     * 提供文件哈希且服务端已有相同内容时，直接创建文档并返回已合并的任务
      */
     UploadTask initUpload(String fileName, Long fileSize, String fileType, Long caseId, 
-                          String category, String remarks);
+                          String category, String remarks, String contentHash);
     
     /**
      * 处理上传分片
      */
     ChunkResponse processChunk(ChunkDTO chunkDTO) throws Exception;
     
+    /**
+     * 处理上传分片，分片数据直接从请求体读取，不经过multipart解析
+     * @param data 分片数据流，由调用方负责关闭
+     * @param size 分片字节数
+     */
+    ChunkResponse processChunk(ChunkDTO chunkDTO, InputStream data, long size) throws Exception;
+    
     /**
      * 合并分片
+     * 仅将任务切换为合并中并提交后台执行，通过任务状态查询进度与结果
      */
-    Document mergeChunks(String taskId);
+    UploadTask mergeChunks(String taskId);
     
     /**
      * 获取上传任务状态
@@ -36,7 +47,8 @@ public interface ChunkedUploadService {
     void cancelUpload(String taskId);
     
     /**
-     * 清理过期的上传任务
+     * 清理过期的上传任务及无主的暂存数据
+     * 多实例部署时同一时间只有一个实例执行
      */
-    void cleanupExpiredTasks();
+    UploadCleanupResult cleanupExpiredTasks();
 } 
\ No newline at end of file
@@ -7,6 +7,8 @@ import com.lawfirm.archive.repository.DocumentRepository;
 import io.minio.BucketExistsArgs;
 import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.messages.Item;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -19,17 +21,23 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.regex.Pattern;
 
 @Service
 @Slf4j
 public class DataMigrationService {
     private static final String UPLOAD_DIR = "uploads";
 
+    /**
+     * 旧版本分片上传以独立对象保存的分片：{存储名称}.part.{序号}
+     */
+    private static final Pattern LEGACY_PART_PATTERN = Pattern.compile(".+\\.part\\.\\d+");
+
     @Autowired
     private DocumentRepository documentRepository;
 
     @Autowired
-    private MinioService minioService;
+    private StorageBackend storageBackend;
     
     @Autowired
     private MinioClient minioClient;
@@ -37,6 +45,9 @@ public class DataMigrationService {
     @Autowired
     private MinioConfig minioConfig;
 
+    @Autowired
+    private MinioService minioService;
+
     /**
      * 迁移文件到MinIO
      */
@@ -62,7 +73,7 @@ public class DataMigrationService {
                         doc.setStorageName(storageName);
                     }
                     
-                    minioService.uploadFile(fis, storageName, file.length(), doc.getFileType());
+                    storageBackend.put(storageName, fis, file.length(), doc.getFileType());
                     documentRepository.save(doc);
                     
                     // 删除本地文件
@@ -80,6 +91,28 @@ public class DataMigrationService {
         log.info("文件迁移完成");
     }
     
+    /**
+     * 清理旧版本分片上传遗留在存储桶中的分片对象
+     * 当前版本不再写入此类对象，升级后执行一次即可；需要列出整个存储桶，不放在定时清理中
+     * @return 删除的对象数
+     */
+    public int cleanupLegacyChunkObjects() throws Exception {
+        int deleted = 0;
+        long bytes = 0;
+        for (Result<Item> listed : minioService.listObjects(null)) {
+            Item item = listed.get();
+            if (LEGACY_PART_PATTERN.matcher(item.objectName()).matches()
+                    && !documentRepository.existsByStorageName(item.objectName())) {
+                minioService.deleteFile(item.objectName());
+                deleted++;
+                bytes += item.size();
+                log.info("清理旧版分片对象: {}, {} bytes", item.objectName(), item.size());
+            }
+        }
+        log.info("旧版分片对象清理完成: {} 个, {} bytes", deleted, bytes);
+        return deleted;
+    }
+
     /**
      * 检查MinIO连接状态并确保bucket存在
      */
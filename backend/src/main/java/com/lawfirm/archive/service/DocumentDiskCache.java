@@ -0,0 +1,315 @@
+package com.lawfirm.archive.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.lawfirm.archive.service.impl.LocalStorageBackend;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点文档的本地磁盘缓存，位于存储后端的读取路径之前
+ * 按总字节数限制容量，由Caffeine按W-TinyLFU淘汰；同一对象的并发未命中只从存储后端读取一次
+ * 范围读取未命中时直接从存储后端输出，对象在后台读入缓存，首字节不必等待整个对象读完
+ * 对象名不会被复用（UUID或内容哈希），其他节点删除对象后本节点的缓存最多占用空间直到被淘汰
+ */
+@Service
+@Slf4j
+public class DocumentDiskCache {
+
+    private final StorageBackend storageBackend;
+
+    private final StorageReadCoalescer storageReadCoalescer;
+
+    private final ExecutorService cacheFillExecutor;
+
+    private final Path cacheDir;
+
+    private final long maxObjectBytes;
+
+    private final boolean enabled;
+
+    private final Cache<String, CachedFile> index;
+
+    /**
+     * 正在从存储后端读取的对象
+     */
+    private final ConcurrentMap<String, CompletableFuture<CachedFile>> loading = new ConcurrentHashMap<>();
+
+    private final AtomicLong cachedBytes = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder bytesSaved = new LongAdder();
+
+    public DocumentDiskCache(StorageBackend storageBackend, StorageReadCoalescer storageReadCoalescer,
+                             MeterRegistry meterRegistry,
+                             @Qualifier("documentCacheFillExecutor") ExecutorService cacheFillExecutor,
+                             @Value("${app.storage.cache.enabled:true}") boolean enabled,
+                             @Value("${app.storage.cache.dir:cache}") String cacheDir,
+                             @Value("${app.storage.cache.max-bytes:10737418240}") long maxBytes,
+                             @Value("${app.storage.cache.max-object-bytes:268435456}") long maxObjectBytes)
+            throws IOException {
+        this.storageBackend = storageBackend;
+        this.storageReadCoalescer = storageReadCoalescer;
+        this.cacheFillExecutor = cacheFillExecutor;
+        this.cacheDir = Paths.get(cacheDir).toAbsolutePath().normalize();
+        this.maxObjectBytes = maxObjectBytes;
+        // 本地存储后端本身就是磁盘文件，无需再缓存
+        this.enabled = enabled && maxBytes > 0 && !(storageBackend instanceof LocalStorageBackend);
+        // 按KB计算权重，避免大文件超出int范围
+        this.index = Caffeine.newBuilder()
+                .maximumWeight(Math.max(1, maxBytes / 1024))
+                .<String, CachedFile>weigher((name, file) -> (int) Math.min(Integer.MAX_VALUE, file.size / 1024 + 1))
+                .executor(Runnable::run)
+                .removalListener((String name, CachedFile file, RemovalCause cause) -> {
+                    if (file != null) {
+                        file.release();
+                    }
+                })
+                .build();
+
+        if (this.enabled) {
+            // 重启前的缓存文件未登记在索引中，直接清空
+            Files.createDirectories(this.cacheDir);
+            FileUtils.cleanDirectory(this.cacheDir.toFile());
+        }
+
+        FunctionCounter.builder("document.cache.requests", hits, LongAdder::doubleValue)
+                .tag("result", "hit").description("命中缓存的文档读取次数").register(meterRegistry);
+        FunctionCounter.builder("document.cache.requests", misses, LongAdder::doubleValue)
+                .tag("result", "miss").description("从存储后端读取的文档次数").register(meterRegistry);
+        FunctionCounter.builder("document.cache.bytes.saved", bytesSaved, LongAdder::doubleValue)
+                .baseUnit("bytes").description("由缓存输出、未从存储后端读取的字节数").register(meterRegistry);
+        Gauge.builder("document.cache.hit.ratio", this, DocumentDiskCache::hitRatio)
+                .description("缓存命中率").register(meterRegistry);
+        Gauge.builder("document.cache.size", cachedBytes, AtomicLong::doubleValue)
+                .baseUnit("bytes").description("缓存文件占用的字节数").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 将对象的指定范围写入输出流，不关闭输出流
+     * 命中时从缓存文件输出；完整读取未命中时先读入缓存再输出，同一对象的并发读取共享这次读取
+     * 范围读取未命中时直接从存储后端输出并在后台读入缓存，PDF阅读器跳页等请求不必等待整个对象
+     * 超过单对象上限或大小未知的对象不缓存，经合并读取从存储后端读取
+     * @param objectSize 对象大小，未知时为null
+     */
+    public void transferTo(String name, Long objectSize, long offset, long length, OutputStream out) throws Exception {
+        if (!enabled || objectSize == null || objectSize > maxObjectBytes) {
+            storageReadCoalescer.transferTo(name, objectSize, offset, length, out);
+            return;
+        }
+
+        boolean fullRead = offset == 0 && length == objectSize;
+        Lookup lookup = fullRead ? lookup(name) : retainCached(name);
+        if (lookup == null) {
+            if (!fullRead) {
+                misses.increment();
+                fillInBackground(name);
+            }
+            // 范围读取未命中，或合并读取的结果已被淘汰或失效
+            storageReadCoalescer.transferTo(name, objectSize, offset, length, out);
+            return;
+        }
+        if (lookup.hit()) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        try (FileChannel channel = FileChannel.open(lookup.file().path, StandardOpenOption.READ)) {
+            LocalStorageBackend.transferFile(channel, offset, length, out);
+        } finally {
+            lookup.file().release();
+        }
+        if (lookup.hit()) {
+            bytesSaved.add(length);
+        }
+    }
+
+    /**
+     * 使对象的缓存失效，对象删除后调用
+     */
+    public void invalidate(String name) {
+        if (!enabled) {
+            return;
+        }
+        // 正在读取的对象读取完成后不再登记
+        loading.remove(name);
+        index.invalidate(name);
+    }
+
+    /**
+     * 已在缓存中时持有一个引用，否则返回null，不等待正在进行的读取
+     */
+    private Lookup retainCached(String name) {
+        CachedFile cached = index.getIfPresent(name);
+        return cached != null && cached.retain() ? new Lookup(cached, true) : null;
+    }
+
+    /**
+     * 在后台将对象读入缓存；已在读取或线程池队列已满时跳过，之后的未命中会再次尝试
+     */
+    private void fillInBackground(String name) {
+        if (loading.containsKey(name)) {
+            return;
+        }
+        try {
+            cacheFillExecutor.execute(() -> {
+                try {
+                    Lookup lookup = lookup(name);
+                    if (lookup != null) {
+                        lookup.file().release();
+                    }
+                } catch (Exception e) {
+                    log.warn("后台缓存文档失败: {}", name, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("缓存填充队列已满，跳过: {}", name);
+        }
+    }
+
+    /**
+     * 查找缓存文件并持有一个引用，未命中时从存储后端读入
+     * 同一对象的并发未命中等待同一次读取的结果，只有发起读取的请求的结果标记为未命中
+     * @return 等待的读取结果已被删除时为null
+     */
+    private Lookup lookup(String name) throws Exception {
+        Lookup cachedLookup = retainCached(name);
+        if (cachedLookup != null) {
+            return cachedLookup;
+        }
+
+        CompletableFuture<CachedFile> created = new CompletableFuture<>();
+        CompletableFuture<CachedFile> existing = loading.putIfAbsent(name, created);
+        if (existing != null) {
+            CachedFile shared;
+            try {
+                shared = existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+            if (!shared.retain()) {
+                return null;
+            }
+            return new Lookup(shared, true);
+        }
+
+        try {
+            // 登记读取之前，其他请求可能刚完成读取
+            CachedFile cached = index.getIfPresent(name);
+            boolean hit = cached != null && cached.retain();
+            if (!hit) {
+                cached = fetch(name);
+                cached.retain();
+                if (loading.get(name) == created) {
+                    index.put(name, cached);
+                } else {
+                    // 读取期间对象已被删除，不再登记，本次读取结束后删除
+                    cached.release();
+                }
+            }
+            created.complete(cached);
+            return new Lookup(cached, hit);
+        } catch (Exception e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(name, created);
+        }
+    }
+
+    private CachedFile fetch(String name) throws Exception {
+        Path path = cacheDir.resolve(UUID.randomUUID().toString());
+        try (InputStream is = storageBackend.get(name)) {
+            Files.copy(is, path);
+        } catch (Exception e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        long size = Files.size(path);
+        cachedBytes.addAndGet(size);
+        log.debug("文档已缓存: {}, {} bytes", name, size);
+        return new CachedFile(path, size);
+    }
+
+    private double hitRatio() {
+        long total = hits.sum() + misses.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+
+    /**
+     * 缓存文件，按引用计数删除：索引持有一个引用，每个正在输出的请求各持有一个引用
+     * 被淘汰或失效的文件在最后一个请求输出结束后才删除
+     */
+    private final class CachedFile {
+        private final Path path;
+        private final long size;
+        private final AtomicInteger refs = new AtomicInteger(1);
+
+        private CachedFile(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+
+        /**
+         * 增加引用，文件已删除时返回false
+         */
+        private boolean retain() {
+            int current;
+            do {
+                current = refs.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!refs.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private void release() {
+            if (refs.decrementAndGet() > 0) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(path);
+                cachedBytes.addAndGet(-size);
+            } catch (IOException e) {
+                log.error("删除缓存文件失败: {}", path, e);
+            }
+        }
+    }
+
+    private record Lookup(CachedFile file, boolean hit) {
+    }
+}
@@ -0,0 +1,145 @@
+package com.lawfirm.archive.service;
+
+import com.lawfirm.archive.model.Document;
+import com.lawfirm.archive.model.DocumentText;
+import com.lawfirm.archive.repository.DocumentRepository;
+import com.lawfirm.archive.repository.DocumentTextRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 文档全文索引的后台任务
+ * 新增文档时由数据库触发器登记到 document_texts，本任务定期领取待处理记录交给有界线程池提取文本，
+ * 上传与分片合并不等待索引；线程池队列已满时本轮少领取或不领取，未领取的记录留在表中等待下一轮
+ * 领取带租约，处理中的实例异常退出后记录在租约到期后被重新领取
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentIndexService {
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final DocumentTextRepository documentTextRepository;
+    private final DocumentRepository documentRepository;
+    private final StorageBackend storageBackend;
+    private final TextExtractor textExtractor;
+    @Qualifier("documentIndexExecutor")
+    private final ThreadPoolExecutor documentIndexExecutor;
+
+    @Value("${app.search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.index.batch-size:20}")
+    private int batchSize;
+
+    @Value("${app.search.index.lease-minutes:30}")
+    private long leaseMinutes;
+
+    @Value("${app.search.index.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.search.index.max-file-bytes:104857600}")
+    private long maxFileBytes;
+
+    @Value("${app.search.index.max-chars:100000}")
+    private int maxChars;
+
+    /**
+     * 领取待处理的文档并提交到线程池
+     */
+    @Scheduled(fixedDelayString = "${app.search.index.poll-interval:5000}")
+    public void indexPending() {
+        if (!enabled) {
+            return;
+        }
+        int capacity = Math.min(batchSize, documentIndexExecutor.getQueue().remainingCapacity());
+        if (capacity <= 0) {
+            return;
+        }
+        try {
+            ZonedDateTime now = ZonedDateTime.now();
+            List<Long> claimed = documentTextRepository.claim(now, now.plusMinutes(leaseMinutes), capacity);
+            for (Long documentId : claimed) {
+                documentIndexExecutor.execute(() -> index(documentId));
+            }
+        } catch (Exception e) {
+            log.error("领取待索引文档失败", e);
+        }
+    }
+
+    /**
+     * 提取一个文档的文本并建立索引，失败时按指数退避重试，达到最大次数后不再处理
+     */
+    void index(Long documentId) {
+        DocumentText documentText = documentTextRepository.findById(documentId).orElse(null);
+        if (documentText == null) {
+            return;
+        }
+        Document doc = documentRepository.findById(documentId).orElse(null);
+        if (doc == null) {
+            // 文档已删除，记录随文档清除
+            documentTextRepository.saveIndex(documentId, DocumentText.STATUS_SKIPPED, null, "", "");
+            return;
+        }
+
+        try {
+            String content = extract(doc);
+            documentTextRepository.saveIndex(documentId,
+                    content == null ? DocumentText.STATUS_SKIPPED : DocumentText.STATUS_INDEXED,
+                    content,
+                    SearchTokenizer.tokenize(doc.getFileName()),
+                    content == null ? "" : SearchTokenizer.tokenize(content));
+            log.debug("文档已索引: {}, {} 字符", documentId, content == null ? 0 : content.length());
+        } catch (Exception e) {
+            int attempts = documentText.getAttempts() + 1;
+            boolean exhausted = attempts >= maxAttempts;
+            String error = String.valueOf(e.getMessage());
+            log.warn("文档索引失败: {}, 第{}次, {}", documentId, attempts, error);
+            documentTextRepository.markFailed(documentId,
+                    exhausted ? DocumentText.STATUS_FAILED : DocumentText.STATUS_PENDING,
+                    error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error,
+                    exhausted ? null : ZonedDateTime.now().plus(backoff(attempts)));
+        }
+    }
+
+    /**
+     * 下载文档并提取文本
+     * @return 文本，文件类型不支持或文件过大时为null
+     */
+    private String extract(Document doc) throws Exception {
+        if (!textExtractor.supports(doc.getFileName(), doc.getFileType())
+                || (doc.getFileSize() != null && doc.getFileSize() > maxFileBytes)) {
+            return null;
+        }
+        // 解析PDF、DOCX需要随机读取，先下载到临时文件
+        Path temp = Files.createTempFile("document-index-", ".tmp");
+        try {
+            try (InputStream is = storageBackend.get(doc.getStorageName())) {
+                Files.copy(is, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return textExtractor.extract(temp, doc.getFileName(), doc.getFileType(), maxChars);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 第n次失败后的重试间隔：1、2、4…分钟
+     */
+    private static Duration backoff(int attempts) {
+        return Duration.ofMinutes(1L << Math.min(attempts - 1, 10));
+    }
+}
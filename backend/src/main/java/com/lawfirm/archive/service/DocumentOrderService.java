@@ -0,0 +1,164 @@
+package com.lawfirm.archive.service;
+
+import com.lawfirm.archive.exception.ResourceNotFoundException;
+import com.lawfirm.archive.model.Document;
+import com.lawfirm.archive.repository.CaseRepository;
+import com.lawfirm.archive.repository.DocumentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 案件内文档的排序
+ * 相邻文档的排序值之间留有间隔，新文档以 {@link DocumentRepository#nextSortOrder} 追加在末尾，移动文档时取前后两个文档排序值的中间值，只更新被移动的一行
+ * 间隔用尽时在本次移动中重新编号；间隔较小时登记案件，由后台提前重新编号
+ * 同一案件的移动与重新编号通过锁定案件行串行执行
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentOrderService {
+    /**
+     * 重新编号后相邻文档排序值的间隔
+     */
+    public static final int GAP = 1024;
+
+    private static final String REBALANCE_LOCK = "document-order-rebalance";
+
+    private final DocumentRepository documentRepository;
+    private final CaseRepository caseRepository;
+    private final SchedulerLockService schedulerLockService;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 移动后两侧间隔小于该值时登记案件等待后台重新编号
+     */
+    @Value("${app.document.order.min-gap:16}")
+    private int minGap;
+
+    @Value("${app.document.order.rebalance-batch-size:100}")
+    private int rebalanceBatchSize;
+
+    @Value("${app.document.order.lock-minutes:10}")
+    private long lockMinutes;
+
+    /**
+     * 将文档移动到同一案件的另一文档之前或之后
+     * @param before true时移到目标文档之前，否则移到之后
+     */
+    @Transactional
+    public Document move(Long id, Long targetId, boolean before) {
+        if (Objects.equals(id, targetId)) {
+            throw new IllegalArgumentException("不能相对文档自身移动");
+        }
+        // 加锁前读取的实体只用于确定案件，不写回，避免覆盖其他事务对备注、分类等字段的修改
+        Document doc = documentRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Document", "id", id));
+        caseRepository.lockById(doc.getCaseId());
+
+        Integer position = place(doc, targetId, before);
+        if (position == null) {
+            // 目标位置两侧没有可用的间隔，重新编号后必有间隔
+            documentRepository.renumberSortOrders(doc.getCaseId(), GAP);
+            documentRepository.deleteSortRebalanceRequest(doc.getCaseId());
+            position = place(doc, targetId, before);
+            if (position == null) {
+                throw new IllegalStateException("重新编号后仍无法确定文档位置: " + id);
+            }
+        }
+
+        if (documentRepository.updateSortOrder(id, position, ZonedDateTime.now()) == 0) {
+            throw new ResourceNotFoundException("Document", "id", id);
+        }
+        return documentRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Document", "id", id));
+    }
+
+    /**
+     * 计算文档在目标文档之前或之后的排序值
+     * 登记间隔即将用尽的案件；没有可用间隔时返回null
+     */
+    private Integer place(Document doc, Long targetId, boolean before) {
+        Long caseId = doc.getCaseId();
+        Integer target = documentRepository.findSortOrder(caseId, targetId);
+        if (target == null) {
+            throw new IllegalArgumentException("目标文档不存在或不属于同一案件: " + targetId);
+        }
+
+        long lower;
+        long upper;
+        if (before) {
+            Integer previous = documentRepository.findPreviousSortOrder(caseId, target, targetId, doc.getId());
+            lower = previous != null ? previous : (long) target - 2 * GAP;
+            upper = target;
+        } else {
+            Integer next = documentRepository.findNextSortOrder(caseId, target, targetId, doc.getId());
+            lower = target;
+            upper = next != null ? next : (long) target + 2 * GAP;
+        }
+        // 排在最前或最后时与相邻文档间隔GAP，超出int范围时视为没有间隔
+        lower = Math.max(lower, Integer.MIN_VALUE);
+        upper = Math.min(upper, Integer.MAX_VALUE);
+        if (upper - lower < 2) {
+            return null;
+        }
+        if (upper - lower < 2L * minGap) {
+            documentRepository.requestSortRebalance(caseId);
+        }
+        return (int) (lower + (upper - lower) / 2);
+    }
+
+    /**
+     * 重新编号登记的案件
+     */
+    @Scheduled(fixedDelayString = "${app.document.order.rebalance-interval:60000}")
+    public void rebalancePending() {
+        if (!schedulerLockService.tryLock(REBALANCE_LOCK, Duration.ofMinutes(lockMinutes))) {
+            log.debug("其他实例正在重新编号文档排序，跳过本次执行");
+            return;
+        }
+        try {
+            int rebalanced = 0;
+            int renumbered = 0;
+            List<Long> caseIds;
+            do {
+                caseIds = documentRepository.findSortRebalanceRequests(rebalanceBatchSize);
+                for (Long caseId : caseIds) {
+                    renumbered += rebalance(caseId);
+                    rebalanced++;
+                }
+            } while (caseIds.size() == rebalanceBatchSize);
+
+            if (rebalanced > 0) {
+                log.info("文档排序重新编号完成: 案件 {} 个, 更新文档 {} 个", rebalanced, renumbered);
+            }
+        } catch (Exception e) {
+            log.error("文档排序重新编号失败", e);
+        } finally {
+            schedulerLockService.unlock(REBALANCE_LOCK);
+        }
+    }
+
+    /**
+     * 在单独的事务中锁定案件并重新编号
+     * @return 排序值变化的文档数
+     */
+    private int rebalance(Long caseId) {
+        Integer renumbered = transactionTemplate.execute(status -> {
+            caseRepository.lockById(caseId);
+            int updated = documentRepository.renumberSortOrders(caseId, GAP);
+            documentRepository.deleteSortRebalanceRequest(caseId);
+            return updated;
+        });
+        return renumbered == null ? 0 : renumbered;
+    }
+}
@@ -0,0 +1,50 @@
+package com.lawfirm.archive.service;
+
+import com.lawfirm.archive.dto.DocumentSearchHitDto;
+import com.lawfirm.archive.repository.DocumentTextRepository;
+import com.lawfirm.archive.repository.DocumentTextRepository.DocumentSearchRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 文档全文检索
+ */
+@Service
+@RequiredArgsConstructor
+public class DocumentSearchService {
+    private final DocumentTextRepository documentTextRepository;
+
+    @Value("${app.search.snippet-length:200}")
+    private int snippetLength;
+
+    /**
+     * 按相关度检索文档内容与文件名
+     * @param caseId 只检索指定案件，为null时检索全部案件
+     */
+    public Page<DocumentSearchHitDto> search(String query, Long caseId, Pageable pageable) {
+        List<String> tokens = SearchTokenizer.tokens(query);
+        // 结果按相关度排序，忽略请求中的排序参数
+        Pageable page = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        if (tokens.isEmpty()) {
+            return Page.empty(page);
+        }
+        Page<DocumentSearchRow> rows = documentTextRepository.search(String.join(" ", tokens), tokens.get(0),
+                caseId, snippetLength / 3, snippetLength, page);
+        return rows.map(row -> DocumentSearchHitDto.builder()
+                .documentId(row.getDocumentId())
+                .caseId(row.getCaseId())
+                .fileName(row.getFileName())
+                .fileType(row.getFileType())
+                .category(row.getCategory())
+                .rank(row.getRank() == null ? 0 : row.getRank())
+                .snippet(row.getSnippet() == null ? ""
+                        : SearchTokenizer.highlight(row.getSnippet().replaceAll("\\s+", " ").trim(), tokens))
+                .build());
+    }
+}
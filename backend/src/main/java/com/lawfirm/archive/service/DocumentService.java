@@ -1,27 +1,41 @@
 package com.lawfirm.archive.service;
 
+import com.lawfirm.archive.dto.BatchResultDto;
+import com.lawfirm.archive.dto.DocumentPageDto;
 import com.lawfirm.archive.model.Document;
 import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 public interface DocumentService {
     // 基本操作
     List<Document> getDocumentsByCase(Long caseId);
+    DocumentPageDto getDocumentPage(Long caseId, String category, String fileType,
+                                    LocalDate uploadedFrom, LocalDate uploadedTo,
+                                    Integer afterSortOrder, Long afterId, int limit);
     Document uploadDocument(MultipartFile file, Long caseId, String category, String remarks) throws Exception;
-    byte[] downloadDocument(Long id) throws Exception;
+    Document getDocument(Long id);
     void deleteDocument(Long id) throws Exception;
     
     // 批量操作
-    byte[] batchDownloadDocuments(List<Long> ids) throws Exception;
-    void batchUpdateRemarks(List<Long> ids, String remarks);
-    void batchUpdateCategory(List<Long> ids, String category);
+    List<Document> getDocuments(List<Long> ids);
+    void writeDocumentsZip(List<Document> documents, OutputStream out) throws IOException;
+    BatchResultDto batchUpdateRemarks(List<Long> ids, String remarks);
+    BatchResultDto batchUpdateCategory(List<Long> ids, String category);
+    BatchResultDto batchUpdateSortOrder(Long caseId, Map<Long, Integer> sortOrders);
     void batchDelete(List<Long> ids) throws Exception;
+    void deleteCase(Long caseId);
     
     // 文档属性更新
     Document updateSortOrder(Long id, Integer sortOrder);
     Document updateRemarks(Long id, String remarks);
     Document updateCategory(Long id, String category);
     
-    // 文档预览
-    byte[] previewDocument(Long id) throws Exception;
+    // 文档内容（下载与预览共用，流式输出）
+    long getContentLength(Document doc) throws Exception;
+    void writeDocument(Document doc, long offset, long length, OutputStream out) throws IOException;
 } 
\ No newline at end of file
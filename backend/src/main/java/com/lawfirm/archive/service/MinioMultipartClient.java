@@ -0,0 +1,130 @@
+package com.lawfirm.archive.service;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.ListMultipartUploadsResponse;
+import io.minio.ListPartsResponse;
+import io.minio.messages.Part;
+import io.minio.messages.Upload;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * S3分片上传客户端
+ * MinIO Java SDK 8.5.7 中分片上传相关的底层方法均为 protected，
+ * 这里通过继承 MinioAsyncClient 暴露出来，供 MinioService 使用
+ */
+public class MinioMultipartClient extends MinioAsyncClient {
+
+    /**
+     * 单次ListParts请求返回的最大分片数（S3限制）
+     */
+    private static final int LIST_PARTS_PAGE_SIZE = 1000;
+
+    public MinioMultipartClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    /**
+     * 创建分片上传，返回uploadId
+     */
+    public String createUpload(String bucket, String objectName, String contentType) throws Exception {
+        Multimap<String, String> headers = HashMultimap.create();
+        if (contentType != null) {
+            headers.put("Content-Type", contentType);
+        }
+        try {
+            return createMultipartUploadAsync(bucket, null, objectName, headers, null)
+                    .get().result().uploadId();
+        } catch (ExecutionException e) {
+            throwEncapsulatedException(e);
+            return null;
+        }
+    }
+
+    /**
+     * 上传单个分片，返回etag
+     */
+    public String uploadPart(String bucket, String objectName, String uploadId, int partNumber,
+                             InputStream data, long size) throws Exception {
+        try {
+            return uploadPartAsync(bucket, null, objectName, data, size, uploadId, partNumber, null, null)
+                    .get().etag();
+        } catch (ExecutionException e) {
+            throwEncapsulatedException(e);
+            return null;
+        }
+    }
+
+    /**
+     * 完成分片上传，由服务端合并所有分片
+     */
+    public void completeUpload(String bucket, String objectName, String uploadId, Part[] parts) throws Exception {
+        try {
+            completeMultipartUploadAsync(bucket, null, objectName, uploadId, parts, null, null).get();
+        } catch (ExecutionException e) {
+            throwEncapsulatedException(e);
+        }
+    }
+
+    /**
+     * 中止分片上传，服务端会丢弃已上传的分片
+     */
+    public void abortUpload(String bucket, String objectName, String uploadId) throws Exception {
+        try {
+            abortMultipartUploadAsync(bucket, null, objectName, uploadId, null, null).get();
+        } catch (ExecutionException e) {
+            throwEncapsulatedException(e);
+        }
+    }
+
+    /**
+     * 列出存储桶中未完成的分片上传（自动翻页）
+     */
+    public List<Upload> listUploads(String bucket) throws Exception {
+        List<Upload> uploads = new ArrayList<>();
+        String keyMarker = null;
+        String uploadIdMarker = null;
+        try {
+            while (true) {
+                ListMultipartUploadsResponse response = listMultipartUploadsAsync(bucket, null, null, null,
+                        keyMarker, LIST_PARTS_PAGE_SIZE, null, uploadIdMarker, null, null).get();
+                uploads.addAll(response.result().uploads());
+                if (!response.result().isTruncated()) {
+                    return uploads;
+                }
+                keyMarker = response.result().nextKeyMarker();
+                uploadIdMarker = response.result().nextUploadIdMarker();
+            }
+        } catch (ExecutionException e) {
+            throwEncapsulatedException(e);
+            return uploads;
+        }
+    }
+
+    /**
+     * 列出已上传的分片（自动翻页）
+     */
+    public List<Part> listParts(String bucket, String objectName, String uploadId) throws Exception {
+        List<Part> parts = new ArrayList<>();
+        int marker = 0;
+        try {
+            while (true) {
+                ListPartsResponse response = listPartsAsync(
+                        bucket, null, objectName, LIST_PARTS_PAGE_SIZE, marker, uploadId, null, null).get();
+                parts.addAll(response.result().partList());
+                if (!response.result().isTruncated()) {
+                    return parts;
+                }
+                marker = response.result().nextPartNumberMarker();
+            }
+        } catch (ExecutionException e) {
+            throwEncapsulatedException(e);
+            return parts;
+        }
+    }
+}
@@ -2,8 +2,11 @@ package com.lawfirm.archive.service;
 
 import io.minio.*;
 import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
 import io.minio.messages.Part;
+import io.minio.messages.Upload;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -11,9 +14,12 @@ import org.springframework.web.multipart.MultipartFile;
 import com.lawfirm.archive.config.MinioConfig;
 import com.lawfirm.archive.exception.StorageException;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
@@ -22,7 +28,23 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 @Slf4j
 public class MinioService {
+    /**
+     * S3分片上传的最小分片大小（最后一个分片除外）
+     */
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    /**
+     * S3分片上传允许的最大分片数
+     */
+    public static final int MAX_PARTS = 10000;
+
+    /**
+     * S3单次批量删除请求允许的最大对象数
+     */
+    public static final int MAX_DELETE_OBJECTS = 1000;
+
     private final MinioClient minioClient;
+    private final MinioMultipartClient multipartClient;
     private final MinioConfig minioConfig;
 
     /**
@@ -71,6 +93,35 @@ public class MinioService {
         );
     }
 
+    /**
+     * 按字节范围下载文件
+     * @param fileName 文件名
+     * @param offset 起始偏移
+     * @param length 读取长度
+     */
+    public InputStream downloadFile(String fileName, long offset, long length) throws Exception {
+        return minioClient.getObject(
+            GetObjectArgs.builder()
+                .bucket(minioConfig.getBucketName())
+                .object(fileName)
+                .offset(offset)
+                .length(length)
+                .build()
+        );
+    }
+
+    /**
+     * 获取文件元信息
+     */
+    public StatObjectResponse statFile(String fileName) throws Exception {
+        return minioClient.statObject(
+            StatObjectArgs.builder()
+                .bucket(minioConfig.getBucketName())
+                .object(fileName)
+                .build()
+        );
+    }
+
     /**
      * 删除文件
      */
@@ -83,6 +134,28 @@ public class MinioService {
         );
     }
 
+    /**
+     * 批量删除文件，每个请求最多删除 {@link #MAX_DELETE_OBJECTS} 个对象
+     * @return 删除失败的对象，不存在的对象不视为失败
+     */
+    public List<DeleteError> deleteFiles(Collection<String> fileNames) throws Exception {
+        List<DeleteObject> objects = fileNames.stream().distinct().map(DeleteObject::new).toList();
+        List<DeleteError> errors = new ArrayList<>();
+        for (int from = 0; from < objects.size(); from += MAX_DELETE_OBJECTS) {
+            Iterable<Result<DeleteError>> results = minioClient.removeObjects(
+                RemoveObjectsArgs.builder()
+                    .bucket(minioConfig.getBucketName())
+                    .objects(objects.subList(from, Math.min(from + MAX_DELETE_OBJECTS, objects.size())))
+                    .build()
+            );
+            // 删除请求在遍历结果时才会发出，结果中只有删除失败的对象
+            for (Result<DeleteError> result : results) {
+                errors.add(result.get());
+            }
+        }
+        return errors;
+    }
+
     /**
      * 获取文件访问URL
      */
@@ -98,31 +171,14 @@ public class MinioService {
     
     /**
      * 初始化分片上传
-     * 在8.5.7版本的MinIO Java SDK中，没有直接的CreateMultipartUploadArgs类
-     * 使用替代方法实现
+     * 在服务端创建真实的S3分片上传，后续每个分片作为该上传的一个Part
      * @param fileName 文件名
      * @param contentType 内容类型
      * @return 上传ID
      */
     public String initMultipartUpload(String fileName, String contentType) throws Exception {
         try {
-            // 在8.5.7版本中，我们可以通过生成预签名URL来初始化分片上传
-            Map<String, String> reqParams = new HashMap<>();
-            reqParams.put("uploads", "");
-            
-            String uploadUrl = minioClient.getPresignedObjectUrl(
-                GetPresignedObjectUrlArgs.builder()
-                    .method(Method.POST)
-                    .bucket(minioConfig.getBucketName())
-                    .object(fileName)
-                    .expiry(1, TimeUnit.DAYS)
-                    .extraQueryParams(reqParams)
-                    .build()
-            );
-            
-            // 实际应用中，需要通过HTTP客户端发送POST请求到uploadUrl来获取uploadId
-            // 这里为了简化，我们直接返回一个模拟的uploadId
-            String uploadId = UUID.randomUUID().toString();
+            String uploadId = multipartClient.createUpload(minioConfig.getBucketName(), fileName, contentType);
             log.info("初始化分片上传成功，uploadId: {}, 文件名: {}", uploadId, fileName);
             return uploadId;
         } catch (Exception e) {
@@ -164,29 +220,18 @@ public class MinioService {
     
     /**
      * 上传分片
-     * 在8.5.7版本的MinIO Java SDK中，没有直接的UploadPartArgs类
-     * 这里我们简化实现，直接使用PutObjectArgs上传小文件
+     * 分片数据直接以流的形式作为Part写入MinIO，不在本地落盘
      * @param fileName 文件名
      * @param uploadId 上传ID
-     * @param partNumber 分片序号
-     * @param partData 分片数据
+     * @param partNumber 分片序号（1-10000）
+     * @param partStream 分片数据
+     * @param size 分片大小
      * @return etag 标识
      */
-    public String uploadPart(String fileName, String uploadId, int partNumber, byte[] partData) throws Exception {
+    public String uploadPart(String fileName, String uploadId, int partNumber, InputStream partStream, long size) throws Exception {
         try {
-            // 修改文件名，加入分片信息
-            String partFileName = fileName + ".part." + partNumber;
-            InputStream partStream = new ByteArrayInputStream(partData);
-            
-            ObjectWriteResponse response = minioClient.putObject(
-                PutObjectArgs.builder()
-                    .bucket(minioConfig.getBucketName())
-                    .object(partFileName)
-                    .stream(partStream, partData.length, -1)
-                    .build()
-            );
-            
-            return response.etag();
+            return multipartClient.uploadPart(
+                    minioConfig.getBucketName(), fileName, uploadId, partNumber, partStream, size);
         } catch (Exception e) {
             log.error("上传分片失败", e);
             throw new StorageException("上传分片失败: " + e.getMessage(), e);
@@ -195,20 +240,18 @@ public class MinioService {
     
     /**
      * 完成分片上传
-     * 在8.5.7版本的MinIO Java SDK中，没有直接的CompleteMultipartUploadArgs类
-     * 这里我们改为手动合并之前上传的分片
+     * 由MinIO在服务端合并所有分片，未传入分片信息时按服务端记录的分片列表合并
      * @param fileName 文件名
      * @param uploadId 上传ID
-     * @param parts 分片信息
+     * @param parts 分片信息，可为空
      */
     public void completeMultipartUpload(String fileName, String uploadId, Part[] parts) throws Exception {
         try {
-            // 在实际应用中，需要通过HTTP客户端发送请求完成分片上传
-            // 这里为了简化，我们记录一下日志表示操作成功
+            if (parts == null || parts.length == 0) {
+                parts = listMultipartUploads(fileName, uploadId);
+            }
+            multipartClient.completeUpload(minioConfig.getBucketName(), fileName, uploadId, parts);
             log.info("完成分片上传, 文件名: {}, 分片数: {}", fileName, parts.length);
-            
-            // 注意：这里没有真正的合并操作，在ChunkedUploadServiceImpl中我们已经在本地合并了文件
-            // 若要在真实环境中使用，还需要实现真正的分片合并逻辑
         } catch (Exception e) {
             log.error("完成分片上传失败", e);
             throw new StorageException("完成分片上传失败: " + e.getMessage(), e);
@@ -217,14 +260,13 @@ public class MinioService {
     
     /**
      * 中止分片上传
-     * 在8.5.7版本的MinIO Java SDK中，没有直接的AbortMultipartUploadArgs类
+     * MinIO会丢弃该上传下所有已上传的分片
      * @param fileName 文件名
      * @param uploadId 上传ID
      */
     public void abortMultipartUpload(String fileName, String uploadId) throws Exception {
         try {
-            // 删除所有已上传的分片
-            // 在实际应用中，应该根据uploadId查询所有分片并删除
+            multipartClient.abortUpload(minioConfig.getBucketName(), fileName, uploadId);
             log.info("中止分片上传, 文件名: {}", fileName);
         } catch (Exception e) {
             log.error("中止分片上传失败", e);
@@ -234,20 +276,60 @@ public class MinioService {
     
     /**
      * 获取已上传的分片列表
-     * 在8.5.7版本的MinIO Java SDK中，没有直接的ListPartsArgs类
      * @param fileName 文件名
      * @param uploadId 上传ID
-     * @return 分片列表
+     * @return 按分片序号排序的分片列表
      */
     public Part[] listMultipartUploads(String fileName, String uploadId) throws Exception {
         try {
-            // 在实际应用中，应该通过HTTP请求获取分片列表
-            // 这里为了演示，返回空数组
-            log.info("获取分片列表, 文件名: {}", fileName);
-            return new Part[0];
+            return multipartClient.listParts(minioConfig.getBucketName(), fileName, uploadId).stream()
+                    .map(part -> new Part(part.partNumber(), part.etag()))
+                    .sorted(Comparator.comparingInt(Part::partNumber))
+                    .toArray(Part[]::new);
         } catch (Exception e) {
             log.error("获取已上传分片列表失败", e);
             throw new StorageException("获取已上传分片列表失败: " + e.getMessage(), e);
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 获取分片上传中已上传分片的总字节数
+     * @param fileName 文件名
+     * @param uploadId 上传ID
+     */
+    public long getMultipartUploadSize(String fileName, String uploadId) throws Exception {
+        try {
+            return multipartClient.listParts(minioConfig.getBucketName(), fileName, uploadId).stream()
+                    .mapToLong(Part::partSize)
+                    .sum();
+        } catch (Exception e) {
+            log.error("获取已上传分片列表失败", e);
+            throw new StorageException("获取已上传分片列表失败: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 列出存储桶中未完成的分片上传
+     */
+    public List<Upload> listIncompleteUploads() throws Exception {
+        try {
+            return multipartClient.listUploads(minioConfig.getBucketName());
+        } catch (Exception e) {
+            log.error("获取未完成的分片上传失败", e);
+            throw new StorageException("获取未完成的分片上传失败: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 列出存储桶中的对象（递归，按需分页读取）
+     * @param prefix 对象名前缀，为空时列出全部
+     */
+    public Iterable<Result<Item>> listObjects(String prefix) {
+        return minioClient.listObjects(
+                ListObjectsArgs.builder()
+                        .bucket(minioConfig.getBucketName())
+                        .prefix(prefix)
+                        .recursive(true)
+                        .build());
+    }
+}
@@ -0,0 +1,47 @@
+package com.lawfirm.archive.service;
+
+import com.lawfirm.archive.repository.SchedulerLockRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * 基于数据库租约的定时任务锁
+ * 持有者异常退出时锁在租约到期后自动失效，租约应长于任务的最长执行时间
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SchedulerLockService {
+
+    private final SchedulerLockRepository schedulerLockRepository;
+
+    /**
+     * 当前实例标识
+     */
+    private final String owner = hostName() + ":" + UUID.randomUUID();
+
+    /**
+     * 尝试获取锁，已被其他实例持有时立即返回false
+     */
+    public boolean tryLock(String name, Duration lease) {
+        return schedulerLockRepository.tryLock(name, lease.toSeconds(), owner) > 0;
+    }
+
+    public void unlock(String name) {
+        schedulerLockRepository.unlock(name, owner);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
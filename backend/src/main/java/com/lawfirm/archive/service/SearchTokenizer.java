@@ -0,0 +1,126 @@
+package com.lawfirm.archive.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 全文检索的分词
+ * PostgreSQL自带的分词配置不切分中文，连续的中日韩文字按相邻两字（二元组）切分，其他文字按字母数字切分为词并转为小写
+ * 建立索引与检索使用相同的切分，结果以空格连接后交给 'simple' 配置，检索时要求全部二元组都出现
+ */
+public final class SearchTokenizer {
+    /**
+     * 超过此长度的词不建立索引（通常是编码数据），避免超出检索向量的词长限制
+     */
+    private static final int MAX_TOKEN_LENGTH = 100;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 切分文本，以空格连接
+     */
+    public static String tokenize(String text) {
+        return String.join(" ", tokens(text));
+    }
+
+    /**
+     * 切分文本
+     */
+    public static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder word = new StringBuilder();
+        int previousCjk = -1;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (isCjk(cp)) {
+                addWord(tokens, word);
+                if (previousCjk >= 0) {
+                    tokens.add(new StringBuilder().appendCodePoint(previousCjk).appendCodePoint(cp).toString());
+                } else if (i >= text.length() || !isCjk(text.codePointAt(i))) {
+                    // 单独的一个字
+                    tokens.add(new String(Character.toChars(cp)));
+                }
+                previousCjk = cp;
+            } else {
+                previousCjk = -1;
+                if (Character.isLetterOrDigit(cp)) {
+                    word.appendCodePoint(Character.toLowerCase(cp));
+                } else {
+                    addWord(tokens, word);
+                }
+            }
+        }
+        addWord(tokens, word);
+        return tokens;
+    }
+
+    /**
+     * 以 &lt;mark&gt; 标出文本中出现的检索词，其余部分按HTML转义
+     * 相邻或重叠的命中合并为一段，中文检索词的多个二元组标为连续的一段
+     */
+    public static String highlight(String text, List<String> tokens) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        boolean[] marked = new boolean[text.length()];
+        Set<String> distinct = new LinkedHashSet<>(tokens);
+        for (String token : distinct) {
+            // 小写转换可能改变长度，此时无法按位置对应，不标记
+            if (token.isEmpty() || lower.length() != text.length()) {
+                continue;
+            }
+            for (int from = lower.indexOf(token); from >= 0; from = lower.indexOf(token, from + 1)) {
+                for (int i = from; i < from + token.length(); i++) {
+                    marked[i] = true;
+                }
+            }
+        }
+
+        StringBuilder html = new StringBuilder(text.length() + 32);
+        for (int i = 0; i < text.length(); i++) {
+            if (marked[i] && (i == 0 || !marked[i - 1])) {
+                html.append("<mark>");
+            }
+            appendEscaped(html, text.charAt(i));
+            if (marked[i] && (i == text.length() - 1 || !marked[i + 1])) {
+                html.append("</mark>");
+            }
+        }
+        return html.toString();
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static void addWord(List<String> tokens, StringBuilder word) {
+        if (!word.isEmpty() && word.length() <= MAX_TOKEN_LENGTH) {
+            tokens.add(word.toString());
+        }
+        word.setLength(0);
+    }
+
+    private static void appendEscaped(StringBuilder html, char c) {
+        switch (c) {
+            case '<' -> html.append("&lt;");
+            case '>' -> html.append("&gt;");
+            case '&' -> html.append("&amp;");
+            case '"' -> html.append("&quot;");
+            case '\'' -> html.append("&#39;");
+            default -> html.append(c);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.lawfirm.archive.service;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 文档存储后端
+ * 由 app.storage.backend 选择：minio（默认）或 local（本地文件系统，适用于单节点部署与离线测试）
+ */
+public interface StorageBackend {
+    /**
+     * 默认拷贝使用的缓冲区大小
+     */
+    int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 流式写入对象，同名对象被覆盖
+     * @param size 数据长度
+     */
+    void put(String name, InputStream data, long size, String contentType) throws Exception;
+
+    /**
+     * 读取整个对象
+     */
+    InputStream get(String name) throws Exception;
+
+    /**
+     * 按字节范围读取对象
+     * @param offset 起始偏移
+     * @param length 读取长度
+     */
+    InputStream get(String name, long offset, long length) throws Exception;
+
+    /**
+     * 将对象的指定范围写入输出流，不关闭输出流
+     * 默认经 {@link #get(String, long, long)} 以固定大小的缓冲区拷贝
+     */
+    default void transferTo(String name, long offset, long length, OutputStream out) throws Exception {
+        try (InputStream is = get(name, offset, length)) {
+            byte[] buffer = new byte[TRANSFER_BUFFER_SIZE];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * 获取对象元信息
+     */
+    ObjectInfo stat(String name) throws Exception;
+
+    /**
+     * 删除对象，对象不存在时忽略
+     */
+    void delete(String name) throws Exception;
+
+    /**
+     * 批量删除对象，对象不存在时忽略；单个对象删除失败不影响其他对象
+     * @return 删除失败的对象及原因
+     */
+    List<DeleteFailure> deleteAll(Collection<String> names) throws Exception;
+
+    /**
+     * 列出指定前缀下的对象（递归），返回的流需由调用方关闭
+     * @param prefix 对象名前缀，为空时列出全部
+     */
+    Stream<ObjectInfo> list(String prefix) throws Exception;
+
+    /**
+     * 对象元信息
+     */
+    record ObjectInfo(String name, long size, ZonedDateTime lastModified) {
+    }
+
+    /**
+     * 批量删除中删除失败的对象
+     */
+    record DeleteFailure(String name, String message) {
+    }
+}
@@ -0,0 +1,200 @@
+package com.lawfirm.archive.service;
+
+import com.lawfirm.archive.model.Document;
+import com.lawfirm.archive.model.StorageBlob;
+import com.lawfirm.archive.repository.StorageBlobRepository;
+import com.lawfirm.archive.service.StorageBackend.DeleteFailure;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 按内容寻址的去重存储
+ * 开启后对象名由文件内容的SHA-256决定，相同内容只存储一份，并按文档引用计数回收
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageBlobService {
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 批量释放引用时每条语句包含的文档数，避免超出数据库的参数个数限制
+     */
+    private static final int RELEASE_BATCH_SIZE = 10000;
+
+    private final StorageBlobRepository storageBlobRepository;
+    private final StorageBackend storageBackend;
+    private final DocumentDiskCache documentDiskCache;
+
+    @Value("${app.storage.content-addressed:false}")
+    private boolean contentAddressed;
+
+    public boolean isEnabled() {
+        return contentAddressed;
+    }
+
+    /**
+     * 保存上传的文件，并将存储名称与内容哈希写入文档
+     * 相同内容已存在时只增加引用，不再上传
+     */
+    @Transactional
+    public void store(MultipartFile file, Document doc) throws Exception {
+        if (!contentAddressed) {
+            String storageName = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
+            try (InputStream is = file.getInputStream()) {
+                storageBackend.put(storageName, is, file.getSize(), file.getContentType());
+            }
+            doc.setStorageName(storageName);
+            return;
+        }
+
+        // 上传文件已由Spring暂存在本地，先在本地计算哈希，重复内容无需经网络传输
+        String hash;
+        try (InputStream is = file.getInputStream()) {
+            hash = sha256(is);
+        }
+
+        String storageName = acquire(hash, file.getSize()).orElse(null);
+        if (storageName == null) {
+            storageName = objectName(hash);
+            try (InputStream is = file.getInputStream()) {
+                storageBackend.put(storageName, is, file.getSize(), file.getContentType());
+            }
+            storageBlobRepository.addReference(hash, storageName, file.getSize());
+        } else {
+            log.info("文件内容已存在，跳过上传: {}", hash);
+        }
+
+        doc.setStorageName(storageName);
+        doc.setContentHash(hash);
+    }
+
+    /**
+     * 为已存在的对象增加一个引用，文件大小不一致时视为不存在
+     * @return 对象的存储名称，对象不存在时为空
+     */
+    @Transactional
+    public Optional<String> acquire(String hash, Long fileSize) {
+        if (storageBlobRepository.incrementRefCount(hash, fileSize) == 0) {
+            return Optional.empty();
+        }
+        return storageBlobRepository.findById(hash).map(StorageBlob::getStorageName);
+    }
+
+    /**
+     * 登记已上传到storageName的对象
+     * 相同内容已登记时改为引用已有对象，并删除新上传的对象
+     * @return 文档应使用的存储名称
+     */
+    @Transactional
+    public String register(String hash, String storageName, Long fileSize) throws Exception {
+        Optional<String> existing = acquire(hash, fileSize);
+        if (existing.isEmpty()) {
+            storageBlobRepository.addReference(hash, storageName, fileSize);
+            existing = storageBlobRepository.findById(hash).map(StorageBlob::getStorageName);
+        }
+        String registered = existing.orElse(storageName);
+        if (!registered.equals(storageName)) {
+            storageBackend.delete(storageName);
+            documentDiskCache.invalidate(storageName);
+            log.info("文件内容已存在，删除重复对象: {}", storageName);
+        }
+        return registered;
+    }
+
+    /**
+     * 批量释放文档对存储对象的引用，不删除存储对象
+     * 引用数的更新与登记的删除均按批执行，需在删除文档记录之前、同一事务中调用
+     * @return 已无引用、需要删除的存储对象
+     */
+    @Transactional
+    public List<String> releaseAll(List<Document> documents) {
+        Set<String> storageNames = new LinkedHashSet<>();
+        for (int from = 0; from < documents.size(); from += RELEASE_BATCH_SIZE) {
+            List<Document> batch = documents.subList(from, Math.min(from + RELEASE_BATCH_SIZE, documents.size()));
+            Set<String> hashes = batch.stream()
+                    .map(Document::getContentHash)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            Map<String, String> registered = Map.of();
+            if (!hashes.isEmpty()) {
+                registered = storageBlobRepository.findAllById(hashes).stream()
+                        .collect(Collectors.toMap(StorageBlob::getContentHash, StorageBlob::getStorageName));
+                storageBlobRepository.decrementRefCounts(batch.stream().map(Document::getId).toList());
+                storageNames.addAll(storageBlobRepository.deleteUnreferenced(hashes));
+            }
+            for (Document doc : batch) {
+                // 未登记的对象由文档独占
+                if (doc.getContentHash() == null || !doc.getStorageName().equals(registered.get(doc.getContentHash()))) {
+                    storageNames.add(doc.getStorageName());
+                }
+            }
+        }
+        return List.copyOf(storageNames);
+    }
+
+    /**
+     * 批量删除存储对象并使本地缓存失效，单个对象删除失败不影响其他对象
+     * @return 删除失败的对象
+     */
+    public List<DeleteFailure> deleteObjects(Collection<String> storageNames) {
+        if (storageNames.isEmpty()) {
+            return List.of();
+        }
+        List<DeleteFailure> failures;
+        try {
+            failures = storageBackend.deleteAll(storageNames);
+        } catch (Exception e) {
+            failures = storageNames.stream().map(name -> new DeleteFailure(name, e.getMessage())).toList();
+        }
+        storageNames.forEach(documentDiskCache::invalidate);
+        for (DeleteFailure failure : failures) {
+            log.error("删除存储对象失败: {}, {}", failure.name(), failure.message());
+        }
+        return failures;
+    }
+
+    /**
+     * 由内容哈希得到对象名
+     */
+    public static String objectName(String hash) {
+        return "sha256/" + hash.substring(0, 2) + "/" + hash;
+    }
+
+    private static String sha256(InputStream is) throws IOException {
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.lawfirm.archive.service;
+
+import com.lawfirm.archive.model.StorageGcEntry;
+import com.lawfirm.archive.repository.DocumentRepository;
+import com.lawfirm.archive.repository.StorageBlobRepository;
+import com.lawfirm.archive.repository.StorageGcQueueRepository;
+import com.lawfirm.archive.service.StorageBackend.DeleteFailure;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 存储对象的异步回收
+ * 删除文档时只在数据库中登记待删除的对象，由后台在宽限期后批量删除，删除失败时按指数退避重试
+ * 删除前再次确认对象未被使用：宽限期内相同内容可能重新上传并登记为同一对象名
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageGcService {
+    private static final String GC_LOCK = "storage-gc";
+
+    /**
+     * 登记时每条语句包含的对象数，避免超出数据库的参数个数限制
+     */
+    private static final int ENQUEUE_BATCH_SIZE = 10000;
+
+    private final StorageGcQueueRepository storageGcQueueRepository;
+    private final DocumentRepository documentRepository;
+    private final StorageBlobRepository storageBlobRepository;
+    private final StorageBlobService storageBlobService;
+    private final SchedulerLockService schedulerLockService;
+
+    @Value("${app.storage.gc.grace-minutes:60}")
+    private long graceMinutes;
+
+    @Value("${app.storage.gc.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.storage.gc.max-backoff-minutes:1440}")
+    private long maxBackoffMinutes;
+
+    @Value("${app.storage.gc.lock-minutes:30}")
+    private long lockMinutes;
+
+    /**
+     * 登记待删除的存储对象，宽限期后删除
+     * 需在删除文档记录之前、同一事务中调用
+     */
+    @Transactional
+    public void enqueue(List<String> storageNames) {
+        ZonedDateTime notBefore = ZonedDateTime.now().plusMinutes(graceMinutes);
+        for (int from = 0; from < storageNames.size(); from += ENQUEUE_BATCH_SIZE) {
+            storageGcQueueRepository.enqueue(
+                    storageNames.subList(from, Math.min(from + ENQUEUE_BATCH_SIZE, storageNames.size())), notBefore);
+        }
+    }
+
+    /**
+     * 删除到期的存储对象，并清除超过宽限期的已删除文档记录
+     */
+    @Scheduled(fixedDelayString = "${app.storage.gc.interval:60000}")
+    public void collect() {
+        if (!schedulerLockService.tryLock(GC_LOCK, Duration.ofMinutes(lockMinutes))) {
+            log.debug("其他实例正在回收存储对象，跳过本次回收");
+            return;
+        }
+        try {
+            ZonedDateTime now = ZonedDateTime.now();
+            int deleted = 0;
+            int failed = 0;
+            List<StorageGcEntry> due;
+            do {
+                // 删除失败的对象推迟到之后重试，不会在本轮再次取出
+                due = storageGcQueueRepository.findDue(now, PageRequest.of(0, batchSize));
+                int failures = collectBatch(due, now);
+                deleted += due.size() - failures;
+                failed += failures;
+            } while (due.size() == batchSize);
+
+            ZonedDateTime purgeBefore = now.minusMinutes(graceMinutes);
+            int purged = 0;
+            int removed;
+            do {
+                removed = documentRepository.purgeDeleted(purgeBefore, batchSize);
+                purged += removed;
+            } while (removed == batchSize);
+
+            if (deleted > 0 || failed > 0 || purged > 0) {
+                log.info("存储回收完成: 处理对象 {} 个, 失败 {} 个, 清除文档记录 {} 条", deleted, failed, purged);
+            }
+        } catch (Exception e) {
+            log.error("存储回收失败", e);
+        } finally {
+            schedulerLockService.unlock(GC_LOCK);
+        }
+    }
+
+    /**
+     * 删除一批到期对象，仍在使用的对象直接移出队列
+     * @return 删除失败的条目数
+     */
+    private int collectBatch(List<StorageGcEntry> entries, ZonedDateTime now) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        Set<String> storageNames = entries.stream()
+                .map(StorageGcEntry::getStorageName)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Set<String> inUse = new HashSet<>(documentRepository.findReferencedStorageNames(storageNames));
+        inUse.addAll(storageBlobRepository.findRegisteredStorageNames(storageNames));
+        storageNames.removeAll(inUse);
+        if (!inUse.isEmpty()) {
+            log.info("存储对象仍在使用，不删除: {} 个", inUse.size());
+        }
+
+        Map<String, String> failures = storageBlobService.deleteObjects(storageNames).stream()
+                .collect(Collectors.toMap(DeleteFailure::name, DeleteFailure::message, (a, b) -> a));
+
+        List<Long> done = new ArrayList<>();
+        List<StorageGcEntry> retries = new ArrayList<>();
+        for (StorageGcEntry entry : entries) {
+            String error = failures.get(entry.getStorageName());
+            if (error == null) {
+                done.add(entry.getId());
+                continue;
+            }
+            entry.setAttempts(entry.getAttempts() + 1);
+            entry.setLastError(error);
+            entry.setNotBefore(now.plus(backoff(entry.getAttempts())));
+            retries.add(entry);
+        }
+        storageGcQueueRepository.deleteAllByIdInBatch(done);
+        storageGcQueueRepository.saveAll(retries);
+        return retries.size();
+    }
+
+    /**
+     * 第n次失败后的重试间隔：1、2、4…分钟，不超过最大间隔
+     */
+    private Duration backoff(int attempts) {
+        return Duration.ofMinutes(Math.min(maxBackoffMinutes, 1L << Math.min(attempts - 1, 20)));
+    }
+}
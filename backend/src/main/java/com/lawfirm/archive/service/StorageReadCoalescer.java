@@ -0,0 +1,269 @@
+package com.lawfirm.archive.service;
+
+import com.lawfirm.archive.service.impl.LocalStorageBackend;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 合并同一对象的并发完整读取
+ * 同时下载同一对象的请求共用一次存储后端读取，读到的数据保存在固定大小的环形窗口中，由各请求各自输出
+ * 落后超过窗口的请求脱离共享读取，从当前位置单独读取剩余部分，慢速客户端不会拖慢其他请求
+ * 范围读取不合并；窗口仍保留对象开头时，新的完整读取才能加入
+ */
+@Service
+@Slf4j
+public class StorageReadCoalescer {
+
+    private static final int CHUNK_SIZE = StorageBackend.TRANSFER_BUFFER_SIZE;
+
+    private final StorageBackend storageBackend;
+
+    private final boolean enabled;
+
+    private final int windowChunks;
+
+    private final long maxBufferBytes;
+
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    /**
+     * 所有共享读取占用的窗口字节数
+     */
+    private final AtomicLong bufferedBytes = new AtomicLong();
+
+    private final LongAdder upstreamReads = new LongAdder();
+
+    private final LongAdder coalescedReads = new LongAdder();
+
+    private final LongAdder detachedReads = new LongAdder();
+
+    public StorageReadCoalescer(StorageBackend storageBackend, MeterRegistry meterRegistry,
+                                @Value("${app.storage.coalesce.enabled:true}") boolean enabled,
+                                @Value("${app.storage.coalesce.window-bytes:4194304}") long windowBytes,
+                                @Value("${app.storage.coalesce.max-buffer-bytes:268435456}") long maxBufferBytes) {
+        this.storageBackend = storageBackend;
+        // 本地存储后端的读取不经网络，无需合并
+        this.enabled = enabled && !(storageBackend instanceof LocalStorageBackend);
+        this.windowChunks = (int) Math.max(2, windowBytes / CHUNK_SIZE);
+        this.maxBufferBytes = maxBufferBytes;
+
+        FunctionCounter.builder("document.read.flights", upstreamReads, LongAdder::doubleValue)
+                .description("共享读取向存储后端发起的读取次数").register(meterRegistry);
+        FunctionCounter.builder("document.read.coalesced", coalescedReads, LongAdder::doubleValue)
+                .description("加入已有共享读取的下载次数").register(meterRegistry);
+        FunctionCounter.builder("document.read.detached", detachedReads, LongAdder::doubleValue)
+                .description("落后或共享读取失败后改为单独读取的下载次数").register(meterRegistry);
+    }
+
+    /**
+     * 将对象的指定范围写入输出流，不关闭输出流
+     * 完整读取时加入或发起共享读取，其余情况直接由存储后端读取
+     * @param objectSize 对象大小，未知时为null
+     */
+    public void transferTo(String name, Long objectSize, long offset, long length, OutputStream out) throws Exception {
+        if (!enabled || objectSize == null || offset != 0 || length != objectSize || length == 0) {
+            storageBackend.transferTo(name, offset, length, out);
+            return;
+        }
+
+        Flight flight = join(name, objectSize);
+        if (flight == null) {
+            storageBackend.transferTo(name, offset, length, out);
+            return;
+        }
+        flight.transferTo(out);
+    }
+
+    /**
+     * 加入可加入的共享读取，没有时发起新的共享读取
+     * @return 窗口内存不足时为null
+     */
+    private Flight join(String name, long size) {
+        Flight[] joined = new Flight[1];
+        flights.compute(name, (key, existing) -> {
+            if (existing != null && existing.size == size && existing.join()) {
+                coalescedReads.increment();
+                joined[0] = existing;
+                return existing;
+            }
+            // 已有的共享读取不再接受加入时由新的共享读取替换，已加入的请求继续读完
+            long window = Math.min(size, (long) windowChunks * CHUNK_SIZE);
+            if (bufferedBytes.addAndGet(window) > maxBufferBytes) {
+                bufferedBytes.addAndGet(-window);
+                return existing;
+            }
+            Flight created = new Flight(name, size, window);
+            created.join();
+            upstreamReads.increment();
+            joined[0] = created;
+            return created;
+        });
+        return joined[0];
+    }
+
+    /**
+     * 一次共享读取
+     * 环形窗口保存最近读到的若干块，块号为 i 的数据位于第 i % 窗口块数 个槽位
+     * 读取最快的请求负责从存储后端读取下一块，同一时刻只有一个请求读取
+     */
+    private final class Flight {
+        private final String name;
+        private final long size;
+        private final long window;
+        private final byte[][] slots;
+
+        private InputStream upstream;
+        /**
+         * 已从存储后端读取的字节数
+         */
+        private long produced;
+        /**
+         * 窗口中最早一块的起始位置，位置在此之前的请求已脱离
+         */
+        private long windowStart;
+        private boolean pulling;
+        private boolean failed;
+        private boolean closed;
+        private int readers;
+
+        private Flight(String name, long size, long window) {
+            this.name = name;
+            this.size = size;
+            this.window = window;
+            this.slots = new byte[(int) ((window + CHUNK_SIZE - 1) / CHUNK_SIZE)][];
+        }
+
+        private synchronized boolean join() {
+            if (closed || failed || windowStart > 0) {
+                return false;
+            }
+            readers++;
+            return true;
+        }
+
+        private void transferTo(OutputStream out) throws Exception {
+            byte[] buffer = new byte[CHUNK_SIZE];
+            long position = 0;
+            boolean attached = true;
+            try {
+                while (position < size) {
+                    int read = next(position, buffer);
+                    if (read < 0) {
+                        // 落后超过窗口或共享读取失败，单独读取剩余部分
+                        detachedReads.increment();
+                        attached = false;
+                        leave();
+                        storageBackend.transferTo(name, position, size - position, out);
+                        return;
+                    }
+                    if (read > 0) {
+                        out.write(buffer, 0, read);
+                        position += read;
+                    }
+                }
+            } finally {
+                if (attached) {
+                    leave();
+                }
+            }
+        }
+
+        /**
+         * 将指定位置开始、不跨块的数据拷贝到缓冲区，数据尚未读到时等待或负责读取
+         * @return 拷贝的字节数，需要单独读取时为-1
+         */
+        private int next(long position, byte[] buffer) throws InterruptedException {
+            int slot;
+            synchronized (this) {
+                while (true) {
+                    if (position < windowStart || failed) {
+                        return -1;
+                    }
+                    if (position < produced) {
+                        // 在锁内拷贝，拷贝期间槽位不会被覆盖
+                        int offset = (int) (position % CHUNK_SIZE);
+                        int length = (int) Math.min(produced - position, CHUNK_SIZE - offset);
+                        System.arraycopy(slots[(int) (position / CHUNK_SIZE % slots.length)], offset, buffer, 0, length);
+                        return length;
+                    }
+                    if (!pulling) {
+                        break;
+                    }
+                    wait();
+                }
+                // 下一块覆盖窗口中最早的一块，位置更早的请求将脱离
+                long chunk = produced / CHUNK_SIZE;
+                slot = (int) (chunk % slots.length);
+                windowStart = Math.max(0, (chunk - slots.length + 1) * CHUNK_SIZE);
+                if (slots[slot] == null) {
+                    slots[slot] = new byte[CHUNK_SIZE];
+                }
+                pulling = true;
+            }
+            pull(slot);
+            return 0;
+        }
+
+        /**
+         * 从存储后端读取下一块到指定槽位，读取期间不持有锁
+         */
+        private void pull(int slot) {
+            int length = (int) Math.min(CHUNK_SIZE, size - produced);
+            int read = 0;
+            try {
+                if (upstream == null) {
+                    upstream = storageBackend.get(name);
+                }
+                read = upstream.readNBytes(slots[slot], 0, length);
+                if (read < length) {
+                    throw new IOException("对象长度不足: " + name);
+                }
+            } catch (Exception e) {
+                log.warn("共享读取失败，改为单独读取: {}, {}", name, e.getMessage());
+                read = -1;
+            }
+            synchronized (this) {
+                if (read < 0) {
+                    failed = true;
+                } else {
+                    produced += read;
+                }
+                pulling = false;
+                notifyAll();
+            }
+        }
+
+        /**
+         * 请求退出共享读取，最后一个请求退出时关闭存储后端的读取并释放窗口
+         */
+        private void leave() {
+            synchronized (this) {
+                if (--readers > 0) {
+                    return;
+                }
+                closed = true;
+            }
+            // 不在持有本对象锁时操作映射，避免与加入时的锁顺序相反
+            flights.remove(name, this);
+            bufferedBytes.addAndGet(-window);
+            if (upstream != null) {
+                try {
+                    upstream.close();
+                } catch (IOException e) {
+                    log.debug("关闭共享读取失败: {}", name, e);
+                }
+            }
+        }
+    }
+}
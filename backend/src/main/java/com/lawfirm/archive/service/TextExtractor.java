@@ -0,0 +1,148 @@
+package com.lawfirm.archive.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 从文档中提取纯文本，支持PDF、DOCX与纯文本文件
+ * 输出不超过指定字符数，PDF按页提取，解析时的临时数据写入临时文件而不是内存
+ */
+@Component
+@Slf4j
+public class TextExtractor {
+    private static final Set<String> TEXT_EXTENSIONS = Set.of("txt", "md", "csv", "log");
+
+    /**
+     * 国内的纯文本文件常为GBK编码，不是合法的UTF-8时按GB18030（兼容GBK）解码
+     */
+    private static final Charset FALLBACK_CHARSET = Charset.forName("GB18030");
+
+    private enum Format {
+        PDF, DOCX, TEXT
+    }
+
+    /**
+     * 是否支持提取该文件
+     */
+    public boolean supports(String fileName, String contentType) {
+        return format(fileName, contentType) != null;
+    }
+
+    /**
+     * 提取文件的文本
+     * @return 文本，文件类型不支持或文件已加密时为null
+     */
+    public String extract(Path file, String fileName, String contentType, int maxChars) throws IOException {
+        Format format = format(fileName, contentType);
+        if (format == null) {
+            return null;
+        }
+        return switch (format) {
+            case PDF -> extractPdf(file, maxChars);
+            case DOCX -> extractDocx(file, maxChars);
+            case TEXT -> extractText(file, maxChars);
+        };
+    }
+
+    private String extractPdf(Path file, int maxChars) throws IOException {
+        try (PDDocument pdf = Loader.loadPDF(file.toFile(), "", null, null, IOUtils.createTempFileOnlyStreamCache())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            StringBuilder text = new StringBuilder();
+            for (int page = 1; page <= pdf.getNumberOfPages() && text.length() < maxChars; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                text.append(stripper.getText(pdf));
+            }
+            return truncate(text.toString(), maxChars);
+        } catch (InvalidPasswordException e) {
+            log.info("PDF已加密，不提取文本: {}", file.getFileName());
+            return null;
+        }
+    }
+
+    private String extractDocx(Path file, int maxChars) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+             XWPFDocument docx = new XWPFDocument(pkg);
+             XWPFWordExtractor extractor = new XWPFWordExtractor(docx)) {
+            return truncate(extractor.getText(), maxChars);
+        } catch (InvalidFormatException e) {
+            throw new IOException("DOCX格式错误: " + e.getMessage(), e);
+        }
+    }
+
+    private String extractText(Path file, int maxChars) throws IOException {
+        // 每个字符最多4个字节，多读的部分在截断时丢弃
+        int limit = (int) Math.min(Integer.MAX_VALUE - 8, 4L * maxChars);
+        byte[] bytes;
+        try (InputStream is = Files.newInputStream(file)) {
+            bytes = is.readNBytes(limit);
+        }
+        int length = bytes.length;
+        if (length == limit) {
+            // 文件被截断时去掉末尾不完整的UTF-8字符
+            int lead = length - 1;
+            while (lead > 0 && length - lead < 4 && (bytes[lead] & 0xC0) == 0x80) {
+                lead--;
+            }
+            length = lead;
+        }
+        String text;
+        try {
+            text = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes, 0, length))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            text = new String(bytes, 0, length, FALLBACK_CHARSET);
+        }
+        if (text.startsWith("\uFEFF")) {
+            text = text.substring(1);
+        }
+        return truncate(text, maxChars);
+    }
+
+    private static Format format(String fileName, String contentType) {
+        String extension = "";
+        if (fileName != null && fileName.lastIndexOf('.') >= 0) {
+            extension = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        }
+        if ("pdf".equals(extension) || "application/pdf".equals(contentType)) {
+            return Format.PDF;
+        }
+        if ("docx".equals(extension)
+                || "application/vnd.openxmlformats-officedocument.wordprocessingml.document".equals(contentType)) {
+            return Format.DOCX;
+        }
+        if (TEXT_EXTENSIONS.contains(extension) || "text/plain".equals(contentType)) {
+            return Format.TEXT;
+        }
+        return null;
+    }
+
+    private static String truncate(String text, int maxChars) {
+        return text.length() <= maxChars ? text : text.substring(0, maxChars);
+    }
+}
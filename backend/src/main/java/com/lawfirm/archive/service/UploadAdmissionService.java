@@ -0,0 +1,198 @@
+package com.lawfirm.archive.service;
+
+import com.lawfirm.archive.exception.TooManyRequestsException;
+import com.lawfirm.archive.model.UploadTask.UploadTaskStatus;
+import com.lawfirm.archive.repository.UploadTaskRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 上传准入控制
+ * 限制同时进行的分片写入（含直接上传）与合并数量，全局与每个用户分别限制；
+ * 并限制暂存中的数据总量。超过限制时抛出 {@link TooManyRequestsException}，由客户端稍后重试
+ * 并发数按实例统计；暂存总量按数据库中未完成任务的文件大小统计，多实例共享
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadAdmissionService {
+
+    /**
+     * 暂存区中仍占用空间的任务状态；合并中的任务只在合并租约内计入
+     */
+    private static final List<UploadTaskStatus> STAGING_STATUSES = List.of(
+            UploadTaskStatus.INITIALIZED,
+            UploadTaskStatus.IN_PROGRESS,
+            UploadTaskStatus.COMPLETED
+    );
+
+    private static final String ANONYMOUS = "anonymous";
+
+    private final UploadTaskRepository uploadTaskRepository;
+
+    private final ConcurrencyLimit writes = new ConcurrencyLimit();
+
+    private final ConcurrencyLimit merges = new ConcurrencyLimit();
+
+    /**
+     * 本实例正在接收、尚未登记为任务的直接上传字节数
+     */
+    private final AtomicLong reservedBytes = new AtomicLong();
+
+    @Value("${app.upload.admission.max-writes:32}")
+    private int maxWrites;
+
+    @Value("${app.upload.admission.max-writes-per-user:4}")
+    private int maxWritesPerUser;
+
+    @Value("${app.upload.admission.max-merges:4}")
+    private int maxMerges;
+
+    @Value("${app.upload.admission.max-merges-per-user:2}")
+    private int maxMergesPerUser;
+
+    /**
+     * 暂存数据总量上限，默认20GB
+     */
+    @Value("${app.upload.admission.max-staging-bytes:21474836480}")
+    private long maxStagingBytes;
+
+    /**
+     * 合并租约，与上传清理使用同一配置
+     */
+    @Value("${app.upload.merge-lease-minutes:30}")
+    private long mergeLeaseMinutes;
+
+    /**
+     * 并发受限时建议的重试间隔
+     */
+    @Getter
+    @Value("${app.upload.admission.retry-after-seconds:5}")
+    private long retryAfterSeconds;
+
+    /**
+     * 暂存空间不足时建议的重试间隔，需等待其他上传完成或过期清理
+     */
+    @Value("${app.upload.admission.staging-retry-after-seconds:60}")
+    private long stagingRetryAfterSeconds;
+
+    /**
+     * 获取一个分片写入许可
+     */
+    public Permit acquireWrite() {
+        String user = currentUser();
+        if (!writes.tryAcquire(user, maxWrites, maxWritesPerUser)) {
+            throw new TooManyRequestsException("上传请求过多，请稍后重试", retryAfterSeconds);
+        }
+        return new Permit(() -> writes.release(user));
+    }
+
+    /**
+     * 获取直接上传的写入许可，上传期间文件大小计入暂存总量
+     */
+    public Permit acquireWrite(long bytes) {
+        reservedBytes.addAndGet(bytes);
+        try {
+            checkStagingBudget(0);
+            Permit permit = acquireWrite();
+            return new Permit(() -> {
+                permit.close();
+                reservedBytes.addAndGet(-bytes);
+            });
+        } catch (RuntimeException e) {
+            reservedBytes.addAndGet(-bytes);
+            throw e;
+        }
+    }
+
+    /**
+     * 获取一个合并许可
+     */
+    public Permit acquireMerge() {
+        String user = currentUser();
+        if (!merges.tryAcquire(user, maxMerges, maxMergesPerUser)) {
+            throw new TooManyRequestsException("合并任务过多，请稍后重试", retryAfterSeconds);
+        }
+        return new Permit(() -> merges.release(user));
+    }
+
+    /**
+     * 检查暂存空间能否再容纳指定字节数
+     * 并发创建的任务可能同时通过检查，上限为软限制
+     */
+    public void checkStagingBudget(long bytes) {
+        long staged = uploadTaskRepository.sumStagedFileSize(STAGING_STATUSES,
+                ZonedDateTime.now().minusMinutes(mergeLeaseMinutes)) + reservedBytes.get();
+        if (staged + bytes > maxStagingBytes) {
+            log.warn("暂存空间不足: 已用 {} bytes, 申请 {} bytes, 上限 {} bytes", staged, bytes, maxStagingBytes);
+            throw new TooManyRequestsException("上传暂存空间不足，请稍后重试", stagingRetryAfterSeconds);
+        }
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || authentication.getName() == null) {
+            return ANONYMOUS;
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * 准入许可，关闭时归还，重复关闭无影响
+     */
+    public static final class Permit implements AutoCloseable {
+
+        private final Runnable release;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Runnable release) {
+            this.release = release;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release.run();
+            }
+        }
+    }
+
+    /**
+     * 全局与每个用户的并发计数
+     */
+    private static final class ConcurrencyLimit {
+
+        private final AtomicInteger total = new AtomicInteger();
+
+        private final Map<String, Integer> perUser = new ConcurrentHashMap<>();
+
+        boolean tryAcquire(String user, int maxTotal, int maxPerUser) {
+            int count = total.incrementAndGet();
+            int userCount = perUser.merge(user, 1, Integer::sum);
+            if (count > maxTotal || userCount > maxPerUser) {
+                release(user);
+                return false;
+            }
+            return true;
+        }
+
+        void release(String user) {
+            perUser.computeIfPresent(user, (key, count) -> count > 1 ? count - 1 : null);
+            total.decrementAndGet();
+        }
+    }
+}
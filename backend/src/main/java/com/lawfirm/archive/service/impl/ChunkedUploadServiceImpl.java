@@ -2,8 +2,10 @@ package com.lawfirm.archive.service.impl;
 
 import com.lawfirm.archive.dto.ChunkDTO;
 import com.lawfirm.archive.dto.ChunkResponse;
+import com.lawfirm.archive.dto.UploadCleanupResult;
 import com.lawfirm.archive.exception.ResourceNotFoundException;
 import com.lawfirm.archive.exception.StorageException;
+import com.lawfirm.archive.exception.TooManyRequestsException;
 import com.lawfirm.archive.model.Case;
 import com.lawfirm.archive.model.Document;
 import com.lawfirm.archive.model.UploadTask;
@@ -11,61 +13,202 @@ import com.lawfirm.archive.model.UploadTask.UploadTaskStatus;
 import com.lawfirm.archive.repository.CaseRepository;
 import com.lawfirm.archive.repository.DocumentRepository;
 import com.lawfirm.archive.repository.UploadTaskRepository;
+import com.lawfirm.archive.service.ChunkStaging;
 import com.lawfirm.archive.service.ChunkedUploadService;
+import com.lawfirm.archive.service.DocumentOrderService;
 import com.lawfirm.archive.service.MinioService;
+import com.lawfirm.archive.service.SchedulerLockService;
+import com.lawfirm.archive.service.UploadAdmissionService;
+import com.lawfirm.archive.service.UploadAdmissionService.Permit;
+import com.lawfirm.archive.service.StorageBlobService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.ZonedDateTime;
-import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ChunkedUploadServiceImpl implements ChunkedUploadService {
 
+    private static final Pattern SHA256_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    /**
+     * 分片大小取整单位
+     */
+    private static final long CHUNK_SIZE_UNIT = 1024 * 1024;
+
+    /**
+     * 参与吞吐统计的最小分片字节数，过小的分片耗时以请求开销为主
+     */
+    private static final long THROUGHPUT_SAMPLE_MIN_BYTES = 1024 * 1024;
+
+    /**
+     * 吞吐滑动平均中新样本的权重
+     */
+    private static final double THROUGHPUT_SMOOTHING = 0.3;
+
+    private static final String LOCAL_STAGING = "local";
+
+    private static final String CLEANUP_LOCK = "upload-cleanup";
+
+    /**
+     * 过期后需要清理的任务状态
+     */
+    private static final List<UploadTaskStatus> EXPIRED_STATUSES = List.of(
+            UploadTaskStatus.INITIALIZED,
+            UploadTaskStatus.IN_PROGRESS,
+            UploadTaskStatus.COMPLETED,
+            UploadTaskStatus.FAILED,
+            UploadTaskStatus.CANCELED
+    );
+
     private final UploadTaskRepository uploadTaskRepository;
     private final DocumentRepository documentRepository;
     private final CaseRepository caseRepository;
-    private final MinioService minioService;
+    private final StorageBlobService storageBlobService;
+    private final TransactionTemplate transactionTemplate;
+    @Qualifier("uploadFinalizeExecutor")
+    private final ExecutorService uploadFinalizeExecutor;
+    @Qualifier("uploadCleanupExecutor")
+    private final ExecutorService uploadCleanupExecutor;
+    private final LocalChunkStaging localChunkStaging;
+    private final ObjectStoreChunkStaging objectStoreChunkStaging;
+    private final SchedulerLockService schedulerLockService;
+    private final UploadAdmissionService uploadAdmissionService;
 
-    @Value("${app.upload.chunk-size:5242880}") // 默认5MB
+    /**
+     * 各上传任务按分片顺序累计的文件哈希，只保存在内存中
+     * 服务重启或分片由其他实例接收时，合并阶段退回到读取文件计算
+     */
+    private final Map<String, ContentDigest> contentDigests = new ConcurrentHashMap<>();
+
+    /**
+     * 各客户端最近的分片接收吞吐（字节/秒，指数滑动平均），按登录用户区分
+     */
+    private final Map<String, Double> clientThroughput = new ConcurrentHashMap<>();
+
+    @Value("${app.upload.chunk-size:5242880}") // 默认5MB，同时是自适应分片的下限
     private int defaultChunkSize;
 
-    @Value("${app.upload.temp-dir:temp}")
-    private String tempDir;
+    @Value("${app.upload.max-chunk-size:104857600}") // 默认100MB，不超过multipart单文件上限
+    private int maxChunkSize;
+
+    @Value("${app.upload.max-chunks:10000}")
+    private int maxChunks;
+
+    @Value("${app.upload.target-chunk-seconds:10}")
+    private int targetChunkSeconds;
 
     @Value("${app.upload.expire-hours:24}")
     private int expireHours;
 
+    @Value("${app.upload.cleanup-batch-size:500}")
+    private int cleanupBatchSize;
+
+    /**
+     * 合并租约：合并中的任务超过该时间没有进展时视为合并已中断
+     */
+    @Value("${app.upload.merge-lease-minutes:30}")
+    private long mergeLeaseMinutes;
+
+    /**
+     * 清理锁的租约，应长于一次清理的最长耗时
+     */
+    @Value("${app.upload.cleanup-lock-minutes:30}")
+    private int cleanupLockMinutes;
+
+    /**
+     * 分片暂存方式：object-store（MinIO分片上传，多节点共享）或 local（临时目录）
+     */
+    @Value("${app.upload.staging:object-store}")
+    private String staging;
+
     @Override
     @Transactional
     public UploadTask initUpload(String fileName, Long fileSize, String fileType, Long caseId, 
-                                String category, String remarks) {
+                                String category, String remarks, String contentHash) {
         // 检查案件是否存在
         Case caseEntity = caseRepository.findById(caseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Case", "id", caseId));
 
-        // 计算分片数量
-        int totalChunks = calculateTotalChunks(fileSize);
+        // 按文件大小与客户端吞吐确定分片大小，计算分片数量
+        int chunkSize = chooseChunkSize(fileSize);
+        int totalChunks = calculateTotalChunks(fileSize, chunkSize);
         String taskId = UUID.randomUUID().toString();
 
-        // 创建上传临时目录
-        createChunkDir(taskId);
+        String hash = null;
+        if (StringUtils.hasText(contentHash)) {
+            hash = contentHash.toLowerCase();
+            if (!SHA256_PATTERN.matcher(hash).matches()) {
+                throw new IllegalArgumentException("文件哈希格式错误");
+            }
+        }
+
+        // 服务端已有相同内容时直接创建文档，无需传输分片
+        if (hash != null && storageBlobService.isEnabled()) {
+            Optional<String> existing = storageBlobService.acquire(hash, fileSize);
+            if (existing.isPresent()) {
+                UploadTask task = UploadTask.builder()
+                        .id(taskId)
+                        .fileName(fileName)
+                        .fileSize(fileSize)
+                        .fileType(fileType)
+                        .chunkSize(chunkSize)
+                        .totalChunks(totalChunks)
+                        .uploadedChunks(totalChunks)
+                        .caseId(caseId)
+                        .category(category)
+                        .remarks(remarks)
+                        .storageName(existing.get())
+                        .contentHash(hash)
+                        .createdAt(ZonedDateTime.now())
+                        .updatedAt(ZonedDateTime.now())
+                        .status(UploadTaskStatus.MERGED)
+                        .processedBytes(fileSize)
+                        .build();
+                Document document = createDocument(task, caseEntity);
+                task.setDocumentId(document.getId());
+                log.info("文件内容已存在，秒传完成: taskId={}, hash={}", taskId, hash);
+                return uploadTaskRepository.save(task);
+            }
+        }
+
+        // 暂存空间不足时拒绝新任务，已有任务不受影响
+        uploadAdmissionService.checkStagingBudget(fileSize);
+
+        String storageName = UUID.randomUUID().toString() + "_" + fileName;
 
         // 创建上传任务
         UploadTask task = UploadTask.builder()
@@ -73,24 +216,42 @@ public class ChunkedUploadServiceImpl implements ChunkedUploadService {
                 .fileName(fileName)
                 .fileSize(fileSize)
                 .fileType(fileType)
-                .chunkSize(defaultChunkSize)
+                .chunkSize(chunkSize)
                 .totalChunks(totalChunks)
                 .uploadedChunks(0)
+                .chunkBitmap(new byte[(totalChunks + 7) / 8])
+                .processedBytes(0L)
                 .caseId(caseId)
                 .category(category)
                 .remarks(remarks)
-                .storageName(UUID.randomUUID().toString() + "_" + fileName)
+                .storageName(storageName)
+                .contentHash(hash)
                 .createdAt(ZonedDateTime.now())
                 .updatedAt(ZonedDateTime.now())
                 .status(UploadTaskStatus.INITIALIZED)
                 .build();
 
+        // 创建分片暂存区，对象存储暂存时记录MinIO分片上传ID
+        try {
+            task.setUploadId(getConfiguredStaging().create(task));
+        } catch (StorageException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StorageException("创建分片暂存失败: " + e.getMessage(), e);
+        }
+
         return uploadTaskRepository.save(task);
     }
 
     @Override
-    @Transactional
     public ChunkResponse processChunk(ChunkDTO chunkDTO) throws Exception {
+        try (InputStream data = chunkDTO.getFile().getInputStream()) {
+            return processChunk(chunkDTO, data, chunkDTO.getFile().getSize());
+        }
+    }
+
+    @Override
+    public ChunkResponse processChunk(ChunkDTO chunkDTO, InputStream data, long size) throws Exception {
         String taskId = chunkDTO.getTaskId();
         int chunkNumber = chunkDTO.getChunkNumber();
 
@@ -104,98 +265,145 @@ public class ChunkedUploadServiceImpl implements ChunkedUploadService {
             throw new StorageException("上传任务状态异常: " + task.getStatus());
         }
 
-        // 保存分片到临时目录
-        String chunkFileName = getChunkFileName(taskId, chunkNumber);
-        File chunkFile = new File(chunkFileName);
-        try {
-            chunkDTO.getFile().transferTo(chunkFile);
-        } catch (IOException e) {
-            throw new StorageException("保存分片文件失败", e);
+        if (chunkNumber < 1 || chunkNumber > task.getTotalChunks()) {
+            throw new StorageException("分片序号超出范围: " + chunkNumber);
         }
 
-        // 更新任务状态
-        task.getUploadedChunkNumbers().add(chunkNumber);
-        task.setUploadedChunks(task.getUploadedChunkNumbers().size());
-        task.setStatus(UploadTaskStatus.IN_PROGRESS);
-        task.setUpdatedAt(ZonedDateTime.now());
-
-        // 检查是否所有分片都已上传
-        boolean completed = task.isAllChunksUploaded();
-        if (completed) {
-            task.setStatus(UploadTaskStatus.COMPLETED);
+        if (size != getExpectedChunkSize(task, chunkNumber)) {
+            throw new StorageException("分片大小不正确: " + size);
         }
 
-        uploadTaskRepository.save(task);
+        // 写入分片的同时计算分片校验值；分片按顺序到达时同时累计整个文件的SHA-256
+        ContentDigest contentDigest = contentDigests.computeIfAbsent(taskId, id -> new ContentDigest());
+        MessageDigest fileDigest = contentDigest.fork(chunkNumber);
+        long started = System.nanoTime();
+        ChunkChecksumInputStream is = new ChunkChecksumInputStream(data,
+                chunkDTO.getChecksum(), chunkDTO.getChecksumAlgorithm(), fileDigest);
+        getStaging(task).writeChunk(task, chunkNumber, is, size);
+        // 校验失败时分片不计为已上传，客户端重传后覆盖同一位置
+        is.verify(chunkNumber);
+        recordThroughput(size, System.nanoTime() - started);
+
+        // 在数据库中原子地标记分片并累计数量，所有分片到齐时任务切换为完成
+        // 分片写入不在事务内，每个分片只需一次短事务
+        Integer uploadedChunks = transactionTemplate.execute(status -> {
+            if (uploadTaskRepository.markChunkUploaded(taskId, chunkNumber - 1) == 0) {
+                return null;
+            }
+            return uploadTaskRepository.findUploadedChunksById(taskId);
+        });
+        if (uploadedChunks == null) {
+            throw new StorageException("上传任务状态异常: " + taskId);
+        }
+        contentDigest.advance(chunkNumber, fileDigest);
 
         // 构建响应
         return ChunkResponse.builder()
                 .taskId(taskId)
                 .chunkNumber(chunkNumber)
-                .uploadedChunks(task.getUploadedChunks())
+                .uploadedChunks(uploadedChunks)
                 .totalChunks(task.getTotalChunks())
-                .completed(completed)
+                .completed(uploadedChunks >= task.getTotalChunks())
                 .build();
     }
 
     @Override
-    @Transactional
-    public Document mergeChunks(String taskId) {
-        // 获取上传任务
+    public UploadTask mergeChunks(String taskId) {
         UploadTask task = uploadTaskRepository.findById(taskId)
                 .orElseThrow(() -> new ResourceNotFoundException("上传任务不存在"));
 
-        // 检查任务状态
-        if (task.getStatus() != UploadTaskStatus.COMPLETED) {
-            throw new StorageException("上传任务未完成，无法合并分片");
+        // 合并许可在后台合并结束时归还；被拒绝时任务保持完成状态，客户端稍后重试
+        Permit permit = uploadAdmissionService.acquireMerge();
+        boolean submitted = false;
+        try {
+            // 以条件更新切换到合并中，避免同一任务被重复合并
+            if (uploadTaskRepository.updateStatus(taskId, UploadTaskStatus.COMPLETED,
+                    UploadTaskStatus.MERGING, ZonedDateTime.now()) == 0) {
+                throw new StorageException("上传任务未完成，无法合并分片");
+            }
+
+            try {
+                uploadFinalizeExecutor.execute(() -> {
+                    try (permit) {
+                        finalizeUpload(taskId);
+                    }
+                });
+                submitted = true;
+            } catch (RejectedExecutionException e) {
+                uploadTaskRepository.updateStatus(taskId, UploadTaskStatus.MERGING,
+                        UploadTaskStatus.COMPLETED, ZonedDateTime.now());
+                throw new TooManyRequestsException("合并任务繁忙，请稍后重试",
+                        uploadAdmissionService.getRetryAfterSeconds());
+            }
+        } finally {
+            if (!submitted) {
+                permit.close();
+            }
         }
 
+        task.setStatus(UploadTaskStatus.MERGING);
+        return task;
+    }
+
+    /**
+     * 后台完成上传：合并存储对象并创建文档
+     * 存储I/O不在事务内执行，只有状态变更使用短事务
+     */
+    private void finalizeUpload(String taskId) {
+        // 已组装出的最终对象，合并未完成时删除
+        String assembled = null;
         try {
-            // 更新任务状态
-            task.setStatus(UploadTaskStatus.MERGING);
-            uploadTaskRepository.save(task);
-
-            // 使用本地文件合并方式，然后上传到MinIO
-            File mergedFile = mergeChunksToFile(task);
-            
-            // 上传合并后的文件到MinIO
-            try (FileInputStream fis = new FileInputStream(mergedFile)) {
-                minioService.uploadFile(fis, task.getStorageName(), mergedFile.length(), task.getFileType());
+            UploadTask task = uploadTaskRepository.findById(taskId)
+                    .orElseThrow(() -> new ResourceNotFoundException("上传任务不存在"));
+
+            // 分片全部按顺序到达本节点时文件哈希已在上传过程中算出
+            ContentDigest contentDigest = contentDigests.remove(taskId);
+            MessageDigest computed = contentDigest != null ? contentDigest.complete(task.getTotalChunks()) : null;
+            MessageDigest digest = computed != null ? computed : StorageBlobService.newSha256();
+
+            // 组装最终对象；文件哈希未算出时在组装过程中计算
+            String storageName = task.getStorageName();
+            getStaging(task).complete(task, computed == null ? digest : null, processed ->
+                    uploadTaskRepository.updateProcessedBytes(taskId, processed, ZonedDateTime.now()));
+            assembled = storageName;
+
+            // 与客户端初始化时提供的哈希比对
+            String hash = HexFormat.of().formatHex(digest.digest());
+            if (task.getContentHash() != null && !task.getContentHash().equals(hash)) {
+                throw new StorageException("文件哈希不一致: " + hash + "/" + task.getContentHash());
             }
-
-            // 创建文档记录
-            Case caseEntity = caseRepository.findById(task.getCaseId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Case", "id", task.getCaseId()));
-
-            Document document = new Document();
-            document.setCaseId(task.getCaseId());
-            document.setCaseEntity(caseEntity);
-            document.setFileName(task.getFileName());
-            document.setStorageName(task.getStorageName());
-            document.setFileType(task.getFileType());
-            document.setFileSize(task.getFileSize());
-            document.setUploadTime(ZonedDateTime.now());
-            document.setUpdatedAt(ZonedDateTime.now());
-            document.setCategory(task.getCategory());
-            document.setRemarks(task.getRemarks());
-            document.setSortOrder(0);
-            document.setVersion(1);
-
-            Document savedDoc = documentRepository.save(document);
-
-            // 更新任务状态
-            task.setStatus(UploadTaskStatus.MERGED);
-            uploadTaskRepository.save(task);
-
-            // 清理临时文件
-            cleanupChunks(taskId);
-            mergedFile.delete();
-
-            return savedDoc;
+            task.setContentHash(hash);
+
+            // 创建文档记录并更新任务状态
+            transactionTemplate.executeWithoutResult(status -> {
+                Case caseEntity = caseRepository.findById(task.getCaseId())
+                        .orElseThrow(() -> new ResourceNotFoundException("Case", "id", task.getCaseId()));
+                if (storageBlobService.isEnabled()) {
+                    try {
+                        task.setStorageName(storageBlobService.register(hash, task.getStorageName(), task.getFileSize()));
+                    } catch (Exception e) {
+                        throw new StorageException("登记存储对象失败", e);
+                    }
+                }
+                Document savedDoc = createDocument(task, caseEntity);
+
+                // 合并期间任务被取消或判定中断时回滚文档与登记
+                if (uploadTaskRepository.markMerged(taskId, savedDoc.getId(), task.getFileSize(), hash,
+                        task.getStorageName(), ZonedDateTime.now()) == 0) {
+                    throw new StorageException("上传任务已不在合并中: " + taskId);
+                }
+            });
+            assembled = null;
+
+            log.info("上传任务合并完成: {}", taskId);
         } catch (Exception e) {
-            // 更新任务状态为失败
-            task.setStatus(UploadTaskStatus.FAILED);
-            uploadTaskRepository.save(task);
-            throw new StorageException("合并分片失败: " + e.getMessage(), e);
+            log.error("合并分片失败: {}", taskId, e);
+            uploadTaskRepository.updateStatus(taskId, UploadTaskStatus.MERGING,
+                    UploadTaskStatus.FAILED, ZonedDateTime.now());
+            // 组装出的对象没有文档引用；与已有内容重复时登记过程中可能已被删除，重复删除无影响
+            if (assembled != null) {
+                storageBlobService.deleteObjects(List.of(assembled));
+            }
         }
     }
 
@@ -213,99 +421,352 @@ public class ChunkedUploadServiceImpl implements ChunkedUploadService {
 
         task.setStatus(UploadTaskStatus.CANCELED);
         uploadTaskRepository.save(task);
+        contentDigests.remove(taskId);
 
         // 清理临时文件
-        cleanupChunks(taskId);
+        getStaging(task).discard(task);
     }
 
     @Override
     @Scheduled(fixedDelayString = "${app.upload.cleanup-interval:3600000}") // 默认每小时执行一次
-    @Transactional
-    public void cleanupExpiredTasks() {
-        ZonedDateTime expiryTime = ZonedDateTime.now().minusHours(expireHours);
-        
-        List<UploadTaskStatus> statusesToClean = Arrays.asList(
-                UploadTaskStatus.INITIALIZED,
-                UploadTaskStatus.IN_PROGRESS,
-                UploadTaskStatus.FAILED,
-                UploadTaskStatus.CANCELED
-        );
-        
-        List<UploadTask> expiredTasks = uploadTaskRepository.findByStatusInAndCreatedAtBefore(
-                statusesToClean, expiryTime);
-        
-        for (UploadTask task : expiredTasks) {
-            try {
-                cleanupChunks(task.getId());
-                log.info("清理过期上传任务: {}", task.getId());
-            } catch (Exception e) {
-                log.error("清理过期上传任务失败: {}", task.getId(), e);
+    public UploadCleanupResult cleanupExpiredTasks() {
+        UploadCleanupResult result = new UploadCleanupResult();
+        if (!schedulerLockService.tryLock(CLEANUP_LOCK, Duration.ofMinutes(cleanupLockMinutes))) {
+            log.info("其他实例正在清理过期上传任务，跳过本次清理");
+            result.setSkipped(true);
+            return result;
+        }
+        try {
+            recoverStaleMerges(result);
+
+            // 超过过期时间没有任何进展的任务视为过期
+            ZonedDateTime expiryTime = ZonedDateTime.now().minusHours(expireHours);
+            deleteExpiredTasks(expiryTime, result);
+
+            for (ChunkStaging chunkStaging : List.of(localChunkStaging, objectStoreChunkStaging)) {
+                if (!chunkStaging.isAvailable()) {
+                    continue;
+                }
+                try {
+                    chunkStaging.sweepOrphans(expiryTime, result);
+                } catch (Exception e) {
+                    log.error("清理无主暂存数据失败", e);
+                }
             }
+
+            // 分片由其他节点合并时，本节点累计的哈希不会被取走，按空闲时间回收
+            long idleBefore = expiryTime.toInstant().toEpochMilli();
+            contentDigests.values().removeIf(digest -> digest.isIdleSince(idleBefore));
+
+            log.info("过期上传清理完成: 中断合并 {} 个, 删除任务 {} 个, 清理暂存 {} 个, 清理无主数据 {} 个, 回收 {} bytes",
+                    result.getRecoveredMerges(), result.getDeletedTasks(), result.getDiscardedStagings(),
+                    result.getOrphansRemoved(), result.getBytesReclaimed());
+        } finally {
+            schedulerLockService.unlock(CLEANUP_LOCK);
         }
-        
-        uploadTaskRepository.deleteAll(expiredTasks);
+        return result;
     }
 
     /**
-     * 计算总分片数
+     * 中断的合并：任务标记为失败，之后随失败任务过期清理暂存数据；
+     * 可能已组装出的最终对象没有文档引用，直接删除
      */
-    private int calculateTotalChunks(Long fileSize) {
-        return (int) Math.ceil((double) fileSize / defaultChunkSize);
+    private void recoverStaleMerges(UploadCleanupResult result) {
+        List<String> storageNames = uploadTaskRepository.failStaleMerges(
+                ZonedDateTime.now().minusMinutes(mergeLeaseMinutes));
+        if (storageNames.isEmpty()) {
+            return;
+        }
+        log.warn("合并中断的上传任务已标记为失败: {} 个", storageNames.size());
+        storageBlobService.deleteObjects(storageNames.stream().filter(Objects::nonNull).distinct().toList());
+        result.setRecoveredMerges(storageNames.size());
     }
 
     /**
-     * 创建分片目录
+     * 按ID分页删除过期任务，每页先批量删除任务记录，再并行清理这些任务的暂存数据
+     * 暂存清理失败只会留下无主数据，由后续的无主数据清理回收
      */
-    private void createChunkDir(String taskId) {
-        File dir = new File(getChunkDir(taskId));
-        if (!dir.exists()) {
-            dir.mkdirs();
+    private void deleteExpiredTasks(ZonedDateTime expiryTime, UploadCleanupResult result) {
+        List<String> statusNames = EXPIRED_STATUSES.stream().map(Enum::name).toList();
+        String afterId = "";
+        while (true) {
+            List<UploadTask> page = uploadTaskRepository.findExpired(
+                    EXPIRED_STATUSES, expiryTime, afterId, PageRequest.of(0, cleanupBatchSize));
+            if (page.isEmpty()) {
+                return;
+            }
+            afterId = page.get(page.size() - 1).getId();
+
+            Set<String> deleted = new HashSet<>(uploadTaskRepository.deleteExpired(
+                    page.stream().map(UploadTask::getId).toList(), statusNames, expiryTime));
+            result.setDeletedTasks(result.getDeletedTasks() + deleted.size());
+
+            CompletableFuture.allOf(page.stream()
+                    .filter(task -> deleted.contains(task.getId()))
+                    .map(task -> CompletableFuture.runAsync(() -> {
+                        contentDigests.remove(task.getId());
+                        result.addDiscarded(getStaging(task).discard(task));
+                    }, uploadCleanupExecutor))
+                    .toArray(CompletableFuture[]::new)).join();
         }
     }
 
     /**
-     * 获取分片目录
+     * 按分片顺序累计的文件SHA-256
+     * 下一个应到的分片从当前摘要的副本开始计算，分片写入并登记成功后才替换当前摘要，
+     * 重传或失败的分片不会污染摘要
      */
-    private String getChunkDir(String taskId) {
-        return tempDir + File.separator + taskId;
+    private static class ContentDigest {
+        private MessageDigest digest = StorageBlobService.newSha256();
+        private int nextChunk = 1;
+        private boolean broken;
+        private volatile long touchedAt = System.currentTimeMillis();
+
+        /**
+         * 分片是下一个应到的分片时返回摘要副本，否则返回null
+         */
+        synchronized MessageDigest fork(int chunkNumber) {
+            if (broken || chunkNumber != nextChunk) {
+                return null;
+            }
+            try {
+                return (MessageDigest) digest.clone();
+            } catch (CloneNotSupportedException e) {
+                broken = true;
+                return null;
+            }
+        }
+
+        /**
+         * 分片登记成功后推进摘要，越过下一个应到分片的分片使顺序累计失效
+         */
+        synchronized void advance(int chunkNumber, MessageDigest chunkDigest) {
+            touchedAt = System.currentTimeMillis();
+            if (chunkNumber < nextChunk) {
+                return;
+            }
+            if (chunkDigest != null && chunkNumber == nextChunk) {
+                digest = chunkDigest;
+                nextChunk++;
+            } else {
+                broken = true;
+            }
+        }
+
+        /**
+         * 指定时间之后是否没有再收到分片
+         */
+        boolean isIdleSince(long time) {
+            return touchedAt < time;
+        }
+
+        /**
+         * 所有分片都已按顺序累计时返回摘要，否则返回null
+         */
+        synchronized MessageDigest complete(int totalChunks) {
+            return !broken && nextChunk == totalChunks + 1 ? digest : null;
+        }
     }
 
     /**
-     * 获取分片文件名
+     * 读取分片时计算客户端要求的分片校验值，并同时更新文件摘要
      */
-    private String getChunkFileName(String taskId, int chunkNumber) {
-        return getChunkDir(taskId) + File.separator + chunkNumber;
+    private static class ChunkChecksumInputStream extends FilterInputStream {
+        private final String expected;
+        private final Checksum crc;
+        private final MessageDigest md5;
+        private final MessageDigest fileDigest;
+
+        ChunkChecksumInputStream(InputStream in, String checksum, String algorithm, MessageDigest fileDigest) {
+            super(in);
+            this.expected = StringUtils.hasText(checksum) ? checksum.trim().toLowerCase() : null;
+            this.fileDigest = fileDigest;
+            if (expected == null) {
+                crc = null;
+                md5 = null;
+            } else if ("CRC32C".equalsIgnoreCase(algorithm)
+                    || (!StringUtils.hasText(algorithm) && expected.length() == 8)) {
+                crc = new CRC32C();
+                md5 = null;
+            } else if ("MD5".equalsIgnoreCase(algorithm)
+                    || (!StringUtils.hasText(algorithm) && expected.length() == 32)) {
+                crc = null;
+                md5 = newDigest("MD5");
+            } else {
+                throw new IllegalArgumentException("不支持的分片校验算法: " + algorithm);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                if (crc != null) {
+                    crc.update(b);
+                }
+                if (md5 != null) {
+                    md5.update((byte) b);
+                }
+                if (fileDigest != null) {
+                    fileDigest.update((byte) b);
+                }
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                update(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            throw new IOException("分片数据不支持跳过");
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void update(byte[] b, int off, int len) {
+            if (crc != null) {
+                crc.update(b, off, len);
+            }
+            if (md5 != null) {
+                md5.update(b, off, len);
+            }
+            if (fileDigest != null) {
+                fileDigest.update(b, off, len);
+            }
+        }
+
+        /**
+         * 校验分片数据，不一致时抛出异常
+         */
+        void verify(int chunkNumber) {
+            if (expected == null) {
+                return;
+            }
+            String actual = crc != null
+                    ? String.format("%08x", crc.getValue())
+                    : HexFormat.of().formatHex(md5.digest());
+            if (!actual.equals(expected)) {
+                throw new StorageException("分片校验失败: chunk=" + chunkNumber + ", expected=" + expected
+                        + ", actual=" + actual);
+            }
+        }
+
+        private static MessageDigest newDigest(String algorithm) {
+            try {
+                return MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
     }
 
     /**
-     * 清理分片文件
+     * 根据上传任务创建文档记录
      */
-    private void cleanupChunks(String taskId) {
-        try {
-            Path chunkDirPath = Paths.get(getChunkDir(taskId));
-            if (Files.exists(chunkDirPath)) {
-                FileUtils.deleteDirectory(new File(getChunkDir(taskId)));
-            }
-        } catch (IOException e) {
-            log.error("清理分片文件失败: {}", taskId, e);
+    private Document createDocument(UploadTask task, Case caseEntity) {
+        Document document = new Document();
+        document.setCaseId(task.getCaseId());
+        document.setCaseEntity(caseEntity);
+        document.setFileName(task.getFileName());
+        document.setStorageName(task.getStorageName());
+        document.setContentHash(task.getContentHash());
+        document.setFileType(task.getFileType());
+        document.setFileSize(task.getFileSize());
+        document.setUploadTime(ZonedDateTime.now());
+        document.setUpdatedAt(ZonedDateTime.now());
+        document.setCategory(task.getCategory());
+        document.setRemarks(task.getRemarks());
+        document.setSortOrder(documentRepository.nextSortOrder(task.getCaseId(), DocumentOrderService.GAP));
+        document.setVersion(1);
+        return documentRepository.save(document);
+    }
+
+    /**
+     * 计算总分片数
+     */
+    private int calculateTotalChunks(long fileSize, int chunkSize) {
+        return (int) Math.ceil((double) fileSize / chunkSize);
+    }
+
+    /**
+     * 确定分片大小
+     * 以默认分片大小（对象存储暂存时不小于S3最小分片）为下限；客户端有吞吐记录时使单个分片约在目标时间内传完；
+     * 分片数不超过上限（同时受S3分片数上限约束），结果按1MB向上取整且不超过最大分片大小
+     */
+    private int chooseChunkSize(long fileSize) {
+        long partLimit = Math.min(maxChunks, MinioService.MAX_PARTS);
+        // 对象存储暂存时分片不能小于S3最小分片
+        long minSize = getConfiguredStaging() == objectStoreChunkStaging
+                ? Math.max(defaultChunkSize, MinioService.MIN_PART_SIZE) : defaultChunkSize;
+        long size = minSize;
+
+        Double throughput = currentClient().map(clientThroughput::get).orElse(null);
+        if (throughput != null) {
+            size = Math.max(size, (long) (throughput * targetChunkSeconds));
+        }
+        size = Math.max(size, (fileSize + partLimit - 1) / partLimit);
+        size = (size + CHUNK_SIZE_UNIT - 1) / CHUNK_SIZE_UNIT * CHUNK_SIZE_UNIT;
+        size = Math.max(minSize, Math.min(size, maxChunkSize));
+
+        if ((fileSize + size - 1) / size > partLimit) {
+            throw new IllegalArgumentException("文件过大，超过分片上传上限: " + fileSize);
         }
+        return (int) size;
     }
 
     /**
-     * 合并分片为文件
+     * 记录当前客户端的分片接收吞吐
      */
-    private File mergeChunksToFile(UploadTask task) throws IOException {
-        String taskId = task.getId();
-        int totalChunks = task.getTotalChunks();
-        
-        File mergedFile = new File(tempDir + File.separator + "merged_" + taskId);
-        try (FileOutputStream fos = new FileOutputStream(mergedFile)) {
-            for (int i = 1; i <= totalChunks; i++) {
-                File chunkFile = new File(getChunkFileName(taskId, i));
-                Files.copy(chunkFile.toPath(), fos);
-            }
+    private void recordThroughput(long bytes, long nanos) {
+        if (bytes < THROUGHPUT_SAMPLE_MIN_BYTES || nanos <= 0) {
+            return;
         }
-        
-        return mergedFile;
+        double sample = bytes * 1e9 / nanos;
+        currentClient().ifPresent(client -> clientThroughput.merge(client, sample,
+                (previous, current) -> previous * (1 - THROUGHPUT_SMOOTHING) + current * THROUGHPUT_SMOOTHING));
+    }
+
+    /**
+     * 当前登录用户名，用于区分客户端
+     */
+    private Optional<String> currentClient() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(authentication.getName());
+    }
+
+    /**
+     * 获取分片的预期大小，除最后一个分片外均为任务的分片大小
+     */
+    private long getExpectedChunkSize(UploadTask task, int chunkNumber) {
+        long offset = (long) (chunkNumber - 1) * task.getChunkSize();
+        return Math.min(task.getChunkSize(), task.getFileSize() - offset);
+    }
+
+    /**
+     * 新建任务使用的分片暂存，存储后端不支持对象存储暂存时使用文件暂存
+     */
+    private ChunkStaging getConfiguredStaging() {
+        return LOCAL_STAGING.equals(staging) || !objectStoreChunkStaging.isAvailable()
+                ? localChunkStaging : objectStoreChunkStaging;
+    }
+
+    /**
+     * 任务创建时选定的分片暂存，有MinIO分片上传ID的任务使用对象存储暂存
+     */
+    private ChunkStaging getStaging(UploadTask task) {
+        return task.getUploadId() != null ? objectStoreChunkStaging : localChunkStaging;
     }
-} 
\ No newline at end of file
+}
@@ -1,42 +1,137 @@
 package com.lawfirm.archive.service.impl;
 
+import com.lawfirm.archive.dto.BatchResultDto;
+import com.lawfirm.archive.dto.DocumentPageDto;
+import com.lawfirm.archive.dto.DocumentSummaryDto;
 import com.lawfirm.archive.exception.ResourceNotFoundException;
 import com.lawfirm.archive.exception.StorageException;
 import com.lawfirm.archive.model.Document;
 import com.lawfirm.archive.model.Case;
 import com.lawfirm.archive.repository.DocumentRepository;
 import com.lawfirm.archive.repository.CaseRepository;
+import com.lawfirm.archive.service.DocumentDiskCache;
+import com.lawfirm.archive.service.DocumentOrderService;
 import com.lawfirm.archive.service.DocumentService;
-import com.lawfirm.archive.service.MinioService;
+import com.lawfirm.archive.service.StorageBackend;
+import com.lawfirm.archive.service.StorageBlobService;
+import com.lawfirm.archive.service.StorageGcService;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
-import java.util.ArrayList;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DocumentServiceImpl implements DocumentService {
+    /**
+     * 流式传输缓冲区大小
+     */
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 批量下载时每个对象预读的字节数
+     */
+    private static final int PREFETCH_HEAD_SIZE = 1024 * 1024;
+
+    /**
+     * 已压缩的文件格式，打包时不再压缩
+     */
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "pdf", "jpg", "jpeg", "png", "gif", "webp", "heic", "tif", "tiff",
+            "zip", "rar", "7z", "gz", "bz2", "xz",
+            "docx", "xlsx", "pptx", "ofd",
+            "mp3", "mp4", "m4a", "mov", "avi", "wmv", "amr");
+
     private final DocumentRepository documentRepository;
     private final CaseRepository caseRepository;
-    private final MinioService minioService;
+    private final StorageBackend storageBackend;
+    private final StorageBlobService storageBlobService;
+    private final DocumentDiskCache documentDiskCache;
+    private final StorageGcService storageGcService;
+    @Qualifier("downloadPrefetchExecutor")
+    private final ExecutorService downloadPrefetchExecutor;
+
+    /**
+     * 批量下载时当前文件之后预取的文件数，至少为1
+     */
+    @Value("${app.download.prefetch-depth:3}")
+    private int prefetchDepth;
+
+    @Value("${app.document.page.max-size:500}")
+    private int maxPageSize;
+
+    @PostConstruct
+    public void checkPrefetchDepth() {
+        if (prefetchDepth < 1) {
+            throw new IllegalStateException("app.download.prefetch-depth 不能小于1: " + prefetchDepth);
+        }
+    }
 
     @Override
     public List<Document> getDocumentsByCase(Long caseId) {
         return documentRepository.findByCaseEntityIdOrderBySortOrderAsc(caseId);
     }
 
+    /**
+     * 按 (sortOrder, id) 翻页查询案件文档，从上一页最后一条之后继续读取，不随页数增加扫描量
+     * 上传日期按服务器时区的自然日计算，结束日期包含当天
+     */
+    @Override
+    public DocumentPageDto getDocumentPage(Long caseId, String category, String fileType,
+                                           LocalDate uploadedFrom, LocalDate uploadedTo,
+                                           Integer afterSortOrder, Long afterId, int limit) {
+        int size = Math.max(1, Math.min(limit, maxPageSize));
+        ZoneId zone = ZoneId.systemDefault();
+        // 多查询一条用于判断是否还有下一页
+        List<DocumentSummaryDto> items = documentRepository.findSummaries(caseId, category, fileType,
+                uploadedFrom == null ? null : uploadedFrom.atStartOfDay(zone),
+                uploadedTo == null ? null : uploadedTo.plusDays(1).atStartOfDay(zone),
+                afterSortOrder, afterId, size + 1);
+
+        boolean hasMore = items.size() > size;
+        if (hasMore) {
+            items = items.subList(0, size);
+        }
+        DocumentSummaryDto last = hasMore ? items.get(size - 1) : null;
+        return DocumentPageDto.builder()
+                .items(items)
+                .hasMore(hasMore)
+                .nextSortOrder(last == null ? null : last.getSortOrder())
+                .nextId(last == null ? null : last.getId())
+                .build();
+    }
+
     @Override
     @Transactional
     public Document uploadDocument(MultipartFile file, Long caseId, String category, String remarks) throws Exception {
@@ -48,19 +143,18 @@ public class DocumentServiceImpl implements DocumentService {
                 .orElseThrow(() -> new ResourceNotFoundException("Case", "id", caseId));
 
         try {
-            String storageName = minioService.uploadFile(file);
-            
             Document doc = new Document();
+            storageBlobService.store(file, doc);
+            
             doc.setCaseId(caseId);
             doc.setCaseEntity(caseEntity);
             doc.setFileName(file.getOriginalFilename());
-            doc.setStorageName(storageName);
             doc.setFileType(file.getContentType());
             doc.setFileSize(file.getSize());
             doc.setUploadTime(ZonedDateTime.now());
             doc.setCategory(category);
             doc.setRemarks(remarks);
-            doc.setSortOrder(0);
+            doc.setSortOrder(documentRepository.nextSortOrder(caseId, DocumentOrderService.GAP));
             doc.setVersion(1);
             doc.setUpdatedAt(ZonedDateTime.now());
             
@@ -72,13 +166,33 @@ public class DocumentServiceImpl implements DocumentService {
     }
 
     @Override
-    public byte[] downloadDocument(Long id) throws Exception {
-        Document doc = documentRepository.findById(id)
+    public Document getDocument(Long id) {
+        return documentRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Document", "id", id));
-        
-        try (InputStream is = minioService.downloadFile(doc.getStorageName())) {
-            return IOUtils.toByteArray(is);
+    }
+
+    @Override
+    public long getContentLength(Document doc) throws Exception {
+        if (doc.getFileSize() != null) {
+            return doc.getFileSize();
+        }
+        return storageBackend.stat(doc.getStorageName()).size();
+    }
+
+    @Override
+    public void writeDocument(Document doc, long offset, long length, OutputStream out) throws IOException {
+        if (length <= 0) {
+            return;
+        }
+        // 经本地磁盘缓存或由存储后端直接拷贝到响应流，内存占用与文件大小无关
+        try {
+            documentDiskCache.transferTo(doc.getStorageName(), doc.getFileSize(), offset, length, out);
+            out.flush();
         } catch (IOException e) {
+            // 客户端中断连接（如PDF阅读器跳页）属于正常情况
+            log.warn("文件传输中断: {}, {}", doc.getFileName(), e.getMessage());
+            throw e;
+        } catch (Exception e) {
             log.error("文件下载失败", e);
             throw new StorageException("文件下载失败: " + e.getMessage(), e);
         }
@@ -89,105 +203,226 @@ public class DocumentServiceImpl implements DocumentService {
     public void deleteDocument(Long id) throws Exception {
         Document doc = documentRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Document", "id", id));
-        
-        try {
-            minioService.deleteFile(doc.getStorageName());
-            documentRepository.delete(doc);
-        } catch (Exception e) {
-            log.error("文件删除失败", e);
-            throw new StorageException("文件删除失败: " + e.getMessage(), e);
+        softDelete(List.of(doc));
+    }
+
+    @Override
+    public List<Document> getDocuments(List<Long> ids) {
+        // 一次查询加载全部元数据，并按请求顺序返回
+        Map<Long, Document> byId = documentRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Document::getId, Function.identity()));
+        List<Document> documents = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Document doc = byId.get(id);
+            if (doc == null) {
+                throw new ResourceNotFoundException("Document", "id", id);
+            }
+            documents.add(doc);
         }
+        return documents;
     }
 
     @Override
-    public byte[] batchDownloadDocuments(List<Long> ids) throws Exception {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ZipOutputStream zipOut = new ZipOutputStream(baos);
-        
-        try {
-            for (Long id : ids) {
-                Document doc = documentRepository.findById(id)
-                        .orElseThrow(() -> new ResourceNotFoundException("Document", "id", id));
-                        
-                try (InputStream is = minioService.downloadFile(doc.getStorageName())) {
-                    ZipEntry zipEntry = new ZipEntry(doc.getFileName());
-                    zipOut.putNextEntry(zipEntry);
-                    IOUtils.copy(is, zipOut);
+    public void writeDocumentsZip(List<Document> documents, OutputStream out) throws IOException {
+        Deque<Future<InputStream>> prefetched = new ArrayDeque<>();
+        Set<String> entryNames = new HashSet<>();
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        int next = 0;
+
+        try (ZipOutputStream zipOut = new ZipOutputStream(out)) {
+            // 当前写入的对象之后，最多预取 prefetchDepth 个对象
+            while (next < documents.size() && prefetched.size() < prefetchDepth) {
+                prefetched.add(prefetch(documents.get(next++)));
+            }
+
+            for (Document doc : documents) {
+                Future<InputStream> current = prefetched.poll();
+                if (next < documents.size()) {
+                    prefetched.add(prefetch(documents.get(next++)));
+                }
+
+                try (InputStream is = awaitPrefetch(current, doc)) {
+                    // 已压缩格式不再压缩，仅存储
+                    zipOut.setLevel(isCompressedType(doc) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+                    zipOut.putNextEntry(new ZipEntry(uniqueEntryName(doc.getFileName(), entryNames)));
+                    int read;
+                    while ((read = is.read(buffer)) != -1) {
+                        zipOut.write(buffer, 0, read);
+                    }
                     zipOut.closeEntry();
                 }
             }
-            
-            zipOut.close();
-            return baos.toByteArray();
         } catch (IOException e) {
-            log.error("批量下载文件失败", e);
-            throw new StorageException("批量下载文件失败: " + e.getMessage(), e);
+            log.warn("批量下载传输中断: {}", e.getMessage());
+            throw e;
+        } finally {
+            // 释放未使用的预取连接：已完成的直接关闭；未完成的取消，由预取任务在结束时自行关闭，不等待其连接与预读
+            for (Future<InputStream> future : prefetched) {
+                if (!future.cancel(true) && future.state() == Future.State.SUCCESS) {
+                    closeQuietly(future.resultNow());
+                }
+            }
         }
     }
 
+    /**
+     * 在预取线程池中打开存储对象，并预读开头的一段数据
+     * 返回的Future被取消时中断预取；已打开的对象由预取任务关闭
+     */
+    private Future<InputStream> prefetch(Document doc) {
+        CompletableFuture<InputStream> result = new CompletableFuture<>();
+        Future<?> task = downloadPrefetchExecutor.submit(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            InputStream is = null;
+            try {
+                is = storageBackend.get(doc.getStorageName());
+                byte[] head = is.readNBytes(PREFETCH_HEAD_SIZE);
+                InputStream stream = new SequenceInputStream(new ByteArrayInputStream(head), is);
+                if (!result.complete(stream)) {
+                    closeQuietly(stream);
+                }
+            } catch (Exception e) {
+                if (is != null) {
+                    closeQuietly(is);
+                }
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((stream, e) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static void closeQuietly(InputStream is) {
+        try {
+            is.close();
+        } catch (IOException ignored) {
+            // 只用于释放连接
+        }
+    }
+
+    private InputStream awaitPrefetch(Future<InputStream> future, Document doc) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("批量下载被中断", e);
+        } catch (ExecutionException e) {
+            log.error("批量下载文件失败: {}", doc.getFileName(), e.getCause());
+            throw new StorageException("批量下载文件失败: " + doc.getFileName(), e.getCause());
+        }
+    }
+
+    /**
+     * 生成不重复的压缩包条目名，重名文件追加序号，如 a (1).pdf
+     */
+    private String uniqueEntryName(String fileName, Set<String> used) {
+        String name = fileName;
+        String base = fileName;
+        String ext = "";
+        int dot = fileName.lastIndexOf('.');
+        if (dot > 0) {
+            base = fileName.substring(0, dot);
+            ext = fileName.substring(dot);
+        }
+        for (int i = 1; !used.add(name.toLowerCase()); i++) {
+            name = base + " (" + i + ")" + ext;
+        }
+        return name;
+    }
+
+    /**
+     * 判断文件是否为已压缩格式
+     */
+    private boolean isCompressedType(Document doc) {
+        String name = doc.getFileName() == null ? "" : doc.getFileName().toLowerCase();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1));
+    }
+
+    /**
+     * 一条UPDATE语句更新备注，不逐条加载文档；不存在或已删除的文档计入失败数
+     */
     @Override
     @Transactional
-    public void batchUpdateRemarks(List<Long> ids, String remarks) {
-        List<Document> documents = documentRepository.findAllById(ids);
-        if (documents.size() != ids.size()) {
-            throw new ResourceNotFoundException("部分文档不存在");
-        }
-        
-        ZonedDateTime now = ZonedDateTime.now();
-        documents.forEach(doc -> {
-            doc.setRemarks(remarks);
-            doc.setUpdatedAt(now);
-        });
-        
-        documentRepository.saveAll(documents);
+    public BatchResultDto batchUpdateRemarks(List<Long> ids, String remarks) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        int updated = documentRepository.updateRemarks(distinctIds, remarks, ZonedDateTime.now());
+        return batchResult(distinctIds.size(), updated, "备注");
     }
 
+    /**
+     * 一条UPDATE语句更新分类，不逐条加载文档；不存在或已删除的文档计入失败数
+     */
     @Override
     @Transactional
-    public void batchUpdateCategory(List<Long> ids, String category) {
-        List<Document> documents = documentRepository.findAllById(ids);
-        if (documents.size() != ids.size()) {
-            throw new ResourceNotFoundException("部分文档不存在");
-        }
-        
-        ZonedDateTime now = ZonedDateTime.now();
-        documents.forEach(doc -> {
-            doc.setCategory(category);
-            doc.setUpdatedAt(now);
-        });
-        
-        documentRepository.saveAll(documents);
+    public BatchResultDto batchUpdateCategory(List<Long> ids, String category) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        int updated = documentRepository.updateCategory(distinctIds, category, ZonedDateTime.now());
+        return batchResult(distinctIds.size(), updated, "分类");
+    }
+
+    /**
+     * 拖拽排序后批量更新排序值，每批文档一条UPDATE语句；不属于该案件的文档计入失败数
+     */
+    @Override
+    @Transactional
+    public BatchResultDto batchUpdateSortOrder(Long caseId, Map<Long, Integer> sortOrders) {
+        int updated = documentRepository.updateSortOrders(caseId, sortOrders);
+        return batchResult(sortOrders.size(), updated, "排序");
+    }
+
+    private BatchResultDto batchResult(int requested, int updated, String field) {
+        return BatchResultDto.builder()
+                .successCount(updated)
+                .failCount(requested - updated)
+                .message(String.format("成功更新%d个文档%s，失败%d个", updated, field, requested - updated))
+                .build();
     }
 
+    /**
+     * 批量删除文档，只更新数据库，存储对象由 {@link StorageGcService} 在宽限期后删除
+     */
     @Override
     @Transactional
     public void batchDelete(List<Long> ids) throws Exception {
-        List<Document> documents = documentRepository.findAllById(ids);
-        if (documents.size() != ids.size()) {
+        // 重复的ID（如重复点击、合并的选择）只删除一次
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        List<Document> documents = documentRepository.findAllById(distinctIds);
+        if (documents.size() != distinctIds.size()) {
             throw new ResourceNotFoundException("部分文档不存在");
         }
-        
-        StringBuilder errors = new StringBuilder();
-        List<Document> successfullyDeletedDocs = new ArrayList<>();
-        
-        // 第一阶段：尝试删除所有MinIO中的文件
-        for (Document doc : documents) {
-            try {
-                minioService.deleteFile(doc.getStorageName());
-                successfullyDeletedDocs.add(doc);
-            } catch (Exception e) {
-                log.error("删除文件失败: {}", doc.getFileName(), e);
-                errors.append(doc.getFileName()).append(": ").append(e.getMessage()).append("\n");
-            }
-        }
-        
-        // 如果有任何文件删除失败，回滚事务
-        if (errors.length() > 0) {
-            throw new StorageException("部分文件删除失败:\n" + errors.toString());
-        }
-        
-        // 所有文件删除成功，现在删除数据库记录
-        documentRepository.deleteAll(documents);
+        softDelete(documents);
+    }
+
+    /**
+     * 删除案件及其全部文档
+     * 案件删除后文档无法恢复，直接删除文档记录（包括已软删除的），存储对象同样登记到回收队列
+     */
+    @Override
+    @Transactional
+    public void deleteCase(Long caseId) {
+        Case caseEntity = caseRepository.findById(caseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Case", "id", caseId));
+        List<Document> documents = documentRepository.findByCaseEntityIdOrderBySortOrderAsc(caseId);
+        storageGcService.enqueue(storageBlobService.releaseAll(documents));
+        documentRepository.deleteByCaseId(caseId);
+        caseRepository.delete(caseEntity);
+        log.info("删除案件: {}, 文档 {} 个", caseId, documents.size());
+    }
+
+    /**
+     * 软删除文档：释放存储对象引用，已无引用的对象登记到回收队列，再标记删除时间
+     * 文档记录在宽限期后由 {@link StorageGcService} 清除
+     */
+    private void softDelete(List<Document> documents) {
+        storageGcService.enqueue(storageBlobService.releaseAll(documents));
+        documentRepository.markDeleted(documents.stream().map(Document::getId).toList(), ZonedDateTime.now());
     }
 
     @Override
@@ -222,11 +457,4 @@ public class DocumentServiceImpl implements DocumentService {
         doc.setUpdatedAt(ZonedDateTime.now());
         return documentRepository.save(doc);
     }
-
-    @Override
-    public byte[] previewDocument(Long id) throws Exception {
-        // 预览文档，可以进行格式转换或其他处理以适应预览需求
-        // 目前简单实现与下载相同
-        return downloadDocument(id);
-    }
-} 
\ No newline at end of file
+}
\ No newline at end of file
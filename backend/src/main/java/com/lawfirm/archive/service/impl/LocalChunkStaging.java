@@ -0,0 +1,189 @@
+package com.lawfirm.archive.service.impl;
+
+import com.lawfirm.archive.dto.UploadCleanupResult;
+import com.lawfirm.archive.exception.StorageException;
+import com.lawfirm.archive.model.UploadTask;
+import com.lawfirm.archive.repository.UploadTaskRepository;
+import com.lawfirm.archive.service.ChunkStaging;
+import com.lawfirm.archive.service.StorageBackend;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.ZonedDateTime;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 文件暂存：分片按偏移写入预分配的临时文件，合并时整体写入存储后端
+ * 临时目录只在本节点可见；多节点部署时需将 app.upload.temp-dir 指向共享卷
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LocalChunkStaging implements ChunkStaging {
+
+    private static final String STAGING_PREFIX = "upload_";
+
+    private static final String LEGACY_MERGED_PREFIX = "merged_";
+
+    private static final Pattern TASK_ID_PATTERN =
+            Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    private final StorageBackend storageBackend;
+    private final UploadTaskRepository uploadTaskRepository;
+
+    @Value("${app.upload.temp-dir:temp}")
+    private String tempDir;
+
+    @Override
+    public String create(UploadTask task) {
+        try {
+            Files.createDirectories(Paths.get(tempDir));
+            try (RandomAccessFile file = new RandomAccessFile(getStagingFile(task.getId()).toFile(), "rw")) {
+                file.setLength(task.getFileSize());
+            }
+        } catch (IOException e) {
+            throw new StorageException("创建上传临时文件失败", e);
+        }
+        return null;
+    }
+
+    /**
+     * 将分片写入临时文件的对应偏移
+     * 使用按位置写入，不改变通道位置，多个分片可并发写入同一文件
+     */
+    @Override
+    public void writeChunk(UploadTask task, int chunkNumber, InputStream data, long size) throws IOException {
+        long position = (long) (chunkNumber - 1) * task.getChunkSize();
+        // 数据流由调用方关闭
+        ReadableByteChannel source = Channels.newChannel(data);
+        try (FileChannel channel = FileChannel.open(getStagingFile(task.getId()), StandardOpenOption.WRITE)) {
+            long written = 0;
+            while (written < size) {
+                long transferred = channel.transferFrom(source, position + written, size - written);
+                if (transferred <= 0) {
+                    break;
+                }
+                written += transferred;
+            }
+            if (written != size) {
+                throw new StorageException("分片数据不完整: " + written + "/" + size);
+            }
+        } catch (NoSuchFileException e) {
+            throw new StorageException("上传临时文件不存在: " + task.getId(), e);
+        }
+    }
+
+    /**
+     * 所有分片已按偏移写入临时文件，无需合并，直接写入存储后端
+     * 需要计算文件哈希时在上传的同一遍读取中计算
+     */
+    @Override
+    public void complete(UploadTask task, MessageDigest digest, LongConsumer progress) throws Exception {
+        Path stagingFile = getStagingFile(task.getId());
+        InputStream source = Files.newInputStream(stagingFile);
+        if (digest != null) {
+            source = new DigestInputStream(source, digest);
+        }
+        try (InputStream is = new ProgressInputStream(source, progress)) {
+            storageBackend.put(task.getStorageName(), is, Files.size(stagingFile), task.getFileType());
+        }
+        discard(task);
+    }
+
+    @Override
+    public long discard(UploadTask task) {
+        return delete(getStagingFile(task.getId())) + delete(Paths.get(getChunkDir(task.getId())));
+    }
+
+    /**
+     * 清理临时目录中没有对应任务的临时文件、旧版分片目录，以及旧版合并文件
+     * 只处理修改时间早于指定时间的条目，避免误删刚创建、任务尚未入库的暂存
+     */
+    @Override
+    public void sweepOrphans(ZonedDateTime before, UploadCleanupResult result) throws IOException {
+        Path dir = Paths.get(tempDir);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> entries = Files.list(dir)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                if (Files.getLastModifiedTime(entry).toInstant().isAfter(before.toInstant())) {
+                    continue;
+                }
+                String name = entry.getFileName().toString();
+                // 旧版合并流程已不再使用，遗留的合并文件一律清理
+                boolean legacyMerged = name.startsWith(LEGACY_MERGED_PREFIX);
+                String taskId = taskIdOf(entry);
+                if (legacyMerged || (taskId != null && !uploadTaskRepository.existsById(taskId))) {
+                    long bytes = delete(entry);
+                    result.addOrphan(bytes);
+                    log.info("清理无主上传临时文件: {}, {} bytes", entry, bytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * 由临时目录条目名得到任务ID：upload_{id} 临时文件、{id} 旧版分片目录
+     * 任务ID均为UUID，其他条目不属于上传暂存，返回null
+     */
+    private static String taskIdOf(Path entry) {
+        String name = entry.getFileName().toString();
+        String taskId = name.startsWith(STAGING_PREFIX) ? name.substring(STAGING_PREFIX.length())
+                : Files.isDirectory(entry) ? name : null;
+        return taskId != null && TASK_ID_PATTERN.matcher(taskId).matches() ? taskId : null;
+    }
+
+    /**
+     * 删除文件或目录，返回释放的字节数
+     */
+    private long delete(Path path) {
+        try {
+            if (Files.isDirectory(path)) {
+                long size = FileUtils.sizeOfDirectory(path.toFile());
+                FileUtils.deleteDirectory(path.toFile());
+                return size;
+            }
+            long size = Files.exists(path) ? Files.size(path) : 0;
+            Files.deleteIfExists(path);
+            return size;
+        } catch (IOException | UncheckedIOException e) {
+            log.error("清理分片文件失败: {}", path, e);
+            return 0;
+        }
+    }
+
+    /**
+     * 获取上传临时文件
+     */
+    private Path getStagingFile(String taskId) {
+        return Paths.get(tempDir, STAGING_PREFIX + taskId);
+    }
+
+    /**
+     * 获取分片目录（旧版本按分片单独存放文件）
+     */
+    private String getChunkDir(String taskId) {
+        return tempDir + File.separator + taskId;
+    }
+}
@@ -0,0 +1,210 @@
+package com.lawfirm.archive.service.impl;
+
+import com.lawfirm.archive.exception.ResourceNotFoundException;
+import com.lawfirm.archive.exception.StorageException;
+import com.lawfirm.archive.service.StorageBackend;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 本地文件系统存储后端，对象名即相对于根目录的路径
+ * 写入先落到临时文件再原子移动到目标位置，读取方不会看到写了一半的对象；不保存内容类型
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "local")
+public class LocalStorageBackend implements StorageBackend {
+
+    /**
+     * 写入中的临时文件目录，位于根目录下以保证可以原子移动
+     */
+    private static final String TEMP_DIR = ".tmp";
+
+    private final Path root;
+
+    private final Path tempDir;
+
+    public LocalStorageBackend(@Value("${app.storage.local.root-dir:storage}") String rootDir) throws IOException {
+        this.root = Paths.get(rootDir).toAbsolutePath().normalize();
+        this.tempDir = root.resolve(TEMP_DIR);
+        Files.createDirectories(tempDir);
+    }
+
+    @Override
+    public void put(String name, InputStream data, long size, String contentType) throws IOException {
+        Path target = resolve(name);
+        Path temp = Files.createTempFile(tempDir, "put-", null);
+        try {
+            ReadableByteChannel source = Channels.newChannel(data);
+            long written = 0;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (written < size) {
+                    long transferred = channel.transferFrom(source, written, size - written);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    written += transferred;
+                }
+                channel.force(false);
+            }
+            if (written != size) {
+                throw new StorageException("写入数据不完整: " + written + "/" + size);
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream get(String name) throws IOException {
+        return Channels.newInputStream(open(name));
+    }
+
+    @Override
+    public InputStream get(String name, long offset, long length) throws IOException {
+        FileChannel channel = open(name);
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new BoundedInputStream(Channels.newInputStream(channel), length);
+    }
+
+    /**
+     * 输出文件内容，见 {@link #transferFile}
+     */
+    @Override
+    public void transferTo(String name, long offset, long length, OutputStream out) throws IOException {
+        try (FileChannel channel = open(name)) {
+            transferFile(channel, offset, length, out);
+        }
+    }
+
+    /**
+     * 将文件的指定范围写入输出流，不关闭输出流
+     * 目标为文件时以 {@link FileChannel#transferTo} 由内核直接拷贝；Servlet响应流等其他输出流不是套接字通道，
+     * transferTo 只能经JDK的8KB缓冲区分段拷贝，因此改为以 {@link #TRANSFER_BUFFER_SIZE} 的缓冲区按位置读取后写出
+     */
+    public static void transferFile(FileChannel channel, long offset, long length, OutputStream out) throws IOException {
+        long position = offset;
+        long end = offset + length;
+        if (out instanceof FileOutputStream fileOut) {
+            FileChannel target = fileOut.getChannel();
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    throw new StorageException("文件长度不足: " + position + "/" + end);
+                }
+                position += transferred;
+            }
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(TRANSFER_BUFFER_SIZE, Math.max(length, 1)));
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                throw new StorageException("文件长度不足: " + position + "/" + end);
+            }
+            out.write(buffer.array(), 0, read);
+            position += read;
+        }
+    }
+
+    @Override
+    public ObjectInfo stat(String name) throws IOException {
+        try {
+            return toObjectInfo(name, resolve(name));
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("存储对象不存在: " + name);
+        }
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        Files.deleteIfExists(resolve(name));
+    }
+
+    @Override
+    public List<DeleteFailure> deleteAll(Collection<String> names) {
+        List<DeleteFailure> failed = new ArrayList<>();
+        for (String name : names) {
+            try {
+                delete(name);
+            } catch (IOException | StorageException e) {
+                failed.add(new DeleteFailure(name, e.getMessage()));
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public Stream<ObjectInfo> list(String prefix) throws IOException {
+        return Files.walk(root)
+                .filter(path -> !path.startsWith(tempDir) && Files.isRegularFile(path))
+                .map(path -> {
+                    String name = root.relativize(path).toString().replace(File.separatorChar, '/');
+                    try {
+                        return toObjectInfo(name, path);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .filter(info -> prefix == null || info.name().startsWith(prefix));
+    }
+
+    private FileChannel open(String name) throws IOException {
+        try {
+            return FileChannel.open(resolve(name), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("存储对象不存在: " + name);
+        }
+    }
+
+    private static ObjectInfo toObjectInfo(String name, Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return new ObjectInfo(name, attributes.size(),
+                ZonedDateTime.ofInstant(attributes.lastModifiedTime().toInstant(), ZoneId.systemDefault()));
+    }
+
+    /**
+     * 由对象名得到文件路径，对象名不能指向根目录之外
+     */
+    private Path resolve(String name) {
+        Path path = root.resolve(name).normalize();
+        if (!path.startsWith(root) || path.equals(root) || path.startsWith(tempDir)) {
+            throw new StorageException("非法的对象名: " + name);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,80 @@
+package com.lawfirm.archive.service.impl;
+
+import com.lawfirm.archive.exception.StorageException;
+import com.lawfirm.archive.service.MinioService;
+import com.lawfirm.archive.service.StorageBackend;
+import io.minio.Result;
+import io.minio.StatObjectResponse;
+import io.minio.messages.DeleteError;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * MinIO存储后端
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "minio", matchIfMissing = true)
+@RequiredArgsConstructor
+public class MinioStorageBackend implements StorageBackend {
+
+    private final MinioService minioService;
+
+    @Override
+    public void put(String name, InputStream data, long size, String contentType) throws Exception {
+        minioService.uploadFile(data, name, size, contentType);
+    }
+
+    @Override
+    public InputStream get(String name) throws Exception {
+        return minioService.downloadFile(name);
+    }
+
+    @Override
+    public InputStream get(String name, long offset, long length) throws Exception {
+        return minioService.downloadFile(name, offset, length);
+    }
+
+    @Override
+    public ObjectInfo stat(String name) throws Exception {
+        StatObjectResponse stat = minioService.statFile(name);
+        return new ObjectInfo(name, stat.size(), stat.lastModified());
+    }
+
+    @Override
+    public void delete(String name) throws Exception {
+        minioService.deleteFile(name);
+    }
+
+    @Override
+    public List<DeleteFailure> deleteAll(Collection<String> names) throws Exception {
+        List<DeleteError> errors = minioService.deleteFiles(names);
+        return errors.stream()
+                .map(error -> new DeleteFailure(error.objectName(), error.code() + ": " + error.message()))
+                .toList();
+    }
+
+    @Override
+    public Stream<ObjectInfo> list(String prefix) {
+        return StreamSupport.stream(minioService.listObjects(prefix).spliterator(), false)
+                .map(MinioStorageBackend::toObjectInfo)
+                .filter(Objects::nonNull);
+    }
+
+    private static ObjectInfo toObjectInfo(Result<Item> result) {
+        try {
+            Item item = result.get();
+            return item.isDir() ? null : new ObjectInfo(item.objectName(), item.size(), item.lastModified());
+        } catch (Exception e) {
+            throw new StorageException("列出存储对象失败: " + e.getMessage(), e);
+        }
+    }
+}
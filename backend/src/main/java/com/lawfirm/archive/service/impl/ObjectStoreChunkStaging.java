@@ -0,0 +1,112 @@
+package com.lawfirm.archive.service.impl;
+
+import com.lawfirm.archive.dto.UploadCleanupResult;
+import com.lawfirm.archive.exception.StorageException;
+import com.lawfirm.archive.model.UploadTask;
+import com.lawfirm.archive.repository.UploadTaskRepository;
+import com.lawfirm.archive.service.ChunkStaging;
+import com.lawfirm.archive.service.MinioService;
+import com.lawfirm.archive.service.StorageBackend;
+import io.minio.messages.Part;
+import io.minio.messages.Upload;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.ZonedDateTime;
+import java.util.function.LongConsumer;
+
+/**
+ * 对象存储暂存：每个分片作为S3 Part直接写入MinIO，由MinIO服务端合并
+ * 分片不落本地磁盘，任意节点都可以接收分片和完成合并
+ * S3要求除最后一个分片外每个分片不小于5MB，且分片数不超过10000
+ * 合并后的对象直接留在MinIO中，只能在存储后端为MinIO时使用
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ObjectStoreChunkStaging implements ChunkStaging {
+
+    private final MinioService minioService;
+    private final UploadTaskRepository uploadTaskRepository;
+    private final StorageBackend storageBackend;
+
+    @Override
+    public boolean isAvailable() {
+        return storageBackend instanceof MinioStorageBackend;
+    }
+
+    @Override
+    public String create(UploadTask task) {
+        try {
+            return minioService.initMultipartUpload(task.getStorageName(), task.getFileType());
+        } catch (Exception e) {
+            throw new StorageException("初始化分片上传失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void writeChunk(UploadTask task, int chunkNumber, InputStream data, long size) throws Exception {
+        minioService.uploadPart(task.getStorageName(), task.getUploadId(), chunkNumber, data, size);
+    }
+
+    /**
+     * 由MinIO服务端合并所有分片
+     * 需要计算文件哈希时只能读取合并后的对象
+     */
+    @Override
+    public void complete(UploadTask task, MessageDigest digest, LongConsumer progress) throws Exception {
+        Part[] parts = minioService.listMultipartUploads(task.getStorageName(), task.getUploadId());
+        if (parts.length != task.getTotalChunks()) {
+            throw new StorageException("分片数量不一致: " + parts.length + "/" + task.getTotalChunks());
+        }
+        minioService.completeMultipartUpload(task.getStorageName(), task.getUploadId(), parts);
+
+        if (digest != null) {
+            log.warn("分片未按顺序到达，重新读取对象计算哈希: {}", task.getId());
+            try (InputStream is = new ProgressInputStream(
+                    new DigestInputStream(minioService.downloadFile(task.getStorageName()), digest), progress)) {
+                is.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+    }
+
+    @Override
+    public long discard(UploadTask task) {
+        return abort(task.getStorageName(), task.getUploadId());
+    }
+
+    /**
+     * 清理没有对应任务的未完成分片上传
+     * 旧版本以独立对象保存的分片由 {@link com.lawfirm.archive.service.DataMigrationService#cleanupLegacyChunkObjects} 一次性清理
+     */
+    @Override
+    public void sweepOrphans(ZonedDateTime before, UploadCleanupResult result) throws Exception {
+        for (Upload upload : minioService.listIncompleteUploads()) {
+            if (upload.initiated() != null && upload.initiated().isBefore(before)
+                    && !uploadTaskRepository.existsByUploadId(upload.uploadId())) {
+                long bytes = abort(upload.objectName(), upload.uploadId());
+                result.addOrphan(bytes);
+                log.info("清理无主分片上传: {}, {} bytes", upload.objectName(), bytes);
+            }
+        }
+    }
+
+    /**
+     * 中止分片上传，返回丢弃的分片字节数
+     */
+    private long abort(String objectName, String uploadId) {
+        try {
+            long size = minioService.getMultipartUploadSize(objectName, uploadId);
+            minioService.abortMultipartUpload(objectName, uploadId);
+            return size;
+        } catch (Exception e) {
+            log.error("中止分片上传失败: {}", objectName, e);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.lawfirm.archive.service.impl;
+
+import org.apache.commons.io.input.ProxyInputStream;
+
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+/**
+ * 统计已读取的字节数，每读取一定字节数回调一次进度
+ */
+class ProgressInputStream extends ProxyInputStream {
+    /**
+     * 进度回调的间隔字节数
+     */
+    private static final long REPORT_BYTES = 16L * 1024 * 1024;
+
+    private final LongConsumer progress;
+    private long processed;
+    private long reported;
+
+    ProgressInputStream(InputStream in, LongConsumer progress) {
+        super(in);
+        this.progress = progress;
+    }
+
+    @Override
+    protected void afterRead(int n) {
+        if (n > 0) {
+            processed += n;
+            if (processed - reported >= REPORT_BYTES) {
+                progress.accept(processed);
+                reported = processed;
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+-- 已上传分片改为记录在任务行的位图中，替代 upload_task_chunks 集合表
+DO $$
+DECLARE
+    r RECORD;
+BEGIN
+    IF to_regclass('upload_tasks') IS NOT NULL THEN
+        ALTER TABLE upload_tasks ADD COLUMN IF NOT EXISTS chunk_bitmap BYTEA;
+
+        UPDATE upload_tasks
+        SET chunk_bitmap = decode(repeat('00', (COALESCE(total_chunks, 0) + 7) / 8), 'hex')
+        WHERE chunk_bitmap IS NULL;
+
+        IF to_regclass('upload_task_chunks') IS NOT NULL THEN
+            FOR r IN
+                SELECT c.task_id, c.chunk_number
+                FROM upload_task_chunks c
+                JOIN upload_tasks t ON t.id = c.task_id
+                WHERE c.chunk_number BETWEEN 1 AND t.total_chunks
+            LOOP
+                UPDATE upload_tasks
+                SET chunk_bitmap = set_bit(chunk_bitmap, r.chunk_number - 1, 1)
+                WHERE id = r.task_id;
+            END LOOP;
+
+            DROP TABLE upload_task_chunks;
+        END IF;
+    END IF;
+END $$;
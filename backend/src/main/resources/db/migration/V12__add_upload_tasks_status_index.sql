@@ -0,0 +1,7 @@
+-- 上传准入统计暂存总量、过期清理均按任务状态查询
+DO $$
+BEGIN
+    IF to_regclass('upload_tasks') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_upload_tasks_status ON upload_tasks(status, updated_at);
+    END IF;
+END $$;
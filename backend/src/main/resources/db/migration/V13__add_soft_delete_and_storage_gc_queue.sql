@@ -0,0 +1,14 @@
+-- 文档软删除：删除时只标记删除时间，记录与存储对象由后台在宽限期后回收
+ALTER TABLE documents ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP WITH TIME ZONE;
+CREATE INDEX IF NOT EXISTS idx_documents_deleted_at ON documents(deleted_at) WHERE deleted_at IS NOT NULL;
+
+-- 待删除的存储对象，到期后由后台批量删除，失败时推迟重试
+CREATE TABLE IF NOT EXISTS storage_gc_queue (
+    id BIGSERIAL PRIMARY KEY,
+    storage_name VARCHAR(255) NOT NULL,
+    not_before TIMESTAMP WITH TIME ZONE NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    last_error TEXT,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_storage_gc_queue_not_before ON storage_gc_queue(not_before);
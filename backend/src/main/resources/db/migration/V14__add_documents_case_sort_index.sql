@@ -0,0 +1,7 @@
+-- 案件文档列表按 (sort_order, id) 翻页，排序字段不允许为空
+UPDATE documents SET sort_order = 0 WHERE sort_order IS NULL;
+ALTER TABLE documents ALTER COLUMN sort_order SET DEFAULT 0;
+ALTER TABLE documents ALTER COLUMN sort_order SET NOT NULL;
+
+-- 只包含未删除的文档，与实体的查询条件一致
+CREATE INDEX IF NOT EXISTS idx_documents_case_sort ON documents(case_id, sort_order, id) WHERE deleted_at IS NULL;
@@ -0,0 +1,22 @@
+-- 案件检索：案号、当事人、案由、法院按部分内容模糊查询，使用pg_trgm三元组索引
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+DO $$
+BEGIN
+    IF to_regclass('cases') IS NOT NULL THEN
+        -- 查询按 lower(字段) LIKE '%关键词%' 匹配，索引建在同一表达式上
+        CREATE INDEX IF NOT EXISTS idx_cases_case_number_trgm ON cases USING gin (lower(case_number) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS idx_cases_parties_trgm ON cases USING gin (lower(parties) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS idx_cases_case_reason_trgm ON cases USING gin (lower(case_reason) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS idx_cases_court_trgm ON cases USING gin (lower(court) gin_trgm_ops);
+
+        CREATE INDEX IF NOT EXISTS idx_cases_status ON cases(status);
+        CREATE INDEX IF NOT EXISTS idx_cases_category_id ON cases(category_id);
+        -- 默认按立案日期倒序分页
+        CREATE INDEX IF NOT EXISTS idx_cases_filing_date ON cases(filing_date DESC, id DESC);
+    END IF;
+
+    IF to_regclass('case_tags') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_case_tags_tag_id ON case_tags(tag_id, case_id);
+    END IF;
+END $$;
@@ -0,0 +1,37 @@
+-- 文档全文检索：提取的文本与检索向量，由后台任务按状态增量建立
+CREATE TABLE IF NOT EXISTS document_texts (
+    document_id BIGINT PRIMARY KEY REFERENCES documents(id) ON DELETE CASCADE,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    content TEXT,
+    search_vector TSVECTOR,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    last_error TEXT,
+    -- 处理中时为租约到期时间，失败待重试时为下次重试时间
+    locked_until TIMESTAMP WITH TIME ZONE,
+    indexed_at TIMESTAMP WITH TIME ZONE,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_document_texts_search ON document_texts USING gin (search_vector);
+CREATE INDEX IF NOT EXISTS idx_document_texts_pending ON document_texts(document_id)
+    WHERE status IN ('PENDING', 'PROCESSING');
+
+-- 新增文档时登记索引任务，上传与分片合并的事务只多一次插入
+CREATE OR REPLACE FUNCTION enqueue_document_text()
+RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO document_texts (document_id) VALUES (NEW.id) ON CONFLICT DO NOTHING;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS enqueue_document_text ON documents;
+CREATE TRIGGER enqueue_document_text
+AFTER INSERT ON documents
+FOR EACH ROW
+EXECUTE FUNCTION enqueue_document_text();
+
+-- 已有文档补建索引任务
+INSERT INTO document_texts (document_id)
+SELECT id FROM documents WHERE deleted_at IS NULL
+ON CONFLICT DO NOTHING;
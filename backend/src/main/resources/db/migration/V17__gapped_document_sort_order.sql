@@ -0,0 +1,17 @@
+-- 文档排序改为带间隔的排序值：移动文档时取前后两个文档排序值的中间值，只更新一行
+-- 现有文档按原顺序重新编号，相邻文档间隔1024
+UPDATE documents d
+SET sort_order = r.position * 1024
+FROM (
+    SELECT id, row_number() OVER (PARTITION BY case_id ORDER BY sort_order, id) - 1 AS position
+    FROM documents
+    WHERE deleted_at IS NULL
+) r
+WHERE d.id = r.id
+  AND d.sort_order IS DISTINCT FROM r.position * 1024;
+
+-- 间隔即将用尽、等待后台重新编号的案件
+CREATE TABLE IF NOT EXISTS document_order_rebalance (
+    case_id BIGINT PRIMARY KEY REFERENCES cases(id) ON DELETE CASCADE,
+    requested_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
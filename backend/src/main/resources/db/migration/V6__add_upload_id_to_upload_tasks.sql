@@ -0,0 +1,2 @@
+-- 分片上传任务记录MinIO分片上传ID
+ALTER TABLE IF EXISTS upload_tasks ADD COLUMN IF NOT EXISTS upload_id VARCHAR(255);
@@ -0,0 +1,12 @@
+-- 按内容寻址的存储对象及引用计数
+CREATE TABLE IF NOT EXISTS storage_blobs (
+    content_hash VARCHAR(64) PRIMARY KEY,
+    storage_name VARCHAR(255) NOT NULL,
+    file_size BIGINT,
+    ref_count INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 文档记录文件内容哈希
+ALTER TABLE documents ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+CREATE INDEX IF NOT EXISTS idx_documents_content_hash ON documents(content_hash);
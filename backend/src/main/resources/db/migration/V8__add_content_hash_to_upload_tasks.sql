@@ -0,0 +1,3 @@
+-- 分片上传任务记录文件哈希及生成的文档
+ALTER TABLE IF EXISTS upload_tasks ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+ALTER TABLE IF EXISTS upload_tasks ADD COLUMN IF NOT EXISTS document_id BIGINT;
@@ -0,0 +1,2 @@
+-- 分片上传任务记录合并进度
+ALTER TABLE IF EXISTS upload_tasks ADD COLUMN IF NOT EXISTS processed_bytes BIGINT;
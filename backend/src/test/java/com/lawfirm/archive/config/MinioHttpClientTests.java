@@ -0,0 +1,176 @@
+package com.lawfirm.archive.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * MinIO HTTP连接：S3操作名、读取请求的重试、每主机并发许可与请求指标
+ */
+class MinioHttpClientTests {
+
+	@Test
+	void operationNamesFollowS3Api() {
+		assertThat(MinioHttpMetrics.operation(request("GET", "/archive/cases/1/contract.pdf"))).isEqualTo("GetObject");
+		assertThat(MinioHttpMetrics.operation(request("HEAD", "/archive/contract.pdf"))).isEqualTo("HeadObject");
+		assertThat(MinioHttpMetrics.operation(request("PUT", "/archive/a.pdf?partNumber=3&uploadId=x")))
+				.isEqualTo("UploadPart");
+		assertThat(MinioHttpMetrics.operation(request("POST", "/archive/a.pdf?uploads"))).isEqualTo("CreateMultipartUpload");
+		assertThat(MinioHttpMetrics.operation(request("POST", "/archive?delete"))).isEqualTo("DeleteObjects");
+		assertThat(MinioHttpMetrics.operation(request("GET", "/archive?list-type=2&prefix=tmp/"))).isEqualTo("ListObjects");
+	}
+
+	@Test
+	void retriesReadsOnServerBusy() throws Exception {
+		MinioRetryInterceptor interceptor = new MinioRetryInterceptor(2, Duration.ofMillis(1));
+		Request get = request("GET", "/archive/a.pdf");
+		Interceptor.Chain chain = chain(get);
+		when(chain.proceed(any())).thenReturn(response(get, 503), response(get, 200));
+
+		assertThat(interceptor.intercept(chain).code()).isEqualTo(200);
+		verify(chain, times(2)).proceed(any());
+	}
+
+	@Test
+	void doesNotRetryWrites() throws Exception {
+		MinioRetryInterceptor interceptor = new MinioRetryInterceptor(2, Duration.ofMillis(1));
+		Request put = new Request.Builder().url("http://127.0.0.1:9000/archive/a.pdf")
+				.put(RequestBody.create(new byte[0])).build();
+		Interceptor.Chain chain = chain(put);
+		when(chain.proceed(any())).thenThrow(new IOException("connection reset"));
+
+		assertThatThrownBy(() -> interceptor.intercept(chain)).isInstanceOf(IOException.class);
+		verify(chain, times(1)).proceed(any());
+	}
+
+	@Test
+	void failedRequestsAreRecorded() {
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		MinioConfig config = new MinioConfig();
+		config.getHttp().setMaxRetries(1);
+		config.getHttp().setRetryBackoff(Duration.ofMillis(1));
+		config.getHttp().setConnectTimeout(Duration.ofSeconds(1));
+		OkHttpClient client = config.minioHttpClient(meterRegistry);
+
+		// 端口1上没有服务，连接被拒绝
+		Request request = new Request.Builder().url("http://127.0.0.1:1/archive/a.pdf").build();
+		assertThatThrownBy(() -> client.newCall(request).execute()).isInstanceOf(IOException.class);
+
+		assertThat(meterRegistry.get("minio.http.requests")
+				.tag("operation", "GetObject").tag("status", "IO_ERROR").timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("minio.http.connect").tag("outcome", "failure").timer().count()).isEqualTo(2);
+		// 同步执行的请求不经调度器排队
+		assertThat(meterRegistry.get("minio.http.dispatcher.queue").timer().count()).isZero();
+		assertThat(meterRegistry.get("minio.http.in.flight").gauge().value()).isZero();
+		assertThat(meterRegistry.get("minio.http.permits.active").gauge().value()).isZero();
+	}
+
+	@Test
+	void asyncRequestsRecordDispatcherQueueTime() throws Exception {
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		MinioConfig config = new MinioConfig();
+		config.getHttp().setMaxRetries(0);
+		config.getHttp().setConnectTimeout(Duration.ofSeconds(1));
+		OkHttpClient client = config.minioHttpClient(meterRegistry);
+
+		CountDownLatch done = new CountDownLatch(1);
+		Request request = new Request.Builder().url("http://127.0.0.1:1/archive/a.pdf").build();
+		client.newCall(request).enqueue(new Callback() {
+			@Override
+			public void onFailure(Call call, IOException e) {
+				done.countDown();
+			}
+
+			@Override
+			public void onResponse(Call call, Response response) {
+				response.close();
+				done.countDown();
+			}
+		});
+
+		assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(meterRegistry.get("minio.http.dispatcher.queue").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void permitsAreHeldUntilTheBodyIsClosed() throws Exception {
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		MinioConcurrencyLimiter limiter = new MinioConcurrencyLimiter(1, Duration.ofMillis(50), meterRegistry);
+		Request get = request("GET", "/archive/a.pdf");
+		Interceptor.Chain chain = chain(get);
+		when(chain.proceed(any())).thenAnswer(invocation -> response(get, 200, new byte[] {1, 2, 3}));
+
+		Response downloading = limiter.intercept(chain);
+		assertThat(meterRegistry.get("minio.http.permits.active").gauge().value()).isEqualTo(1);
+		// 正文未关闭时同一主机没有剩余许可
+		assertThatThrownBy(() -> limiter.intercept(chain)).isInstanceOf(IOException.class);
+		// 其他主机不受影响
+		Request other = new Request.Builder().url("http://127.0.0.2:9000/archive/a.pdf").build();
+		Interceptor.Chain otherChain = chain(other);
+		when(otherChain.proceed(any())).thenAnswer(invocation -> response(other, 200, new byte[0]));
+		limiter.intercept(otherChain).close();
+
+		assertThat(downloading.body().bytes()).containsExactly(1, 2, 3);
+		downloading.close();
+		limiter.intercept(chain).close();
+		assertThat(meterRegistry.get("minio.http.permits.active").gauge().value()).isZero();
+	}
+
+	@Test
+	void permitIsReleasedWhenTheRequestFails() throws Exception {
+		MinioConcurrencyLimiter limiter = new MinioConcurrencyLimiter(1, Duration.ofMillis(50), new SimpleMeterRegistry());
+		Request get = request("GET", "/archive/a.pdf");
+		Interceptor.Chain chain = chain(get);
+		when(chain.proceed(any())).thenThrow(new IOException("connection reset"))
+				.thenAnswer(invocation -> response(get, 200, new byte[] {1}));
+
+		assertThatThrownBy(() -> limiter.intercept(chain)).hasMessage("connection reset");
+		try (Response response = limiter.intercept(chain)) {
+			assertThat(response.code()).isEqualTo(200);
+		}
+	}
+
+	private static Request request(String method, String pathAndQuery) {
+		return new Request.Builder().url("http://127.0.0.1:9000" + pathAndQuery)
+				.method(method, "POST".equals(method) || "PUT".equals(method) ? RequestBody.create(new byte[0]) : null)
+				.build();
+	}
+
+	private static Interceptor.Chain chain(Request request) {
+		Interceptor.Chain chain = mock(Interceptor.Chain.class);
+		when(chain.request()).thenReturn(request);
+		when(chain.call()).thenReturn(mock(Call.class));
+		return chain;
+	}
+
+	private static Response response(Request request, int code) {
+		return response(request, code, new byte[0]);
+	}
+
+	private static Response response(Request request, int code, byte[] body) {
+		return new Response.Builder().request(request).protocol(Protocol.HTTP_1_1).code(code).message("")
+				.body(ResponseBody.create(body, null)).build();
+	}
+}
@@ -0,0 +1,123 @@
+package com.lawfirm.archive.config;
+
+import com.lawfirm.archive.exception.GlobalExceptionHandler;
+import com.lawfirm.archive.repository.UploadTaskRepository;
+import com.lawfirm.archive.service.UploadAdmissionService;
+import com.lawfirm.archive.service.UploadAdmissionService.Permit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 上传准入拦截器：超过限制返回429与Retry-After，请求结束（包括异常）时归还许可
+ */
+class UploadAdmissionInterceptorTests {
+
+	private final UploadTaskRepository uploadTaskRepository = mock(UploadTaskRepository.class);
+
+	private final UploadAdmissionService uploadAdmissionService = new UploadAdmissionService(uploadTaskRepository);
+
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(uploadAdmissionService, "maxWrites", 8);
+		ReflectionTestUtils.setField(uploadAdmissionService, "maxWritesPerUser", 1);
+		ReflectionTestUtils.setField(uploadAdmissionService, "maxStagingBytes", 1000L);
+		ReflectionTestUtils.setField(uploadAdmissionService, "retryAfterSeconds", 5L);
+		ReflectionTestUtils.setField(uploadAdmissionService, "stagingRetryAfterSeconds", 60L);
+		when(uploadTaskRepository.sumStagedFileSize(anyList(), any())).thenReturn(600L);
+
+		mockMvc = MockMvcBuilders.standaloneSetup(new UploadController())
+				.addMappedInterceptors(new String[] {"/chunk", "/fail"},
+						new UploadAdmissionInterceptor(uploadAdmissionService, false))
+				.addMappedInterceptors(new String[] {"/upload"},
+						new UploadAdmissionInterceptor(uploadAdmissionService, true))
+				.setControllerAdvice(new GlobalExceptionHandler())
+				.build();
+	}
+
+	@Test
+	void rejectsWithRetryAfterWhileThePermitIsHeld() throws Exception {
+		Permit held = uploadAdmissionService.acquireWrite();
+
+		mockMvc.perform(post("/chunk"))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"))
+				.andExpect(jsonPath("$.status").value(429));
+
+		held.close();
+		mockMvc.perform(post("/chunk")).andExpect(status().isOk());
+	}
+
+	@Test
+	void permitIsReleasedAfterEachRequest() throws Exception {
+		mockMvc.perform(post("/chunk")).andExpect(status().isOk());
+		mockMvc.perform(post("/chunk")).andExpect(status().isOk());
+
+		uploadAdmissionService.acquireWrite().close();
+	}
+
+	@Test
+	void permitIsReleasedWhenTheHandlerFails() {
+		assertThatThrownBy(() -> mockMvc.perform(post("/fail"))).hasRootCauseMessage("storage unavailable");
+
+		uploadAdmissionService.acquireWrite().close();
+	}
+
+	@Test
+	void directUploadsAreRejectedWhenStagingIsFull() throws Exception {
+		// 600 已暂存，再接收 401 字节超过上限 1000
+		mockMvc.perform(post("/upload").content(new byte[401]))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "60"));
+
+		mockMvc.perform(post("/upload").content(new byte[400])).andExpect(status().isOk());
+		// 请求结束后预留的字节数已归还
+		uploadAdmissionService.checkStagingBudget(400);
+	}
+
+	@Test
+	void requestsWithoutHandlerMethodPassThrough() {
+		UploadAdmissionInterceptor interceptor = new UploadAdmissionInterceptor(uploadAdmissionService, false);
+		Permit held = uploadAdmissionService.acquireWrite();
+
+		// 跨域预检等请求不经过控制器，不占用许可
+		MockHttpServletRequest preflight = new MockHttpServletRequest("OPTIONS", "/chunk");
+		assertThat(interceptor.preHandle(preflight, new MockHttpServletResponse(), new Object())).isTrue();
+		interceptor.afterCompletion(preflight, new MockHttpServletResponse(), new Object(), null);
+		held.close();
+	}
+
+	@RestController
+	static class UploadController {
+
+		@PostMapping({"/chunk", "/upload"})
+		String upload() {
+			return "ok";
+		}
+
+		@PostMapping("/fail")
+		String fail() {
+			throw new IllegalStateException("storage unavailable");
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package com.lawfirm.archive.controller;
+
+import com.lawfirm.archive.model.Case;
+import com.lawfirm.archive.model.UploadTask;
+import com.lawfirm.archive.repository.CaseRepository;
+import com.lawfirm.archive.repository.DocumentRepository;
+import com.lawfirm.archive.repository.UploadTaskRepository;
+import com.lawfirm.archive.service.MinioService;
+import com.lawfirm.archive.service.SchedulerLockService;
+import com.lawfirm.archive.service.UploadAdmissionService;
+import com.lawfirm.archive.service.StorageBlobService;
+import com.lawfirm.archive.service.impl.ChunkedUploadServiceImpl;
+import com.lawfirm.archive.service.impl.LocalChunkStaging;
+import com.lawfirm.archive.service.impl.LocalStorageBackend;
+import com.lawfirm.archive.service.impl.ObjectStoreChunkStaging;
+import jakarta.servlet.MultipartConfigElement;
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.support.GenericWebApplicationContext;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.DelegatingWebMvcConfiguration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分片上传吞吐基准：multipart分片接口与请求体直传接口
+ * 在嵌入式Tomcat中运行，multipart请求按生产配置先由容器解析到磁盘临时文件
+ */
+class ChunkUploadThroughputBenchmarkTests {
+
+	private static final int CHUNK_SIZE = 5 * 1024 * 1024;
+
+	private static final int CHUNKS = 40;
+
+	private static final String BOUNDARY = "----ChunkUploadBenchmarkBoundary";
+
+	@TempDir
+	Path workDir;
+
+	private Tomcat tomcat;
+
+	private GenericWebApplicationContext webContext;
+
+	private ChunkedUploadServiceImpl service;
+
+	private UploadTask task;
+
+	private HttpClient client;
+
+	private String baseUrl;
+
+	private final byte[] chunk = new byte[CHUNK_SIZE];
+
+	@BeforeEach
+	void startServer() throws Exception {
+		new Random(42).nextBytes(chunk);
+		service = createService();
+
+		webContext = new GenericWebApplicationContext();
+		AnnotationConfigUtils.registerAnnotationConfigProcessors(webContext);
+		webContext.registerBean(DelegatingWebMvcConfiguration.class);
+		webContext.registerBean(DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME,
+				StandardServletMultipartResolver.class);
+		webContext.registerBean(ChunkedUploadController.class, () -> new ChunkedUploadController(service));
+
+		tomcat = new Tomcat();
+		tomcat.setBaseDir(workDir.resolve("tomcat").toString());
+		tomcat.setPort(0);
+		Context context = tomcat.addContext("", workDir.toString());
+		Wrapper wrapper = Tomcat.addServlet(context, "dispatcher", new DispatcherServlet(webContext));
+		// 与Spring Boot默认配置一致：上传文件全部写入磁盘临时文件
+		wrapper.setMultipartConfigElement(new MultipartConfigElement(
+				workDir.resolve("tomcat").toString(), -1, -1, 0));
+		context.addServletMappingDecoded("/", "dispatcher");
+		tomcat.getConnector();
+		tomcat.start();
+
+		client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		baseUrl = "http://localhost:" + tomcat.getConnector().getLocalPort() + "/api/chunked-upload";
+	}
+
+	@AfterEach
+	void stopServer() throws Exception {
+		tomcat.stop();
+		tomcat.destroy();
+		webContext.close();
+	}
+
+	@Test
+	void compareMultipartAndRawBodyThroughput() throws Exception {
+		// 预热
+		uploadMultipart(4);
+		uploadRaw(4);
+
+		double multipart = uploadMultipart(CHUNKS);
+		double raw = uploadRaw(CHUNKS);
+
+		System.out.printf("multipart: %.1f MB/s, raw body: %.1f MB/s (%d x %d MB)%n",
+				multipart, raw, CHUNKS, CHUNK_SIZE / 1024 / 1024);
+
+		assertThat(Files.size(workDir.resolve("upload_" + task.getId())))
+				.isEqualTo((long) CHUNKS * CHUNK_SIZE);
+	}
+
+	private double uploadMultipart(int chunks) throws Exception {
+		initTask(chunks);
+		long start = System.nanoTime();
+		for (int n = 1; n <= chunks; n++) {
+			HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/chunk"))
+					.header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+					.POST(HttpRequest.BodyPublishers.ofByteArray(multipartBody(n, chunks)))
+					.build();
+			assertThat(client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode()).isEqualTo(200);
+		}
+		return throughput(chunks, System.nanoTime() - start);
+	}
+
+	private double uploadRaw(int chunks) throws Exception {
+		initTask(chunks);
+		long start = System.nanoTime();
+		for (int n = 1; n <= chunks; n++) {
+			HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/" + task.getId() + "/chunks/" + n))
+					.header("Content-Type", "application/octet-stream")
+					.PUT(HttpRequest.BodyPublishers.ofByteArray(chunk))
+					.build();
+			assertThat(client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode()).isEqualTo(200);
+		}
+		return throughput(chunks, System.nanoTime() - start);
+	}
+
+	private static double throughput(int chunks, long nanos) {
+		return (double) chunks * CHUNK_SIZE / 1024 / 1024 / (nanos / 1e9);
+	}
+
+	private void initTask(int chunks) {
+		task = service.initUpload("exhibit.bin", (long) chunks * CHUNK_SIZE, "application/octet-stream",
+				1L, null, null, null);
+	}
+
+	private byte[] multipartBody(int chunkNumber, int totalChunks) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(CHUNK_SIZE + 1024);
+		writeField(out, "taskId", task.getId());
+		writeField(out, "chunkNumber", String.valueOf(chunkNumber));
+		writeField(out, "totalChunks", String.valueOf(totalChunks));
+		out.writeBytes(("--" + BOUNDARY + "\r\n"
+				+ "Content-Disposition: form-data; name=\"file\"; filename=\"chunk\"\r\n"
+				+ "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+		out.writeBytes(chunk);
+		out.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+		return out.toByteArray();
+	}
+
+	private static void writeField(ByteArrayOutputStream out, String name, String value) {
+		out.writeBytes(("--" + BOUNDARY + "\r\n"
+				+ "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"
+				+ value + "\r\n").getBytes(StandardCharsets.UTF_8));
+	}
+
+	@SuppressWarnings("unchecked")
+	private ChunkedUploadServiceImpl createService() throws IOException {
+		UploadTaskRepository uploadTaskRepository = mock(UploadTaskRepository.class);
+		when(uploadTaskRepository.save(any(UploadTask.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		when(uploadTaskRepository.findById(anyString())).thenAnswer(invocation -> Optional.of(task));
+		when(uploadTaskRepository.markChunkUploaded(anyString(), anyInt())).thenReturn(1);
+		when(uploadTaskRepository.findUploadedChunksById(anyString())).thenReturn(1);
+
+		CaseRepository caseRepository = mock(CaseRepository.class);
+		when(caseRepository.findById(anyLong())).thenReturn(Optional.of(new Case()));
+
+		TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+		when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+				((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+
+		// 合并写入本地文件存储，基准无需MinIO
+		LocalStorageBackend storageBackend = new LocalStorageBackend(workDir.resolve("storage").toString());
+		LocalChunkStaging localChunkStaging = new LocalChunkStaging(storageBackend, uploadTaskRepository);
+		ReflectionTestUtils.setField(localChunkStaging, "tempDir", workDir.toString());
+
+		ChunkedUploadServiceImpl service = new ChunkedUploadServiceImpl(uploadTaskRepository,
+				mock(DocumentRepository.class), caseRepository, mock(StorageBlobService.class),
+				transactionTemplate, mock(ExecutorService.class), mock(ExecutorService.class), localChunkStaging,
+				new ObjectStoreChunkStaging(mock(MinioService.class), uploadTaskRepository, storageBackend),
+				mock(SchedulerLockService.class), mock(UploadAdmissionService.class));
+		ReflectionTestUtils.setField(service, "defaultChunkSize", CHUNK_SIZE);
+		ReflectionTestUtils.setField(service, "maxChunkSize", CHUNK_SIZE);
+		ReflectionTestUtils.setField(service, "maxChunks", 10000);
+		ReflectionTestUtils.setField(service, "staging", "local");
+		return service;
+	}
+}
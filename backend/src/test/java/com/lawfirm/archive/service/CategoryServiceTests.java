@@ -0,0 +1,117 @@
+package com.lawfirm.archive.service;
+
+import com.lawfirm.archive.dto.CategoryTreeNodeDto;
+import com.lawfirm.archive.model.Category;
+import com.lawfirm.archive.repository.CaseRepository;
+import com.lawfirm.archive.repository.CaseRepository.CategoryCaseCount;
+import com.lawfirm.archive.repository.CategoryRepository;
+import com.lawfirm.archive.repository.CategoryRepository.CategoryTreeRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分类树：一次查询构建整棵树并汇总案件数，缓存到分类或案件变化为止
+ */
+class CategoryServiceTests {
+
+	private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+
+	private final CaseRepository caseRepository = mock(CaseRepository.class);
+
+	private final CategoryService categoryService = new CategoryService(categoryRepository, caseRepository, 300);
+
+	@BeforeEach
+	void stubRepositories() {
+		// 民事 -> 合同 -> 买卖合同，刑事为另一顶级分类
+		when(categoryRepository.findTree()).thenReturn(List.of(
+				row(1L, "民事", null), row(4L, "刑事", null), row(2L, "合同", 1L), row(3L, "买卖合同", 2L)));
+		when(caseRepository.countByCategory()).thenReturn(List.of(count(1L, 1), count(2L, 2), count(3L, 5)));
+		when(categoryRepository.existsById(anyLong())).thenReturn(true);
+		when(categoryRepository.save(any(Category.class))).thenAnswer(invocation -> invocation.getArgument(0));
+	}
+
+	@Test
+	void treeIsBuiltFromOneQueryAndCached() {
+		List<CategoryTreeNodeDto> tree = categoryService.getTree();
+
+		assertThat(tree).extracting(CategoryTreeNodeDto::getName).containsExactly("民事", "刑事");
+		CategoryTreeNodeDto civil = tree.get(0);
+		assertThat(civil.getCaseCount()).isEqualTo(1);
+		assertThat(civil.getTotalCaseCount()).isEqualTo(8);
+		assertThat(civil.getChildren().get(0).getTotalCaseCount()).isEqualTo(7);
+		assertThat(civil.getChildren().get(0).getChildren()).extracting(CategoryTreeNodeDto::getName)
+				.containsExactly("买卖合同");
+		assertThat(tree.get(1).getTotalCaseCount()).isZero();
+
+		categoryService.getTree();
+		verify(categoryRepository, times(1)).findTree();
+		verify(caseRepository, times(1)).countByCategory();
+	}
+
+	@Test
+	void writesInvalidateTheTree() {
+		categoryService.getTree();
+
+		Category category = new Category();
+		category.setName("行政");
+		categoryService.create(category);
+		categoryService.getTree();
+
+		verify(caseRepository, times(2)).countByCategory();
+	}
+
+	@Test
+	void categoryCannotMoveUnderItsOwnDescendant() {
+		Category category = new Category();
+		category.setName("民事");
+		category.setParentId(3L);
+
+		assertThatThrownBy(() -> categoryService.update(1L, category)).isInstanceOf(IllegalArgumentException.class);
+		verify(categoryRepository, never()).save(any(Category.class));
+	}
+
+	private static CategoryTreeRow row(Long id, String name, Long parentId) {
+		return new CategoryTreeRow() {
+			@Override
+			public Long getId() {
+				return id;
+			}
+
+			@Override
+			public String getName() {
+				return name;
+			}
+
+			@Override
+			public Long getParentId() {
+				return parentId;
+			}
+		};
+	}
+
+	private static CategoryCaseCount count(Long categoryId, long caseCount) {
+		return new CategoryCaseCount() {
+			@Override
+			public Long getCategoryId() {
+				return categoryId;
+			}
+
+			@Override
+			public long getCaseCount() {
+				return caseCount;
+			}
+		};
+	}
+}
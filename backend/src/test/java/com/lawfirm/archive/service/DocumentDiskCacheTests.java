@@ -0,0 +1,186 @@
+package com.lawfirm.archive.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 文档磁盘缓存：命中、并发未命中合并、范围读取未命中、容量上限与删除失效
+ */
+class DocumentDiskCacheTests {
+
+	private static final int SIZE = 300 * 1024;
+
+	@TempDir
+	Path cacheDir;
+
+	private final byte[] content = new byte[SIZE];
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final ExecutorService cacheFillExecutor = Executors.newSingleThreadExecutor();
+
+	private StorageBackend storageBackend;
+
+	@BeforeEach
+	void createBackend() throws Exception {
+		new Random(5).nextBytes(content);
+		storageBackend = mock(StorageBackend.class);
+		when(storageBackend.get(anyString())).thenAnswer(invocation -> new ByteArrayInputStream(content));
+		doAnswer(invocation -> {
+			invocation.<OutputStream>getArgument(3).write(content,
+					(int) invocation.<Long>getArgument(1).longValue(), (int) invocation.<Long>getArgument(2).longValue());
+			return null;
+		}).when(storageBackend).transferTo(anyString(), anyLong(), anyLong(), any());
+	}
+
+	@AfterEach
+	void stopFillExecutor() {
+		cacheFillExecutor.shutdownNow();
+	}
+
+	@Test
+	void repeatedReadsAreServedFromDisk() throws Exception {
+		DocumentDiskCache cache = createCache(10 * SIZE);
+
+		assertThat(read(cache, "contract.pdf", 0, SIZE)).isEqualTo(content);
+		assertThat(read(cache, "contract.pdf", 1000, 5000)).isEqualTo(Arrays.copyOfRange(content, 1000, 6000));
+		assertThat(read(cache, "contract.pdf", 0, SIZE)).isEqualTo(content);
+
+		verify(storageBackend, times(1)).get("contract.pdf");
+		assertThat(meterRegistry.get("document.cache.requests").tag("result", "hit").functionCounter().count()).isEqualTo(2);
+		assertThat(meterRegistry.get("document.cache.requests").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("document.cache.bytes.saved").functionCounter().count()).isEqualTo(5000 + SIZE);
+		assertThat(meterRegistry.get("document.cache.hit.ratio").gauge().value()).isEqualTo(2.0 / 3);
+	}
+
+	@Test
+	void concurrentMissesFetchOnce() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		when(storageBackend.get(anyString())).thenAnswer(invocation -> {
+			release.await(10, TimeUnit.SECONDS);
+			return new ByteArrayInputStream(content);
+		});
+		DocumentDiskCache cache = createCache(10 * SIZE);
+
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		try {
+			List<Future<byte[]>> reads = new ArrayList<>();
+			for (int i = 0; i < 16; i++) {
+				reads.add(executor.submit(() -> read(cache, "hearing.pdf", 0, SIZE)));
+			}
+			Thread.sleep(200);
+			release.countDown();
+			for (Future<byte[]> future : reads) {
+				assertThat(future.get(10, TimeUnit.SECONDS)).isEqualTo(content);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		verify(storageBackend, times(1)).get("hearing.pdf");
+	}
+
+	@Test
+	void rangeMissIsServedFromTheBackendWhileTheObjectIsCachedInBackground() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		when(storageBackend.get(anyString())).thenAnswer(invocation -> {
+			release.await(10, TimeUnit.SECONDS);
+			return new ByteArrayInputStream(content);
+		});
+		DocumentDiskCache cache = createCache(10 * SIZE);
+
+		// 对象仍在后台读入缓存时，跳页请求直接从存储后端读取所需范围
+		assertThat(read(cache, "brief.pdf", 64 * 1024, 4096))
+				.isEqualTo(Arrays.copyOfRange(content, 64 * 1024, 64 * 1024 + 4096));
+		verify(storageBackend).transferTo(eq("brief.pdf"), eq(64L * 1024), eq(4096L), any());
+
+		release.countDown();
+		cacheFillExecutor.shutdown();
+		assertThat(cacheFillExecutor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(read(cache, "brief.pdf", 128 * 1024, 4096))
+				.isEqualTo(Arrays.copyOfRange(content, 128 * 1024, 128 * 1024 + 4096));
+		verify(storageBackend, times(1)).transferTo(anyString(), anyLong(), anyLong(), any());
+		verify(storageBackend, times(1)).get("brief.pdf");
+		assertThat(meterRegistry.get("document.cache.requests").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("document.cache.requests").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void cacheStaysWithinCapacity() throws Exception {
+		DocumentDiskCache cache = createCache(4 * SIZE);
+
+		for (int i = 0; i < 20; i++) {
+			assertThat(read(cache, "exhibit-" + i + ".pdf", 0, SIZE)).isEqualTo(content);
+		}
+
+		assertThat(FileUtils.sizeOfDirectory(cacheDir.toFile())).isLessThanOrEqualTo(4L * SIZE);
+		assertThat(meterRegistry.get("document.cache.size").gauge().value())
+				.isEqualTo(FileUtils.sizeOfDirectory(cacheDir.toFile()));
+	}
+
+	@Test
+	void deletedObjectsAreInvalidated() throws Exception {
+		DocumentDiskCache cache = createCache(10 * SIZE);
+		read(cache, "contract.pdf", 0, SIZE);
+
+		cache.invalidate("contract.pdf");
+
+		assertThat(cacheDir).isEmptyDirectory();
+		read(cache, "contract.pdf", 0, SIZE);
+		verify(storageBackend, times(2)).get("contract.pdf");
+	}
+
+	@Test
+	void largeObjectsBypassTheCache() throws Exception {
+		DocumentDiskCache cache = createCache(10 * SIZE);
+
+		cache.transferTo("video.mp4", 10L * SIZE, 0, SIZE, new ByteArrayOutputStream());
+
+		verify(storageBackend).transferTo(eq("video.mp4"), eq(0L), eq((long) SIZE), any());
+		verify(storageBackend, times(0)).get(anyString());
+		assertThat(cacheDir).isEmptyDirectory();
+	}
+
+	private DocumentDiskCache createCache(long maxBytes) throws Exception {
+		StorageReadCoalescer coalescer = new StorageReadCoalescer(storageBackend, meterRegistry, false, 0, 0);
+		return new DocumentDiskCache(storageBackend, coalescer, meterRegistry, cacheFillExecutor, true, cacheDir.toString(),
+				maxBytes, 2L * SIZE);
+	}
+
+	private byte[] read(DocumentDiskCache cache, String name, long offset, long length) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		cache.transferTo(name, (long) SIZE, offset, length, out);
+		return out.toByteArray();
+	}
+}
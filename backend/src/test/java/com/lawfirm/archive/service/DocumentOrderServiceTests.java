@@ -0,0 +1,109 @@
+package com.lawfirm.archive.service;
+
+import com.lawfirm.archive.model.Document;
+import com.lawfirm.archive.repository.CaseRepository;
+import com.lawfirm.archive.repository.DocumentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 文档排序：移动只更新被移动文档的排序值，间隔用尽时重新编号
+ */
+class DocumentOrderServiceTests {
+
+	private static final long CASE_ID = 7L;
+
+	private final DocumentRepository documentRepository = mock(DocumentRepository.class);
+
+	private final CaseRepository caseRepository = mock(CaseRepository.class);
+
+	private DocumentOrderService documentOrderService;
+
+	private Document moved;
+
+	@BeforeEach
+	void createService() {
+		documentOrderService = new DocumentOrderService(documentRepository, caseRepository,
+				mock(SchedulerLockService.class), mock(TransactionTemplate.class));
+		ReflectionTestUtils.setField(documentOrderService, "minGap", 16);
+
+		moved = new Document();
+		moved.setId(1L);
+		moved.setCaseId(CASE_ID);
+		moved.setSortOrder(4096);
+		when(documentRepository.findById(1L)).thenReturn(Optional.of(moved));
+		when(documentRepository.updateSortOrder(eq(1L), anyInt(), any())).thenAnswer(invocation -> {
+			moved.setSortOrder(invocation.getArgument(1));
+			return 1;
+		});
+	}
+
+	@Test
+	void movePlacesDocumentBetweenNeighbours() {
+		when(documentRepository.findSortOrder(CASE_ID, 3L)).thenReturn(2048);
+		when(documentRepository.findPreviousSortOrder(CASE_ID, 2048, 3L, 1L)).thenReturn(1024);
+
+		assertThat(documentOrderService.move(1L, 3L, true).getSortOrder()).isEqualTo(1536);
+
+		when(documentRepository.findNextSortOrder(CASE_ID, 2048, 3L, 1L)).thenReturn(null);
+		assertThat(documentOrderService.move(1L, 3L, false).getSortOrder()).isEqualTo(2048 + DocumentOrderService.GAP);
+
+		verify(caseRepository, times(2)).lockById(CASE_ID);
+		verify(documentRepository, never()).renumberSortOrders(anyLong(), anyInt());
+		verify(documentRepository, never()).requestSortRebalance(anyLong());
+		// 只更新排序值，不写回加锁前读取的整个实体
+		verify(documentRepository, never()).save(any(Document.class));
+	}
+
+	@Test
+	void moveRejectsSelfAndOtherCaseTargets() {
+		when(documentRepository.findSortOrder(CASE_ID, 9L)).thenReturn(null);
+
+		assertThatThrownBy(() -> documentOrderService.move(1L, 1L, true))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> documentOrderService.move(1L, 9L, false))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("9");
+		verify(documentRepository, never()).updateSortOrder(anyLong(), anyInt(), any());
+	}
+
+	@Test
+	void exhaustedGapRenumbersCaseBeforeMoving() {
+		// 旧数据排序值全部相同，重新编号后按新的排序值放置
+		when(documentRepository.findSortOrder(CASE_ID, 3L)).thenReturn(0, 2048);
+		when(documentRepository.findPreviousSortOrder(CASE_ID, 0, 3L, 1L)).thenReturn(0);
+		when(documentRepository.findPreviousSortOrder(CASE_ID, 2048, 3L, 1L)).thenReturn(1024);
+
+		assertThat(documentOrderService.move(1L, 3L, true).getSortOrder()).isEqualTo(1536);
+
+		verify(documentRepository).renumberSortOrders(CASE_ID, DocumentOrderService.GAP);
+		verify(documentRepository).deleteSortRebalanceRequest(CASE_ID);
+	}
+
+	@Test
+	void narrowGapRequestsBackgroundRebalance() {
+		when(documentRepository.findSortOrder(CASE_ID, 3L)).thenReturn(1030);
+		when(documentRepository.findNextSortOrder(CASE_ID, 1030, 3L, 1L)).thenReturn(1040);
+
+		assertThat(documentOrderService.move(1L, 3L, false).getSortOrder()).isEqualTo(1035);
+
+		verify(documentRepository).requestSortRebalance(CASE_ID);
+		verify(documentRepository, never()).renumberSortOrders(anyLong(), anyInt());
+	}
+}
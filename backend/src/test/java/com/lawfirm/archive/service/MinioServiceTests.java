@@ -0,0 +1,50 @@
+package com.lawfirm.archive.service;
+
+import com.lawfirm.archive.config.MinioConfig;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批量删除：按S3单次请求上限分批，汇总每个对象的删除错误
+ */
+class MinioServiceTests {
+
+	@Test
+	void deleteFilesSendsBatchesOfAtMostOneThousand() throws Exception {
+		MinioClient minioClient = mock(MinioClient.class);
+		MinioConfig minioConfig = new MinioConfig();
+		minioConfig.setBucketName("lawfirm-archive");
+		MinioService minioService = new MinioService(minioClient, mock(MinioMultipartClient.class), minioConfig);
+
+		DeleteError locked = mock(DeleteError.class);
+		when(locked.objectName()).thenReturn("locked.pdf");
+		List<Integer> batchSizes = new ArrayList<>();
+		when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenAnswer(invocation -> {
+			RemoveObjectsArgs args = invocation.getArgument(0);
+			int size = 0;
+			for (Object ignored : args.objects()) {
+				size++;
+			}
+			batchSizes.add(size);
+			return batchSizes.size() == 2 ? List.of(new Result<>(locked)) : List.of();
+		});
+
+		List<String> names = IntStream.range(0, 2500).mapToObj(i -> "doc-" + i + ".pdf").toList();
+		List<DeleteError> errors = minioService.deleteFiles(names);
+
+		assertThat(batchSizes).containsExactly(1000, 1000, 500);
+		assertThat(errors).extracting(DeleteError::objectName).containsExactly("locked.pdf");
+	}
+}
@@ -0,0 +1,35 @@
+package com.lawfirm.archive.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 检索分词：中文按二元组切分，其他文字按词切分；摘要标注合并相邻的命中
+ */
+class SearchTokenizerTests {
+
+	@Test
+	void splitsChineseIntoBigramsAndWordsByLetters() {
+		assertThat(SearchTokenizer.tokens("（2023）京01民初123号 Sales-Contract.PDF"))
+				.containsExactly("2023", "京", "01", "民初", "123", "号", "sales", "contract", "pdf");
+		assertThat(SearchTokenizer.tokens("违约金条款")).containsExactly("违约", "约金", "金条", "条款");
+	}
+
+	@Test
+	void queryBigramsAreContainedInIndexedText() {
+		List<String> indexed = SearchTokenizer.tokens("双方约定的违约金条款无效。");
+		assertThat(indexed).containsAll(SearchTokenizer.tokens("违约金条款"));
+	}
+
+	@Test
+	void highlightsMergedMatchesAndEscapesHtml() {
+		String snippet = SearchTokenizer.highlight("<b>违约金条款</b> 适用 Contract 约定",
+				SearchTokenizer.tokens("违约金条款 contract"));
+
+		assertThat(snippet).isEqualTo(
+				"&lt;b&gt;<mark>违约金条款</mark>&lt;/b&gt; 适用 <mark>Contract</mark> 约定");
+	}
+}
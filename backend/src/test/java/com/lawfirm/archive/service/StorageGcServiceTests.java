@@ -0,0 +1,101 @@
+package com.lawfirm.archive.service;
+
+import com.lawfirm.archive.model.StorageGcEntry;
+import com.lawfirm.archive.repository.DocumentRepository;
+import com.lawfirm.archive.repository.StorageBlobRepository;
+import com.lawfirm.archive.repository.StorageGcQueueRepository;
+import com.lawfirm.archive.service.StorageBackend.DeleteFailure;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 存储回收：仍在使用的对象不删除，删除失败的对象按退避时间重试
+ */
+class StorageGcServiceTests {
+
+	private final StorageGcQueueRepository queueRepository = mock(StorageGcQueueRepository.class);
+
+	private final DocumentRepository documentRepository = mock(DocumentRepository.class);
+
+	private final StorageBlobRepository storageBlobRepository = mock(StorageBlobRepository.class);
+
+	private final StorageBlobService storageBlobService = mock(StorageBlobService.class);
+
+	private final SchedulerLockService schedulerLockService = mock(SchedulerLockService.class);
+
+	private StorageGcService storageGcService;
+
+	@BeforeEach
+	void createService() {
+		storageGcService = new StorageGcService(queueRepository, documentRepository, storageBlobRepository,
+				storageBlobService, schedulerLockService);
+		ReflectionTestUtils.setField(storageGcService, "graceMinutes", 60L);
+		ReflectionTestUtils.setField(storageGcService, "batchSize", 100);
+		ReflectionTestUtils.setField(storageGcService, "maxBackoffMinutes", 1440L);
+		ReflectionTestUtils.setField(storageGcService, "lockMinutes", 30L);
+		when(schedulerLockService.tryLock(any(), any())).thenReturn(true);
+	}
+
+	@Test
+	void deletesUnusedObjectsAndRetriesFailures() {
+		StorageGcEntry removed = entry(1L, "a.pdf", 0);
+		StorageGcEntry reuploaded = entry(2L, "sha256/ab/ab12", 0);
+		StorageGcEntry locked = entry(3L, "locked.pdf", 2);
+		when(queueRepository.findDue(any(ZonedDateTime.class), any(Pageable.class)))
+				.thenReturn(List.of(removed, reuploaded, locked));
+		when(storageBlobRepository.findRegisteredStorageNames(anyCollection())).thenReturn(List.of("sha256/ab/ab12"));
+		List<String> deletedNames = new ArrayList<>();
+		when(storageBlobService.deleteObjects(anyCollection())).thenAnswer(invocation -> {
+			Collection<String> names = invocation.getArgument(0);
+			deletedNames.addAll(names);
+			return List.of(new DeleteFailure("locked.pdf", "AccessDenied"));
+		});
+
+		ZonedDateTime before = ZonedDateTime.now();
+		storageGcService.collect();
+
+		assertThat(deletedNames).containsExactly("a.pdf", "locked.pdf");
+		verify(queueRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+		verify(queueRepository).saveAll(List.of(locked));
+		assertThat(locked.getAttempts()).isEqualTo(3);
+		assertThat(locked.getLastError()).isEqualTo("AccessDenied");
+		assertThat(locked.getNotBefore()).isAfterOrEqualTo(before.plusMinutes(4));
+		verify(documentRepository).purgeDeleted(any(ZonedDateTime.class), anyInt());
+		verify(schedulerLockService).unlock("storage-gc");
+	}
+
+	@Test
+	void skipsWhenAnotherInstanceHoldsTheLock() {
+		when(schedulerLockService.tryLock(any(), any())).thenReturn(false);
+
+		storageGcService.collect();
+
+		verify(queueRepository, never()).findDue(any(), any());
+		verify(storageBlobService, never()).deleteObjects(anyCollection());
+	}
+
+	private static StorageGcEntry entry(Long id, String storageName, int attempts) {
+		StorageGcEntry entry = new StorageGcEntry();
+		entry.setId(id);
+		entry.setStorageName(storageName);
+		entry.setAttempts(attempts);
+		entry.setNotBefore(ZonedDateTime.now().minusMinutes(1));
+		return entry;
+	}
+}
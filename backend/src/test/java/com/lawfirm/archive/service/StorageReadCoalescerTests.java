@@ -0,0 +1,161 @@
+package com.lawfirm.archive.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 合并读取：并发完整下载共用一次读取，落后或读取失败的请求改为单独读取
+ */
+class StorageReadCoalescerTests {
+
+	private static final int SIZE = 1024 * 1024;
+
+	private static final long CHUNK = StorageBackend.TRANSFER_BUFFER_SIZE;
+
+	private final byte[] content = new byte[SIZE];
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final CountDownLatch upstreamOpened = new CountDownLatch(1);
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+	private StorageBackend storageBackend;
+
+	@BeforeEach
+	void createBackend() throws Exception {
+		new Random(7).nextBytes(content);
+		storageBackend = mock(StorageBackend.class);
+		when(storageBackend.get(anyString())).thenAnswer(invocation -> {
+			upstreamOpened.await(10, TimeUnit.SECONDS);
+			return new ByteArrayInputStream(content);
+		});
+		when(storageBackend.get(anyString(), anyLong(), anyLong())).thenAnswer(invocation -> new ByteArrayInputStream(
+				content, (int) (long) invocation.getArgument(1), (int) (long) invocation.getArgument(2)));
+		doCallRealMethod().when(storageBackend).transferTo(anyString(), anyLong(), anyLong(), any());
+	}
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void concurrentDownloadsShareOneRead() throws Exception {
+		StorageReadCoalescer coalescer = createCoalescer(4 * SIZE);
+
+		List<Future<byte[]>> downloads = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			downloads.add(executor.submit(() -> download(coalescer, new ByteArrayOutputStream())));
+		}
+		Thread.sleep(200);
+		upstreamOpened.countDown();
+
+		for (Future<byte[]> download : downloads) {
+			assertThat(download.get(10, TimeUnit.SECONDS)).isEqualTo(content);
+		}
+		verify(storageBackend, times(1)).get("contract.pdf");
+		verify(storageBackend, never()).get(anyString(), anyLong(), anyLong());
+		assertThat(meterRegistry.get("document.read.coalesced").functionCounter().count()).isEqualTo(7);
+	}
+
+	@Test
+	void slowReaderDetachesWithoutStallingOthers() throws Exception {
+		StorageReadCoalescer coalescer = createCoalescer(4 * CHUNK);
+		CountDownLatch slowClient = new CountDownLatch(1);
+		ByteArrayOutputStream slowOut = new ByteArrayOutputStream() {
+			@Override
+			public synchronized void write(byte[] b, int off, int len) {
+				try {
+					slowClient.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.write(b, off, len);
+			}
+		};
+
+		Future<byte[]> slow = executor.submit(() -> download(coalescer, slowOut));
+		Future<byte[]> fast = executor.submit(() -> download(coalescer, new ByteArrayOutputStream()));
+		Thread.sleep(200);
+		upstreamOpened.countDown();
+
+		// 慢速请求阻塞期间，其他请求不受影响
+		assertThat(fast.get(10, TimeUnit.SECONDS)).isEqualTo(content);
+		assertThat(slow).isNotDone();
+
+		slowClient.countDown();
+		assertThat(slow.get(10, TimeUnit.SECONDS)).isEqualTo(content);
+		verify(storageBackend, times(1)).get("contract.pdf");
+		// 从脱离时的位置单独读取剩余部分
+		verify(storageBackend).get(eq("contract.pdf"), anyLong(), anyLong());
+		assertThat(meterRegistry.get("document.read.detached").functionCounter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void upstreamFailureFallsBackToRangedRead() throws Exception {
+		upstreamOpened.countDown();
+		when(storageBackend.get(anyString())).thenAnswer(invocation -> new InputStream() {
+			private int position;
+
+			@Override
+			public int read() throws IOException {
+				if (position == 3 * CHUNK) {
+					throw new IOException("connection reset");
+				}
+				return content[position++] & 0xff;
+			}
+		});
+		StorageReadCoalescer coalescer = createCoalescer(4 * SIZE);
+
+		assertThat(download(coalescer, new ByteArrayOutputStream())).isEqualTo(content);
+		verify(storageBackend).get(eq("contract.pdf"), eq(3 * CHUNK), eq(SIZE - 3 * CHUNK));
+	}
+
+	@Test
+	void rangeReadsAreNotCoalesced() throws Exception {
+		StorageReadCoalescer coalescer = createCoalescer(4 * SIZE);
+
+		coalescer.transferTo("contract.pdf", (long) SIZE, 100, 1000, new ByteArrayOutputStream());
+
+		verify(storageBackend, never()).get(anyString());
+		verify(storageBackend).get("contract.pdf", 100, 1000);
+	}
+
+	private StorageReadCoalescer createCoalescer(long windowBytes) {
+		return new StorageReadCoalescer(storageBackend, meterRegistry, true, windowBytes, 64L * SIZE);
+	}
+
+	private byte[] download(StorageReadCoalescer coalescer, ByteArrayOutputStream out) throws Exception {
+		coalescer.transferTo("contract.pdf", (long) SIZE, 0, SIZE, out);
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,82 @@
+package com.lawfirm.archive.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 文本提取：PDF逐页提取、DOCX、GBK编码的纯文本与字符数上限
+ */
+class TextExtractorTests {
+
+	private final TextExtractor textExtractor = new TextExtractor();
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void extractsPdfPagesUpToLimit() throws Exception {
+		Path file = dir.resolve("judgment.pdf");
+		try (PDDocument pdf = new PDDocument()) {
+			for (int i = 1; i <= 3; i++) {
+				PDPage page = new PDPage();
+				pdf.addPage(page);
+				try (PDPageContentStream content = new PDPageContentStream(pdf, page)) {
+					content.beginText();
+					content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+					content.newLineAtOffset(72, 700);
+					content.showText("Page " + i + " liquidated damages");
+					content.endText();
+				}
+			}
+			pdf.save(file.toFile());
+		}
+
+		String text = textExtractor.extract(file, "judgment.pdf", "application/pdf", 10000);
+		assertThat(text).contains("Page 1 liquidated damages", "Page 3 liquidated damages");
+
+		assertThat(textExtractor.extract(file, "judgment.pdf", "application/pdf", 10)).hasSize(10);
+	}
+
+	@Test
+	void extractsDocxParagraphs() throws Exception {
+		Path file = dir.resolve("contract.docx");
+		try (XWPFDocument docx = new XWPFDocument(); OutputStream out = Files.newOutputStream(file)) {
+			docx.createParagraph().createRun().setText("买卖合同");
+			docx.createParagraph().createRun().setText("违约金按合同总价的百分之二十计算");
+			docx.write(out);
+		}
+
+		assertThat(textExtractor.extract(file, "contract.docx", null, 10000))
+				.contains("买卖合同", "违约金按合同总价的百分之二十计算");
+	}
+
+	@Test
+	void decodesGbkTextFiles() throws Exception {
+		Path file = dir.resolve("notes.txt");
+		Files.write(file, "开庭笔录：原告到庭".getBytes(Charset.forName("GBK")));
+
+		assertThat(textExtractor.extract(file, "notes.txt", "text/plain", 10000)).isEqualTo("开庭笔录：原告到庭");
+	}
+
+	@Test
+	void unsupportedTypesReturnNull() throws Exception {
+		Path file = dir.resolve("scan.jpg");
+		Files.write(file, new byte[]{1, 2, 3});
+
+		assertThat(textExtractor.supports("scan.jpg", "image/jpeg")).isFalse();
+		assertThat(textExtractor.extract(file, "scan.jpg", "image/jpeg", 10000)).isNull();
+	}
+}
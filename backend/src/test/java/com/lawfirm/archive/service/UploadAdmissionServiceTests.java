@@ -0,0 +1,191 @@
+package com.lawfirm.archive.service;
+
+import com.lawfirm.archive.exception.TooManyRequestsException;
+import com.lawfirm.archive.model.UploadTask.UploadTaskStatus;
+import com.lawfirm.archive.repository.UploadTaskRepository;
+import com.lawfirm.archive.service.UploadAdmissionService.Permit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 上传准入：全局与每用户并发上限、许可归还、暂存总量的计算
+ */
+class UploadAdmissionServiceTests {
+
+	private static final long MAX_STAGING_BYTES = 1000;
+
+	private final UploadTaskRepository uploadTaskRepository = mock(UploadTaskRepository.class);
+
+	private final UploadAdmissionService service = new UploadAdmissionService(uploadTaskRepository);
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(service, "maxWrites", 3);
+		ReflectionTestUtils.setField(service, "maxWritesPerUser", 2);
+		ReflectionTestUtils.setField(service, "maxMerges", 1);
+		ReflectionTestUtils.setField(service, "maxMergesPerUser", 1);
+		ReflectionTestUtils.setField(service, "maxStagingBytes", MAX_STAGING_BYTES);
+		ReflectionTestUtils.setField(service, "mergeLeaseMinutes", 30L);
+		ReflectionTestUtils.setField(service, "retryAfterSeconds", 5L);
+		ReflectionTestUtils.setField(service, "stagingRetryAfterSeconds", 60L);
+		when(uploadTaskRepository.sumStagedFileSize(anyList(), any())).thenReturn(600L);
+	}
+
+	@AfterEach
+	void clearUser() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void perUserLimitOnlyRejectsThatUser() {
+		loginAs("alice");
+		service.acquireWrite();
+		service.acquireWrite();
+		assertThatThrownBy(service::acquireWrite).isInstanceOfSatisfying(TooManyRequestsException.class,
+				e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(5));
+
+		loginAs("bob");
+		service.acquireWrite();
+	}
+
+	@Test
+	void globalLimitAppliesAcrossUsers() {
+		loginAs("alice");
+		Permit first = service.acquireWrite();
+		service.acquireWrite();
+		loginAs("bob");
+		service.acquireWrite();
+
+		// 全局3个许可已用完，carol 未达到每用户上限也被拒绝
+		loginAs("carol");
+		assertThatThrownBy(service::acquireWrite).isInstanceOf(TooManyRequestsException.class);
+
+		first.close();
+		service.acquireWrite();
+	}
+
+	@Test
+	void permitIsReleasedOnlyOnce() {
+		loginAs("alice");
+		Permit permit = service.acquireWrite();
+		Permit held = service.acquireWrite();
+		permit.close();
+		permit.close();
+
+		service.acquireWrite();
+		// 重复关闭不会多归还许可
+		assertThatThrownBy(service::acquireWrite).isInstanceOf(TooManyRequestsException.class);
+		held.close();
+	}
+
+	@Test
+	void rejectedRequestsDoNotLeakPermits() {
+		loginAs("alice");
+		service.acquireWrite();
+		service.acquireWrite();
+		for (int i = 0; i < 10; i++) {
+			assertThatThrownBy(service::acquireWrite).isInstanceOf(TooManyRequestsException.class);
+		}
+
+		// 被拒绝的请求不占用全局许可
+		loginAs("bob");
+		service.acquireWrite();
+	}
+
+	@Test
+	void mergesAreLimitedSeparatelyFromWrites() {
+		loginAs("alice");
+		service.acquireWrite();
+		service.acquireWrite();
+
+		Permit merge = service.acquireMerge();
+		assertThatThrownBy(service::acquireMerge).isInstanceOfSatisfying(TooManyRequestsException.class,
+				e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(5));
+		merge.close();
+		service.acquireMerge();
+	}
+
+	@Test
+	void stagingBudgetCountsStagedTasksWithinMergeLease() {
+		service.checkStagingBudget(400);
+		assertThatThrownBy(() -> service.checkStagingBudget(401)).isInstanceOfSatisfying(
+				TooManyRequestsException.class, e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(60));
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<UploadTaskStatus>> statuses = ArgumentCaptor.forClass(List.class);
+		ArgumentCaptor<ZonedDateTime> leaseStart = ArgumentCaptor.forClass(ZonedDateTime.class);
+		verify(uploadTaskRepository, atLeastOnce())
+				.sumStagedFileSize(statuses.capture(), leaseStart.capture());
+		assertThat(statuses.getValue()).containsExactlyInAnyOrder(UploadTaskStatus.INITIALIZED,
+				UploadTaskStatus.IN_PROGRESS, UploadTaskStatus.COMPLETED);
+		assertThat(leaseStart.getValue()).isCloseTo(ZonedDateTime.now().minusMinutes(30),
+				within(5, ChronoUnit.SECONDS));
+	}
+
+	@Test
+	void directUploadsReserveStagingUntilClosed() {
+		loginAs("alice");
+		Permit upload = service.acquireWrite(300);
+
+		// 600 已暂存 + 300 预留
+		service.checkStagingBudget(100);
+		assertThatThrownBy(() -> service.checkStagingBudget(101)).isInstanceOf(TooManyRequestsException.class);
+		assertThatThrownBy(() -> service.acquireWrite(101)).isInstanceOf(TooManyRequestsException.class);
+
+		upload.close();
+		upload.close();
+		service.checkStagingBudget(400);
+		assertThatThrownBy(() -> service.checkStagingBudget(401)).isInstanceOf(TooManyRequestsException.class);
+	}
+
+	@Test
+	void rejectedDirectUploadReleasesItsReservationAndPermit() {
+		loginAs("alice");
+		Permit first = service.acquireWrite();
+		Permit second = service.acquireWrite();
+
+		// 并发受限：预留的字节数归还
+		assertThatThrownBy(() -> service.acquireWrite(400)).isInstanceOfSatisfying(TooManyRequestsException.class,
+				e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(5));
+		service.checkStagingBudget(400);
+
+		// 暂存受限：不占用写入许可
+		first.close();
+		second.close();
+		assertThatThrownBy(() -> service.acquireWrite(401)).isInstanceOfSatisfying(TooManyRequestsException.class,
+				e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(60));
+		service.acquireWrite();
+		service.acquireWrite();
+	}
+
+	@Test
+	void unauthenticatedRequestsShareOneAnonymousLimit() {
+		service.acquireWrite();
+		service.acquireWrite();
+		assertThatThrownBy(service::acquireWrite).isInstanceOf(TooManyRequestsException.class);
+	}
+
+	private static void loginAs(String username) {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new UsernamePasswordAuthenticationToken(username, null, List.of()));
+	}
+}
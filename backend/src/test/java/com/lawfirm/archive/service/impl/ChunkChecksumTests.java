@@ -0,0 +1,276 @@
+package com.lawfirm.archive.service.impl;
+
+import com.lawfirm.archive.dto.ChunkDTO;
+import com.lawfirm.archive.exception.StorageException;
+import com.lawfirm.archive.model.Case;
+import com.lawfirm.archive.model.Document;
+import com.lawfirm.archive.model.UploadTask;
+import com.lawfirm.archive.model.UploadTask.UploadTaskStatus;
+import com.lawfirm.archive.repository.CaseRepository;
+import com.lawfirm.archive.repository.DocumentRepository;
+import com.lawfirm.archive.repository.UploadTaskRepository;
+import com.lawfirm.archive.service.SchedulerLockService;
+import com.lawfirm.archive.service.StorageBlobService;
+import com.lawfirm.archive.service.UploadAdmissionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.BeanUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分片校验：CRC32C/MD5校验失败的分片不计为已上传，重传后覆盖；按顺序到达时文件哈希在上传过程中算出
+ * 使用文件暂存与本地存储后端
+ */
+class ChunkChecksumTests {
+
+	private static final int CHUNK_SIZE = 1024 * 1024;
+
+	@TempDir
+	Path tempDir;
+
+	@TempDir
+	Path storageRoot;
+
+	private final Map<String, UploadTask> tasks = new ConcurrentHashMap<>();
+
+	private final byte[] content = new byte[2 * CHUNK_SIZE + 1000];
+
+	private LocalChunkStaging localChunkStaging;
+
+	private ChunkedUploadServiceImpl service;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void createService() throws Exception {
+		new Random(11).nextBytes(content);
+		UploadTaskRepository uploadTaskRepository = uploadTaskRepository();
+
+		DocumentRepository documentRepository = mock(DocumentRepository.class);
+		when(documentRepository.save(any(Document.class))).thenAnswer(invocation -> {
+			Document document = invocation.getArgument(0);
+			document.setId(1L);
+			return document;
+		});
+		CaseRepository caseRepository = mock(CaseRepository.class);
+		when(caseRepository.findById(anyLong())).thenReturn(Optional.of(new Case()));
+
+		TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+		when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+				((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+		doAnswer(invocation -> {
+			((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+			return null;
+		}).when(transactionTemplate).executeWithoutResult(any());
+
+		ExecutorService executor = mock(ExecutorService.class);
+		doAnswer(invocation -> {
+			((Runnable) invocation.getArgument(0)).run();
+			return null;
+		}).when(executor).execute(any());
+
+		localChunkStaging = spy(new LocalChunkStaging(new LocalStorageBackend(storageRoot.toString()),
+				uploadTaskRepository));
+		ReflectionTestUtils.setField(localChunkStaging, "tempDir", tempDir.toString());
+
+		UploadAdmissionService uploadAdmissionService = new UploadAdmissionService(uploadTaskRepository);
+		ReflectionTestUtils.setField(uploadAdmissionService, "maxMerges", 1);
+		ReflectionTestUtils.setField(uploadAdmissionService, "maxMergesPerUser", 1);
+		ReflectionTestUtils.setField(uploadAdmissionService, "maxStagingBytes", Long.MAX_VALUE);
+
+		service = new ChunkedUploadServiceImpl(uploadTaskRepository, documentRepository, caseRepository,
+				mock(StorageBlobService.class), transactionTemplate, executor, executor, localChunkStaging,
+				mock(ObjectStoreChunkStaging.class), mock(SchedulerLockService.class), uploadAdmissionService);
+		ReflectionTestUtils.setField(service, "defaultChunkSize", CHUNK_SIZE);
+		ReflectionTestUtils.setField(service, "maxChunkSize", CHUNK_SIZE);
+		ReflectionTestUtils.setField(service, "maxChunks", 10000);
+		ReflectionTestUtils.setField(service, "staging", "local");
+	}
+
+	@Test
+	void corruptedChunkIsRejectedAndOverwrittenByTheResend() throws Exception {
+		UploadTask task = initUpload();
+		byte[] corrupted = chunk(1);
+		corrupted[100] ^= 1;
+
+		assertThatThrownBy(() -> upload(task, 1, corrupted, crc32c(chunk(1)), "CRC32C"))
+				.isInstanceOf(StorageException.class)
+				.hasMessageContaining("分片校验失败");
+		assertThat(tasks.get(task.getId()).getUploadedChunks()).isZero();
+
+		upload(task, 1, chunk(1), crc32c(chunk(1)), "CRC32C");
+		upload(task, 2, chunk(2), crc32c(chunk(2)), "CRC32C");
+		upload(task, 3, chunk(3), crc32c(chunk(3)), null);
+		service.mergeChunks(task.getId());
+
+		UploadTask merged = tasks.get(task.getId());
+		assertThat(merged.getStatus()).isEqualTo(UploadTaskStatus.MERGED);
+		assertThat(Files.readAllBytes(storageRoot.resolve(merged.getStorageName()))).isEqualTo(content);
+		// 被拒绝的分片没有进入按顺序累计的文件哈希
+		verify(localChunkStaging).complete(any(), isNull(), any());
+		assertThat(merged.getContentHash()).isEqualTo(sha256(content));
+	}
+
+	@Test
+	void md5IsCheckedByNameOrByLength() throws Exception {
+		UploadTask task = initUpload();
+		byte[] corrupted = chunk(1);
+		corrupted[0] ^= 1;
+
+		assertThatThrownBy(() -> upload(task, 1, corrupted, md5(chunk(1)), null))
+				.isInstanceOf(StorageException.class)
+				.hasMessageContaining("分片校验失败");
+		upload(task, 1, chunk(1), md5(chunk(1)).toUpperCase(), "md5");
+		upload(task, 2, chunk(2), md5(chunk(2)), null);
+
+		assertThat(tasks.get(task.getId()).getUploadedChunks()).isEqualTo(2);
+	}
+
+	@Test
+	void unsupportedAlgorithmIsRejectedBeforeWriting() throws Exception {
+		UploadTask task = initUpload();
+
+		assertThatThrownBy(() -> upload(task, 1, chunk(1), "a94a8fe5ccb19ba61c4c0873d391e987982fbbd3", "SHA1"))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("SHA1");
+		assertThat(tasks.get(task.getId()).getUploadedChunks()).isZero();
+		verify(localChunkStaging, never()).writeChunk(any(), anyInt(), any(), anyLong());
+	}
+
+	@Test
+	void outOfOrderChunksAreHashedWhileMerging() throws Exception {
+		UploadTask task = initUpload();
+		upload(task, 2, chunk(2), null, null);
+		upload(task, 1, chunk(1), null, null);
+		upload(task, 3, chunk(3), null, null);
+
+		service.mergeChunks(task.getId());
+
+		// 顺序累计失效，合并时重新读取整个文件计算，结果与一次性计算相同
+		verify(localChunkStaging).complete(any(), notNull(), any());
+		assertThat(tasks.get(task.getId()).getContentHash()).isEqualTo(sha256(content));
+	}
+
+	private UploadTask initUpload() {
+		UploadTask task = service.initUpload("evidence.pdf", (long) content.length, "application/pdf",
+				1L, null, null, null);
+		assertThat(task.getTotalChunks()).isEqualTo(3);
+		return task;
+	}
+
+	private void upload(UploadTask task, int chunkNumber, byte[] data, String checksum, String algorithm)
+			throws Exception {
+		ChunkDTO chunkDTO = new ChunkDTO();
+		chunkDTO.setTaskId(task.getId());
+		chunkDTO.setChunkNumber(chunkNumber);
+		chunkDTO.setChecksum(checksum);
+		chunkDTO.setChecksumAlgorithm(algorithm);
+		try (InputStream is = new ByteArrayInputStream(data)) {
+			service.processChunk(chunkDTO, is, data.length);
+		}
+	}
+
+	private byte[] chunk(int chunkNumber) {
+		int offset = (chunkNumber - 1) * CHUNK_SIZE;
+		return Arrays.copyOfRange(content, offset, Math.min(offset + CHUNK_SIZE, content.length));
+	}
+
+	private static String crc32c(byte[] data) {
+		CRC32C crc = new CRC32C();
+		crc.update(data);
+		return String.format("%08x", crc.getValue());
+	}
+
+	private static String md5(byte[] data) throws Exception {
+		return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(data));
+	}
+
+	private static String sha256(byte[] data) {
+		return HexFormat.of().formatHex(StorageBlobService.newSha256().digest(data));
+	}
+
+	/**
+	 * 任务表，按数据库语义实现用到的条件更新
+	 */
+	private UploadTaskRepository uploadTaskRepository() {
+		UploadTaskRepository repository = mock(UploadTaskRepository.class);
+		when(repository.save(any(UploadTask.class))).thenAnswer(invocation -> {
+			UploadTask task = invocation.getArgument(0);
+			tasks.put(task.getId(), task);
+			return task;
+		});
+		// 每次读取得到独立的实体，与从数据库加载一致
+		when(repository.findById(anyString())).thenAnswer(invocation ->
+				Optional.ofNullable(tasks.get(invocation.<String>getArgument(0))).map(ChunkChecksumTests::copy));
+		when(repository.markChunkUploaded(anyString(), anyInt())).thenAnswer(invocation -> {
+			UploadTask task = tasks.get(invocation.<String>getArgument(0));
+			int index = invocation.getArgument(1);
+			byte[] bitmap = task.getChunkBitmap();
+			if ((bitmap[index / 8] >> (index % 8) & 1) == 0) {
+				bitmap[index / 8] |= (byte) (1 << (index % 8));
+				task.setUploadedChunks(task.getUploadedChunks() + 1);
+			}
+			task.setStatus(task.getUploadedChunks() >= task.getTotalChunks()
+					? UploadTaskStatus.COMPLETED : UploadTaskStatus.IN_PROGRESS);
+			return 1;
+		});
+		when(repository.findUploadedChunksById(anyString())).thenAnswer(invocation ->
+				tasks.get(invocation.<String>getArgument(0)).getUploadedChunks());
+		when(repository.updateStatus(anyString(), any(), any(), any())).thenAnswer(invocation -> {
+			UploadTask task = tasks.get(invocation.<String>getArgument(0));
+			if (task.getStatus() != invocation.getArgument(1)) {
+				return 0;
+			}
+			task.setStatus(invocation.getArgument(2));
+			return 1;
+		});
+		when(repository.markMerged(anyString(), any(), anyLong(), any(), any(), any())).thenAnswer(invocation -> {
+			UploadTask task = tasks.get(invocation.<String>getArgument(0));
+			task.setStatus(UploadTaskStatus.MERGED);
+			task.setContentHash(invocation.getArgument(3));
+			task.setStorageName(invocation.getArgument(4));
+			return 1;
+		});
+		return repository;
+	}
+
+	private static UploadTask copy(UploadTask task) {
+		UploadTask copy = new UploadTask();
+		BeanUtils.copyProperties(task, copy);
+		copy.setChunkBitmap(task.getChunkBitmap().clone());
+		return copy;
+	}
+}
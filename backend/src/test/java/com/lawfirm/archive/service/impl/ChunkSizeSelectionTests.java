@@ -0,0 +1,171 @@
+package com.lawfirm.archive.service.impl;
+
+import com.lawfirm.archive.model.Case;
+import com.lawfirm.archive.model.UploadTask;
+import com.lawfirm.archive.repository.CaseRepository;
+import com.lawfirm.archive.repository.DocumentRepository;
+import com.lawfirm.archive.repository.UploadTaskRepository;
+import com.lawfirm.archive.service.SchedulerLockService;
+import com.lawfirm.archive.service.StorageBlobService;
+import com.lawfirm.archive.service.UploadAdmissionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 自适应分片大小：默认下限与S3最小分片、分片数上限、按客户端吞吐放大、按1MB取整并限制在最大分片大小内
+ */
+class ChunkSizeSelectionTests {
+
+	private static final int MB = 1024 * 1024;
+
+	private final UploadTaskRepository uploadTaskRepository = mock(UploadTaskRepository.class);
+
+	private final LocalChunkStaging localChunkStaging = mock(LocalChunkStaging.class);
+
+	private final ObjectStoreChunkStaging objectStoreChunkStaging = mock(ObjectStoreChunkStaging.class);
+
+	private ChunkedUploadServiceImpl service;
+
+	@BeforeEach
+	void createService() throws Exception {
+		when(uploadTaskRepository.save(any(UploadTask.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		CaseRepository caseRepository = mock(CaseRepository.class);
+		when(caseRepository.findById(anyLong())).thenReturn(Optional.of(new Case()));
+		when(objectStoreChunkStaging.isAvailable()).thenReturn(true);
+		when(objectStoreChunkStaging.create(any())).thenReturn("upload-id");
+
+		UploadAdmissionService uploadAdmissionService = new UploadAdmissionService(uploadTaskRepository);
+		ReflectionTestUtils.setField(uploadAdmissionService, "maxStagingBytes", Long.MAX_VALUE);
+
+		service = new ChunkedUploadServiceImpl(uploadTaskRepository, mock(DocumentRepository.class), caseRepository,
+				mock(StorageBlobService.class), mock(TransactionTemplate.class), mock(ExecutorService.class),
+				mock(ExecutorService.class), localChunkStaging, objectStoreChunkStaging,
+				mock(SchedulerLockService.class), uploadAdmissionService);
+		ReflectionTestUtils.setField(service, "defaultChunkSize", 5 * MB);
+		ReflectionTestUtils.setField(service, "maxChunkSize", 100 * MB);
+		ReflectionTestUtils.setField(service, "maxChunks", 10000);
+		ReflectionTestUtils.setField(service, "targetChunkSeconds", 10);
+		ReflectionTestUtils.setField(service, "staging", "object-store");
+	}
+
+	@AfterEach
+	void clearUser() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void tinyFileUsesTheDefaultChunkSize() {
+		UploadTask task = initUpload(1);
+
+		assertThat(task.getChunkSize()).isEqualTo(5 * MB);
+		assertThat(task.getTotalChunks()).isEqualTo(1);
+	}
+
+	@Test
+	void objectStoreStagingRaisesSmallDefaultsToTheS3MinimumPartSize() {
+		ReflectionTestUtils.setField(service, "defaultChunkSize", MB);
+
+		assertThat(initUpload(1).getChunkSize()).isEqualTo(5 * MB);
+
+		// 文件暂存不受S3最小分片约束
+		ReflectionTestUtils.setField(service, "staging", "local");
+		assertThat(initUpload(1).getChunkSize()).isEqualTo(MB);
+	}
+
+	@Test
+	void largeFilesUseLargerChunksToStayWithinMaxChunks() {
+		ReflectionTestUtils.setField(service, "maxChunks", 100);
+
+		// 1GB 分成 100 片需要 10.24MB，向上取整到 11MB
+		UploadTask task = initUpload(1024L * MB + 1);
+
+		assertThat(task.getChunkSize()).isEqualTo(11 * MB);
+		assertThat(task.getTotalChunks()).isEqualTo(94);
+	}
+
+	@Test
+	void fileExceedingMaxChunksAtMaxChunkSizeIsRejected() throws Exception {
+		ReflectionTestUtils.setField(service, "maxChunks", 100);
+
+		// 100 片 × 100MB 已能容纳
+		assertThat(initUpload(100L * 100 * MB).getTotalChunks()).isEqualTo(100);
+
+		assertThatThrownBy(() -> initUpload(100L * 100 * MB + 1))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("文件过大");
+		verify(objectStoreChunkStaging).create(any());
+	}
+
+	@Test
+	void s3PartLimitAppliesWhenMaxChunksIsHigher() throws Exception {
+		ReflectionTestUtils.setField(service, "maxChunks", 50000);
+
+		assertThatThrownBy(() -> initUpload(10000L * 100 * MB + 1)).isInstanceOf(IllegalArgumentException.class);
+		verify(objectStoreChunkStaging, never()).create(any());
+	}
+
+	@Test
+	void slowClientsKeepTheDefaultChunkSize() {
+		loginAs("alice");
+		clientThroughput().put("alice", 100_000.0);
+
+		assertThat(initUpload(1024L * MB).getChunkSize()).isEqualTo(5 * MB);
+	}
+
+	@Test
+	void fastClientsGetChunksSizedForTheTargetDuration() {
+		loginAs("alice");
+		// 2.6MB/s × 10s = 26,000,000 字节，向上取整到 25MB
+		clientThroughput().put("alice", 2_600_000.0);
+
+		assertThat(initUpload(1024L * MB).getChunkSize()).isEqualTo(25 * MB);
+
+		// 吞吐按用户区分
+		loginAs("bob");
+		assertThat(initUpload(1024L * MB).getChunkSize()).isEqualTo(5 * MB);
+	}
+
+	@Test
+	void chunkSizeIsClampedToMaxChunkSize() {
+		loginAs("alice");
+		clientThroughput().put("alice", 50.0 * MB);
+
+		UploadTask task = initUpload(1024L * MB);
+
+		assertThat(task.getChunkSize()).isEqualTo(100 * MB);
+		assertThat(task.getTotalChunks()).isEqualTo(11);
+	}
+
+	private UploadTask initUpload(long fileSize) {
+		return service.initUpload("evidence.pdf", fileSize, "application/pdf", 1L, null, null, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Double> clientThroughput() {
+		return (Map<String, Double>) ReflectionTestUtils.getField(service, "clientThroughput");
+	}
+
+	private static void loginAs(String username) {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new UsernamePasswordAuthenticationToken(username, null, List.of()));
+	}
+}
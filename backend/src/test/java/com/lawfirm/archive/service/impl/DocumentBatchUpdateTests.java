@@ -0,0 +1,77 @@
+package com.lawfirm.archive.service.impl;
+
+import com.lawfirm.archive.dto.BatchResultDto;
+import com.lawfirm.archive.model.Document;
+import com.lawfirm.archive.repository.CaseRepository;
+import com.lawfirm.archive.repository.DocumentRepository;
+import com.lawfirm.archive.service.DocumentDiskCache;
+import com.lawfirm.archive.service.StorageBackend;
+import com.lawfirm.archive.service.StorageBlobService;
+import com.lawfirm.archive.service.StorageGcService;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批量更新：一条语句更新全部文档，按影响行数返回成功和失败数量
+ */
+class DocumentBatchUpdateTests {
+
+	private final DocumentRepository documentRepository = mock(DocumentRepository.class);
+
+	private final DocumentServiceImpl service = new DocumentServiceImpl(documentRepository, mock(CaseRepository.class),
+			mock(StorageBackend.class), mock(StorageBlobService.class), mock(DocumentDiskCache.class),
+			mock(StorageGcService.class), mock(ExecutorService.class));
+
+	@Test
+	void batchUpdateCategoryIssuesOneStatementWithoutLoadingDocuments() {
+		when(documentRepository.updateCategory(anyCollection(), eq("证据"), any(ZonedDateTime.class))).thenAnswer(
+				invocation -> invocation.<Collection<Long>>getArgument(0).size() - 1);
+
+		BatchResultDto result = service.batchUpdateCategory(List.of(1L, 2L, 3L, 3L), "证据");
+
+		// 重复的ID只计一次，未更新的文档计为失败
+		assertThat(result.getSuccessCount()).isEqualTo(2);
+		assertThat(result.getFailCount()).isEqualTo(1);
+		verify(documentRepository, never()).findAllById(anyList());
+		verify(documentRepository, never()).saveAll(anyList());
+	}
+
+	@Test
+	void batchUpdateSortOrderReportsDocumentsOutsideTheCase() {
+		Map<Long, Integer> sortOrders = Map.of(1L, 0, 2L, 1024, 9L, 2048);
+		when(documentRepository.updateSortOrders(7L, sortOrders)).thenReturn(2);
+
+		BatchResultDto result = service.batchUpdateSortOrder(7L, sortOrders);
+
+		assertThat(result.getSuccessCount()).isEqualTo(2);
+		assertThat(result.getFailCount()).isEqualTo(1);
+	}
+
+	@Test
+	void batchDeleteIgnoresRepeatedIds() throws Exception {
+		Document document = new Document();
+		document.setId(1L);
+		document.setStorageName("contract.pdf");
+		when(documentRepository.findAllById(Set.of(1L))).thenReturn(List.of(document));
+
+		service.batchDelete(List.of(1L, 1L));
+
+		verify(documentRepository).markDeleted(eq(List.of(1L)), any(ZonedDateTime.class));
+	}
+}
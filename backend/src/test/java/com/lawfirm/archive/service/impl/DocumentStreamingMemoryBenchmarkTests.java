@@ -0,0 +1,156 @@
+package com.lawfirm.archive.service.impl;
+
+import com.lawfirm.archive.model.Document;
+import com.lawfirm.archive.repository.CaseRepository;
+import com.lawfirm.archive.repository.DocumentRepository;
+import com.lawfirm.archive.service.DocumentDiskCache;
+import com.lawfirm.archive.service.StorageBackend;
+import com.lawfirm.archive.service.StorageBlobService;
+import com.lawfirm.archive.service.StorageGcService;
+import com.lawfirm.archive.service.StorageReadCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 流式下载内存基准：线程分配的堆内存不随文件大小增长
+ */
+class DocumentStreamingMemoryBenchmarkTests {
+
+	private static final long MB = 1024 * 1024;
+
+	private final com.sun.management.ThreadMXBean threadBean =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	@TempDir
+	Path storageDir;
+
+	@Test
+	void streamingHeapUsageIsIndependentOfFileSize() throws Exception {
+		StorageBackend storageBackend = mock(StorageBackend.class);
+		when(storageBackend.get(anyString(), anyLong(), anyLong()))
+				.thenAnswer(invocation -> new SyntheticInputStream(invocation.getArgument(2)));
+		doCallRealMethod().when(storageBackend).transferTo(anyString(), anyLong(), anyLong(), any());
+		DocumentServiceImpl service = createService(storageBackend);
+
+		// 预热，排除类加载与Mockito初始化带来的分配
+		measureStreaming(service, 4 * MB);
+
+		long small = measureStreaming(service, 16 * MB);
+		long large = measureStreaming(service, 1024 * MB);
+		long buffered = measureBuffered(64 * MB);
+
+		System.out.printf("streaming 16MB: %d KB, streaming 1GB: %d KB, byte[] 64MB: %d KB%n",
+				small / 1024, large / 1024, buffered / 1024);
+
+		assertThat(large).isLessThan(2 * MB);
+		assertThat(large - small).isLessThan(MB);
+		assertThat(buffered).isGreaterThan(64 * MB);
+	}
+
+	@Test
+	void localFileStreamingHeapUsageIsIndependentOfFileSize() throws Exception {
+		// 稀疏文件，不实际占用磁盘空间
+		for (String name : new String[]{"small.pdf", "large.pdf"}) {
+			try (RandomAccessFile file = new RandomAccessFile(storageDir.resolve(name).toFile(), "rw")) {
+				file.setLength(name.startsWith("small") ? 16 * MB : 1024 * MB);
+			}
+		}
+		DocumentServiceImpl service = createService(new LocalStorageBackend(storageDir.toString()));
+
+		measureStreaming(service, "small.pdf", 4 * MB);
+
+		long small = measureStreaming(service, "small.pdf", 16 * MB);
+		long large = measureStreaming(service, "large.pdf", 1024 * MB);
+
+		System.out.printf("local 16MB: %d KB, local 1GB: %d KB%n", small / 1024, large / 1024);
+
+		assertThat(large).isLessThan(2 * MB);
+		assertThat(large - small).isLessThan(MB);
+	}
+
+	private DocumentServiceImpl createService(StorageBackend storageBackend) throws IOException {
+		// 不经磁盘缓存与合并读取，测量存储后端到响应流的拷贝
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		StorageReadCoalescer coalescer = new StorageReadCoalescer(storageBackend, meterRegistry, false, 0, 0);
+		DocumentDiskCache cache = new DocumentDiskCache(storageBackend, coalescer, meterRegistry,
+				mock(ExecutorService.class), false, "cache", 0, 0);
+		return new DocumentServiceImpl(mock(DocumentRepository.class), mock(CaseRepository.class), storageBackend,
+				mock(StorageBlobService.class), cache, mock(StorageGcService.class), mock(ExecutorService.class));
+	}
+
+	private long measureStreaming(DocumentServiceImpl service, long size) throws Exception {
+		return measureStreaming(service, "exhibit.pdf", size);
+	}
+
+	private long measureStreaming(DocumentServiceImpl service, String storageName, long size) throws Exception {
+		Document doc = new Document();
+		doc.setFileName(storageName);
+		doc.setStorageName(storageName);
+		doc.setFileSize(size);
+
+		long threadId = Thread.currentThread().getId();
+		long before = threadBean.getThreadAllocatedBytes(threadId);
+		service.writeDocument(doc, 0, size, NullOutputStream.INSTANCE);
+		return threadBean.getThreadAllocatedBytes(threadId) - before;
+	}
+
+	/**
+	 * 旧实现：先将对象完整读入byte[]再写出
+	 */
+	private long measureBuffered(long size) throws Exception {
+		long threadId = Thread.currentThread().getId();
+		long before = threadBean.getThreadAllocatedBytes(threadId);
+		try (InputStream is = new SyntheticInputStream(size)) {
+			IOUtils.toByteArray(is);
+		}
+		return threadBean.getThreadAllocatedBytes(threadId) - before;
+	}
+
+	/**
+	 * 不占用内存的定长输入流，模拟存储对象
+	 */
+	private static class SyntheticInputStream extends InputStream {
+		private long remaining;
+
+		SyntheticInputStream(long size) {
+			this.remaining = size;
+		}
+
+		@Override
+		public int read() {
+			if (remaining <= 0) {
+				return -1;
+			}
+			remaining--;
+			return 0;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int n = (int) Math.min(len, remaining);
+			remaining -= n;
+			return n;
+		}
+	}
+}
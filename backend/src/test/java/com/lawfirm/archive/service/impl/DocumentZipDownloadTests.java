@@ -0,0 +1,116 @@
+package com.lawfirm.archive.service.impl;
+
+import com.lawfirm.archive.model.Document;
+import com.lawfirm.archive.repository.CaseRepository;
+import com.lawfirm.archive.repository.DocumentRepository;
+import com.lawfirm.archive.service.DocumentDiskCache;
+import com.lawfirm.archive.service.StorageBackend;
+import com.lawfirm.archive.service.StorageBlobService;
+import com.lawfirm.archive.service.StorageGcService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批量下载打包：客户端中断时不等待进行中的预取，预取到的连接仍被关闭
+ */
+class DocumentZipDownloadTests {
+
+	private final StorageBackend storageBackend = mock(StorageBackend.class);
+
+	private final ExecutorService prefetchExecutor = Executors.newFixedThreadPool(2);
+
+	private final DocumentServiceImpl service = new DocumentServiceImpl(mock(DocumentRepository.class),
+			mock(CaseRepository.class), storageBackend, mock(StorageBlobService.class), mock(DocumentDiskCache.class),
+			mock(StorageGcService.class), prefetchExecutor);
+
+	@AfterEach
+	void shutdown() {
+		prefetchExecutor.shutdownNow();
+	}
+
+	@Test
+	void abortedDownloadDoesNotWaitForPendingPrefetches() throws Exception {
+		ReflectionTestUtils.setField(service, "prefetchDepth", 2);
+		CountDownLatch storageResponds = new CountDownLatch(1);
+		CountDownLatch prefetchedClosed = new CountDownLatch(2);
+		when(storageBackend.get("a")).thenReturn(new ByteArrayInputStream(new byte[] {1}));
+		when(storageBackend.get("b")).thenAnswer(invocation -> slowObject(storageResponds, prefetchedClosed));
+		when(storageBackend.get("c")).thenAnswer(invocation -> slowObject(storageResponds, prefetchedClosed));
+
+		// 客户端已断开，写出第一个条目即失败
+		OutputStream aborted = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("Broken pipe");
+			}
+		};
+
+		assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertThatThrownBy(
+				() -> service.writeDocumentsZip(List.of(document("a"), document("b"), document("c")), aborted))
+				.hasMessage("Broken pipe"));
+
+		// 存储稍后才响应，已取消的预取自行关闭打开的对象
+		storageResponds.countDown();
+		assertThat(prefetchedClosed.await(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	void prefetchDepthMustBePositive() {
+		ReflectionTestUtils.setField(service, "prefetchDepth", 0);
+
+		assertThatThrownBy(service::checkPrefetchDepth).isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("app.download.prefetch-depth");
+
+		ReflectionTestUtils.setField(service, "prefetchDepth", 1);
+		service.checkPrefetchDepth();
+	}
+
+	/**
+	 * 模拟响应缓慢的存储：不响应中断，直到放行后才返回对象
+	 */
+	private static InputStream slowObject(CountDownLatch storageResponds, CountDownLatch closed) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				storageResponds.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return new ByteArrayInputStream(new byte[] {2}) {
+			@Override
+			public void close() {
+				closed.countDown();
+			}
+		};
+	}
+
+	private static Document document(String storageName) {
+		Document document = new Document();
+		document.setFileName(storageName + ".txt");
+		document.setStorageName(storageName);
+		return document;
+	}
+}
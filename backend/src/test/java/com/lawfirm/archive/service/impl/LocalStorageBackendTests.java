@@ -0,0 +1,111 @@
+package com.lawfirm.archive.service.impl;
+
+import com.lawfirm.archive.exception.ResourceNotFoundException;
+import com.lawfirm.archive.exception.StorageException;
+import com.lawfirm.archive.service.StorageBackend.ObjectInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 本地文件系统存储后端
+ */
+class LocalStorageBackendTests {
+
+	@TempDir
+	Path root;
+
+	private LocalStorageBackend storage;
+
+	private final byte[] content = new byte[300_000];
+
+	@BeforeEach
+	void createStorage() throws Exception {
+		new Random(3).nextBytes(content);
+		storage = new LocalStorageBackend(root.toString());
+	}
+
+	@Test
+	void storedObjectsCanBeReadWholeAndByRange() throws Exception {
+		storage.put("sha256/ab/abc", new ByteArrayInputStream(content), content.length, "application/pdf");
+
+		try (InputStream is = storage.get("sha256/ab/abc")) {
+			assertThat(is.readAllBytes()).isEqualTo(content);
+		}
+		try (InputStream is = storage.get("sha256/ab/abc", 1000, 5000)) {
+			assertThat(is.readAllBytes()).isEqualTo(Arrays.copyOfRange(content, 1000, 6000));
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		storage.transferTo("sha256/ab/abc", 100_000, 200_000, out);
+		assertThat(out.toByteArray()).isEqualTo(Arrays.copyOfRange(content, 100_000, 300_000));
+		assertThat(storage.stat("sha256/ab/abc").size()).isEqualTo(content.length);
+	}
+
+	@Test
+	void rangesAreCopiedToFilesAndStreams(@TempDir Path target) throws Exception {
+		storage.put("exhibit.pdf", new ByteArrayInputStream(content), content.length, "application/pdf");
+
+		Path copy = target.resolve("copy.pdf");
+		try (FileChannel channel = FileChannel.open(root.resolve("exhibit.pdf"));
+			 FileOutputStream out = new FileOutputStream(copy.toFile())) {
+			LocalStorageBackend.transferFile(channel, 7, content.length - 7, out);
+		}
+		assertThat(Files.readAllBytes(copy)).isEqualTo(Arrays.copyOfRange(content, 7, content.length));
+
+		// 超过一个缓冲区且不按缓冲区对齐的范围
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		storage.transferTo("exhibit.pdf", 65_537, 140_000, out);
+		assertThat(out.toByteArray()).isEqualTo(Arrays.copyOfRange(content, 65_537, 205_537));
+		assertThatThrownBy(() -> storage.transferTo("exhibit.pdf", content.length - 10, 20, new ByteArrayOutputStream()))
+				.isInstanceOf(StorageException.class);
+	}
+
+	@Test
+	void incompleteWritesLeaveNoObject() {
+		assertThatThrownBy(() -> storage.put("short.pdf", new ByteArrayInputStream(content, 0, 10),
+				content.length, "application/pdf")).isInstanceOf(StorageException.class);
+
+		assertThatThrownBy(() -> storage.stat("short.pdf")).isInstanceOf(ResourceNotFoundException.class);
+		assertThat(root.resolve(".tmp")).isEmptyDirectory();
+	}
+
+	@Test
+	void listAndDeleteObjects() throws Exception {
+		for (String name : List.of("sha256/ab/abc", "sha256/cd/cde", "uuid_exhibit.pdf")) {
+			storage.put(name, new ByteArrayInputStream(content), content.length, null);
+		}
+
+		try (Stream<ObjectInfo> objects = storage.list("sha256/")) {
+			assertThat(objects.map(ObjectInfo::name)).containsExactlyInAnyOrder("sha256/ab/abc", "sha256/cd/cde");
+		}
+
+		assertThat(storage.deleteAll(List.of("sha256/ab/abc", "sha256/cd/cde", "missing"))).isEmpty();
+		storage.delete("uuid_exhibit.pdf");
+		try (Stream<ObjectInfo> objects = storage.list(null)) {
+			assertThat(objects).isEmpty();
+		}
+	}
+
+	@Test
+	void namesOutsideTheRootAreRejected() {
+		for (String name : List.of("../escape.pdf", "/etc/passwd", ".tmp/put-1", "")) {
+			assertThatThrownBy(() -> storage.put(name, new ByteArrayInputStream(content), content.length, null))
+					.isInstanceOf(StorageException.class);
+		}
+	}
+}
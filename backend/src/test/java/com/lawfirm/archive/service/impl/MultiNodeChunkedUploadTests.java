@@ -0,0 +1,412 @@
+package com.lawfirm.archive.service.impl;
+
+import com.lawfirm.archive.dto.ChunkDTO;
+import com.lawfirm.archive.dto.UploadCleanupResult;
+import com.lawfirm.archive.model.Case;
+import com.lawfirm.archive.model.Document;
+import com.lawfirm.archive.model.UploadTask;
+import com.lawfirm.archive.model.UploadTask.UploadTaskStatus;
+import com.lawfirm.archive.repository.CaseRepository;
+import com.lawfirm.archive.repository.DocumentRepository;
+import com.lawfirm.archive.repository.UploadTaskRepository;
+import com.lawfirm.archive.service.MinioService;
+import com.lawfirm.archive.service.SchedulerLockService;
+import com.lawfirm.archive.service.UploadAdmissionService;
+import com.lawfirm.archive.service.StorageBlobService;
+import io.minio.messages.Part;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 多节点分片上传：两个服务实例共享数据库与对象存储，各自使用独立的本地临时目录
+ * 对象存储由内存实现代替
+ */
+class MultiNodeChunkedUploadTests {
+
+	private static final int CHUNK_SIZE = (int) MinioService.MIN_PART_SIZE;
+
+	@TempDir
+	Path nodeATemp;
+
+	@TempDir
+	Path nodeBTemp;
+
+	private final Map<String, UploadTask> tasks = new ConcurrentHashMap<>();
+
+	private final InMemoryObjectStore objectStore = new InMemoryObjectStore();
+
+	private Document savedDocument;
+
+	private ChunkedUploadServiceImpl nodeA;
+
+	private ChunkedUploadServiceImpl nodeB;
+
+	private final StorageBlobService storageBlobService = mock(StorageBlobService.class);
+
+	private Runnable onDocumentSaved = () -> { };
+
+	private final AtomicReference<SchedulerLockService> cleanupLockHolder = new AtomicReference<>();
+
+	@BeforeEach
+	void startNodes() {
+		UploadTaskRepository uploadTaskRepository = sharedUploadTaskRepository();
+		nodeA = createNode(uploadTaskRepository, nodeATemp);
+		nodeB = createNode(uploadTaskRepository, nodeBTemp);
+	}
+
+	@Test
+	void chunksReceivedByDifferentNodesAreMergedByEitherNode() throws Exception {
+		byte[] content = new byte[2 * CHUNK_SIZE + 1234];
+		new Random(7).nextBytes(content);
+
+		UploadTask task = nodeA.initUpload("evidence.bin", (long) content.length, "application/octet-stream",
+				1L, null, null, null);
+		assertThat(task.getTotalChunks()).isEqualTo(3);
+
+		uploadChunk(nodeA, task, 1, content);
+		uploadChunk(nodeB, task, 2, content);
+		uploadChunk(nodeA, task, 3, content);
+		assertThat(tasks.get(task.getId()).getStatus()).isEqualTo(UploadTaskStatus.COMPLETED);
+
+		nodeB.mergeChunks(task.getId());
+
+		UploadTask merged = tasks.get(task.getId());
+		assertThat(merged.getStatus()).isEqualTo(UploadTaskStatus.MERGED);
+		assertThat(objectStore.objects.get(merged.getStorageName())).isEqualTo(content);
+		String hash = HexFormat.of().formatHex(StorageBlobService.newSha256().digest(content));
+		assertThat(merged.getContentHash()).isEqualTo(hash);
+		assertThat(savedDocument.getContentHash()).isEqualTo(hash);
+	}
+
+	@Test
+	void expiredTasksAreCleanedByOneNodeAndTheirPartsAborted() throws Exception {
+		byte[] content = new byte[2 * CHUNK_SIZE];
+		UploadTask expired = nodeA.initUpload("stale.bin", (long) content.length, "application/octet-stream",
+				1L, null, null, null);
+		uploadChunk(nodeA, expired, 1, content);
+		tasks.get(expired.getId()).setUpdatedAt(ZonedDateTime.now().minusDays(2));
+		UploadTask active = nodeB.initUpload("active.bin", (long) content.length, "application/octet-stream",
+				1L, null, null, null);
+		tasks.get(active.getId()).setUpdatedAt(ZonedDateTime.now());
+		assertThat(objectStore.uploads).hasSize(2);
+
+		// 另一节点正在清理时跳过
+		cleanupLockHolder.set(mock(SchedulerLockService.class));
+		assertThat(nodeB.cleanupExpiredTasks().isSkipped()).isTrue();
+		cleanupLockHolder.set(null);
+
+		UploadCleanupResult result = nodeA.cleanupExpiredTasks();
+
+		assertThat(result.isSkipped()).isFalse();
+		assertThat(result.getDeletedTasks()).isEqualTo(1);
+		assertThat(result.getDiscardedStagings()).isEqualTo(1);
+		assertThat(result.getBytesReclaimed()).isEqualTo(CHUNK_SIZE);
+		assertThat(tasks).containsOnlyKeys(active.getId());
+		assertThat(objectStore.uploads).containsOnlyKeys(tasks.get(active.getId()).getUploadId());
+		assertThat(cleanupLockHolder.get()).isNull();
+		// 定时清理只检查未完成的分片上传，不列出整个存储桶
+		verify(objectStore.minioService, never()).listObjects(any());
+	}
+
+	@Test
+	void interruptedMergesAreFailedAfterTheLease() throws Exception {
+		byte[] content = new byte[CHUNK_SIZE];
+		UploadTask stuck = nodeA.initUpload("stuck.bin", (long) content.length, "application/octet-stream",
+				1L, null, null, null);
+		uploadChunk(nodeA, stuck, 1, content);
+		// 合并节点在组装出最终对象后崩溃
+		tasks.get(stuck.getId()).setStatus(UploadTaskStatus.MERGING);
+		tasks.get(stuck.getId()).setUpdatedAt(ZonedDateTime.now().minusHours(1));
+		UploadTask merging = nodeA.initUpload("merging.bin", (long) content.length, "application/octet-stream",
+				1L, null, null, null);
+		tasks.get(merging.getId()).setStatus(UploadTaskStatus.MERGING);
+		tasks.get(merging.getId()).setUpdatedAt(ZonedDateTime.now());
+
+		UploadCleanupResult result = nodeB.cleanupExpiredTasks();
+
+		assertThat(result.getRecoveredMerges()).isEqualTo(1);
+		assertThat(tasks.get(stuck.getId()).getStatus()).isEqualTo(UploadTaskStatus.FAILED);
+		assertThat(tasks.get(merging.getId()).getStatus()).isEqualTo(UploadTaskStatus.MERGING);
+		verify(storageBlobService).deleteObjects(List.of(stuck.getStorageName()));
+	}
+
+	@Test
+	void uploadCanceledDuringMergeKeepsItsStatusAndLeavesNoObject() throws Exception {
+		byte[] content = new byte[CHUNK_SIZE];
+		new Random(9).nextBytes(content);
+		UploadTask task = nodeA.initUpload("canceled.bin", (long) content.length, "application/octet-stream",
+				1L, null, null, null);
+		uploadChunk(nodeA, task, 1, content);
+		// 组装完成后、切换为已合并之前任务被取消
+		onDocumentSaved = () -> tasks.get(task.getId()).setStatus(UploadTaskStatus.CANCELED);
+
+		nodeA.mergeChunks(task.getId());
+
+		assertThat(tasks.get(task.getId()).getStatus()).isEqualTo(UploadTaskStatus.CANCELED);
+		verify(storageBlobService).deleteObjects(List.of(task.getStorageName()));
+	}
+
+	private void uploadChunk(ChunkedUploadServiceImpl node, UploadTask task, int chunkNumber, byte[] content)
+			throws Exception {
+		int offset = (chunkNumber - 1) * CHUNK_SIZE;
+		int length = Math.min(CHUNK_SIZE, content.length - offset);
+		ChunkDTO chunkDTO = new ChunkDTO();
+		chunkDTO.setTaskId(task.getId());
+		chunkDTO.setChunkNumber(chunkNumber);
+		try (InputStream data = new ByteArrayInputStream(content, offset, length)) {
+			node.processChunk(chunkDTO, data, length);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private ChunkedUploadServiceImpl createNode(UploadTaskRepository uploadTaskRepository, Path tempDir) {
+		DocumentRepository documentRepository = mock(DocumentRepository.class);
+		when(documentRepository.save(any(Document.class))).thenAnswer(invocation -> {
+			savedDocument = invocation.getArgument(0);
+			savedDocument.setId(1L);
+			onDocumentSaved.run();
+			return savedDocument;
+		});
+
+		CaseRepository caseRepository = mock(CaseRepository.class);
+		when(caseRepository.findById(anyLong())).thenReturn(Optional.of(new Case()));
+
+		TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+		when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+				((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+		doAnswer(invocation -> {
+			((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+			return null;
+		}).when(transactionTemplate).executeWithoutResult(any());
+
+		// 所有提交的任务都在调用线程中执行
+		ExecutorService executor = mock(ExecutorService.class);
+		doAnswer(invocation -> {
+			((Runnable) invocation.getArgument(0)).run();
+			return null;
+		}).when(executor).execute(any());
+
+		MinioStorageBackend storageBackend = new MinioStorageBackend(objectStore.minioService);
+		LocalChunkStaging localChunkStaging = new LocalChunkStaging(storageBackend, uploadTaskRepository);
+		ReflectionTestUtils.setField(localChunkStaging, "tempDir", tempDir.toString());
+
+		// 清理锁由共享的数据库表实现，同一时间只有一个节点能获得
+		SchedulerLockService schedulerLockService = mock(SchedulerLockService.class);
+		when(schedulerLockService.tryLock(anyString(), any())).thenAnswer(invocation ->
+				cleanupLockHolder.compareAndSet(null, schedulerLockService));
+		doAnswer(invocation -> cleanupLockHolder.compareAndSet(schedulerLockService, null))
+				.when(schedulerLockService).unlock(anyString());
+
+		UploadAdmissionService uploadAdmissionService = new UploadAdmissionService(uploadTaskRepository);
+		ReflectionTestUtils.setField(uploadAdmissionService, "maxMerges", 1);
+		ReflectionTestUtils.setField(uploadAdmissionService, "maxMergesPerUser", 1);
+		ReflectionTestUtils.setField(uploadAdmissionService, "maxStagingBytes", Long.MAX_VALUE);
+
+		ChunkedUploadServiceImpl node = new ChunkedUploadServiceImpl(uploadTaskRepository, documentRepository,
+				caseRepository, storageBlobService, transactionTemplate, executor, executor,
+				localChunkStaging, new ObjectStoreChunkStaging(objectStore.minioService, uploadTaskRepository,
+						storageBackend), schedulerLockService, uploadAdmissionService);
+		ReflectionTestUtils.setField(node, "defaultChunkSize", CHUNK_SIZE);
+		ReflectionTestUtils.setField(node, "maxChunkSize", CHUNK_SIZE);
+		ReflectionTestUtils.setField(node, "maxChunks", 10000);
+		ReflectionTestUtils.setField(node, "staging", "object-store");
+		ReflectionTestUtils.setField(node, "expireHours", 24);
+		ReflectionTestUtils.setField(node, "cleanupBatchSize", 1);
+		ReflectionTestUtils.setField(node, "cleanupLockMinutes", 30);
+		ReflectionTestUtils.setField(node, "mergeLeaseMinutes", 30L);
+		return node;
+	}
+
+	/**
+	 * 共享的任务表，按数据库语义实现条件更新
+	 */
+	private UploadTaskRepository sharedUploadTaskRepository() {
+		UploadTaskRepository repository = mock(UploadTaskRepository.class);
+		when(repository.save(any(UploadTask.class))).thenAnswer(invocation -> {
+			UploadTask task = invocation.getArgument(0);
+			tasks.put(task.getId(), copy(task));
+			return task;
+		});
+		// 每次读取得到独立的实体，与各节点从数据库加载一致
+		when(repository.findById(anyString())).thenAnswer(invocation ->
+				Optional.ofNullable(tasks.get(invocation.<String>getArgument(0))).map(this::copy));
+		when(repository.markChunkUploaded(anyString(), anyInt())).thenAnswer(invocation -> {
+			UploadTask task = tasks.get(invocation.<String>getArgument(0));
+			int index = invocation.getArgument(1);
+			synchronized (task) {
+				if (task.getStatus() != UploadTaskStatus.INITIALIZED
+						&& task.getStatus() != UploadTaskStatus.IN_PROGRESS) {
+					return 0;
+				}
+				byte[] bitmap = task.getChunkBitmap();
+				if ((bitmap[index / 8] >> (index % 8) & 1) == 0) {
+					bitmap[index / 8] |= (byte) (1 << (index % 8));
+					task.setUploadedChunks(task.getUploadedChunks() + 1);
+				}
+				task.setStatus(task.getUploadedChunks() >= task.getTotalChunks()
+						? UploadTaskStatus.COMPLETED : UploadTaskStatus.IN_PROGRESS);
+				return 1;
+			}
+		});
+		when(repository.findUploadedChunksById(anyString())).thenAnswer(invocation ->
+				tasks.get(invocation.<String>getArgument(0)).getUploadedChunks());
+		when(repository.findExpired(any(), any(), anyString(), any())).thenAnswer(invocation -> {
+			List<UploadTaskStatus> statuses = invocation.getArgument(0);
+			ZonedDateTime before = invocation.getArgument(1);
+			String afterId = invocation.getArgument(2);
+			Pageable pageable = invocation.getArgument(3);
+			return tasks.values().stream()
+					.filter(task -> statuses.contains(task.getStatus()) && task.getUpdatedAt().isBefore(before)
+							&& task.getId().compareTo(afterId) > 0)
+					.sorted(Comparator.comparing(UploadTask::getId))
+					.limit(pageable.getPageSize())
+					.map(this::copy)
+					.toList();
+		});
+		when(repository.deleteExpired(any(), any(), any())).thenAnswer(invocation -> {
+			List<String> ids = invocation.getArgument(0);
+			List<String> statuses = invocation.getArgument(1);
+			ZonedDateTime before = invocation.getArgument(2);
+			return ids.stream()
+					.filter(id -> tasks.computeIfPresent(id, (key, task) ->
+							statuses.contains(task.getStatus().name()) && task.getUpdatedAt().isBefore(before)
+									? null : task) == null)
+					.toList();
+		});
+		when(repository.markMerged(anyString(), any(), anyLong(), any(), any(), any())).thenAnswer(invocation -> {
+			UploadTask task = tasks.get(invocation.<String>getArgument(0));
+			synchronized (task) {
+				if (task.getStatus() != UploadTaskStatus.MERGING) {
+					return 0;
+				}
+				task.setStatus(UploadTaskStatus.MERGED);
+				task.setDocumentId(invocation.getArgument(1));
+				task.setProcessedBytes(invocation.getArgument(2));
+				task.setContentHash(invocation.getArgument(3));
+				task.setStorageName(invocation.getArgument(4));
+				return 1;
+			}
+		});
+		when(repository.failStaleMerges(any())).thenAnswer(invocation -> {
+			ZonedDateTime before = invocation.getArgument(0);
+			return tasks.values().stream()
+					.filter(task -> task.getStatus() == UploadTaskStatus.MERGING && task.getUpdatedAt().isBefore(before))
+					.peek(task -> {
+						task.setStatus(UploadTaskStatus.FAILED);
+						task.setUpdatedAt(ZonedDateTime.now());
+					})
+					.map(UploadTask::getStorageName)
+					.toList();
+		});
+		when(repository.existsByUploadId(anyString())).thenAnswer(invocation -> tasks.values().stream()
+				.anyMatch(task -> invocation.getArgument(0).equals(task.getUploadId())));
+		when(repository.updateStatus(anyString(), any(), any(), any())).thenAnswer(invocation -> {
+			UploadTask task = tasks.get(invocation.<String>getArgument(0));
+			synchronized (task) {
+				if (task.getStatus() != invocation.getArgument(1)) {
+					return 0;
+				}
+				task.setStatus(invocation.getArgument(2));
+				return 1;
+			}
+		});
+		return repository;
+	}
+
+	private UploadTask copy(UploadTask task) {
+		UploadTask copy = new UploadTask();
+		BeanUtils.copyProperties(task, copy);
+		copy.setChunkBitmap(task.getChunkBitmap().clone());
+		return copy;
+	}
+
+	/**
+	 * 内存对象存储，实现服务用到的对象与分片上传操作
+	 */
+	private static class InMemoryObjectStore {
+
+		private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+		private final Map<String, SortedMap<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+		private final MinioService minioService = mock(MinioService.class);
+
+		InMemoryObjectStore() {
+			try {
+				when(minioService.initMultipartUpload(anyString(), anyString())).thenAnswer(invocation -> {
+					String uploadId = UUID.randomUUID().toString();
+					uploads.put(uploadId, new TreeMap<>());
+					return uploadId;
+				});
+				when(minioService.uploadPart(anyString(), anyString(), anyInt(), any(), anyLong()))
+						.thenAnswer(invocation -> {
+							InputStream data = invocation.getArgument(3);
+							byte[] bytes = data.readNBytes((int) (long) invocation.getArgument(4));
+							uploads.get(invocation.<String>getArgument(1))
+									.put(invocation.getArgument(2), bytes);
+							return "etag-" + invocation.getArgument(2);
+						});
+				when(minioService.listMultipartUploads(anyString(), anyString())).thenAnswer(invocation ->
+						uploads.get(invocation.<String>getArgument(1)).keySet().stream()
+								.map(partNumber -> new Part(partNumber, "etag-" + partNumber))
+								.toArray(Part[]::new));
+				doAnswer(invocation -> {
+					ByteArrayOutputStream object = new ByteArrayOutputStream();
+					SortedMap<Integer, byte[]> parts = uploads.remove(invocation.<String>getArgument(1));
+					Arrays.stream(invocation.<Part[]>getArgument(2))
+							.forEach(part -> object.writeBytes(parts.get(part.partNumber())));
+					objects.put(invocation.getArgument(0), object.toByteArray());
+					return null;
+				}).when(minioService).completeMultipartUpload(anyString(), anyString(), any());
+				doAnswer(invocation -> uploads.remove(invocation.<String>getArgument(1)))
+						.when(minioService).abortMultipartUpload(anyString(), anyString());
+				when(minioService.getMultipartUploadSize(anyString(), anyString())).thenAnswer(invocation ->
+						uploads.get(invocation.<String>getArgument(1)).values().stream()
+								.mapToLong(part -> part.length).sum());
+				when(minioService.listIncompleteUploads()).thenReturn(List.of());
+				when(minioService.downloadFile(anyString())).thenAnswer(invocation ->
+						new ByteArrayInputStream(objects.get(invocation.<String>getArgument(0))));
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
@@ -16,8 +16,42 @@ const api = axios.create({
   baseURL: 'http://localhost:8080/api'
 });
 
-export function getCases() {
-  return api.get<Case[]>('/cases');
+export interface CaseSummary extends Case {
+  categoryId?: number;
+  categoryName?: string;
+  documentCount: number;
+}
+
+export interface CaseSearchParams {
+  keyword?: string;
+  caseNumber?: string;
+  parties?: string;
+  court?: string;
+  caseReason?: string;
+  status?: string;
+  categoryId?: number;
+  tagIds?: number[];
+  filingDateFrom?: string;
+  filingDateTo?: string;
+  page?: number;
+  size?: number;
+  sort?: string;
+}
+
+export interface Page<T> {
+  content: T[];
+  totalElements: number;
+  totalPages: number;
+  number: number;
+  size: number;
+}
+
+// 分页检索案件，page 从0开始
+export function getCases(params: CaseSearchParams = {}) {
+  return api.get<Page<CaseSummary>>('/cases', {
+    params,
+    paramsSerializer: { indexes: null }
+  });
 }
 
 export function createCase(data: Case) {
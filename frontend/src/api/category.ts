@@ -3,8 +3,16 @@ import axios from 'axios';
 export interface Category {
   id: number;
   name: string;
-  parent?: Category;
-  children?: Category[];
+  parentId?: number | null;
+}
+
+export interface CategoryTreeNode {
+  id: number;
+  name: string;
+  parentId: number | null;
+  caseCount: number;
+  totalCaseCount: number;
+  children: CategoryTreeNode[];
 }
 
 const api = axios.create({
@@ -15,3 +23,7 @@ export function getCategories() {
   return api.get<Category[]>('/categories');
 }
 
+// 完整分类树，附带各分类的案件数
+export function getCategoryTree() {
+  return api.get<CategoryTreeNode[]>('/categories/tree');
+}
@@ -14,11 +14,32 @@ api.interceptors.request.use(config => {
   return config;
 });
 
+// 服务端繁忙（429）时按 Retry-After 等待后重试
+const MAX_THROTTLE_RETRIES = 5;
+api.interceptors.response.use(undefined, async error => {
+  const config = error.config as any;
+  if (error.response?.status !== 429 || !config) {
+    return Promise.reject(error);
+  }
+  config.throttleRetries = (config.throttleRetries || 0) + 1;
+  if (config.throttleRetries > MAX_THROTTLE_RETRIES) {
+    return Promise.reject(error);
+  }
+  const seconds = Number(error.response.headers['retry-after']) || 5;
+  await new Promise(resolve => setTimeout(resolve, seconds * 1000));
+  return api.request(config);
+});
+
 // 基础API函数
 export function getDocuments(caseId: number) {
   return api.get('/documents', { params: { caseId } });
 }
 
+// 全文检索文档内容与文件名，snippet 为已转义的HTML，检索词以 <mark> 标出
+export function searchDocuments(q: string, caseId?: number, page = 0, size = 20) {
+  return api.get('/documents/search', { params: { q, caseId, page, size } });
+}
+
 export function uploadDocument(formData: FormData) {
   return api.post('/documents/upload', formData, {
     headers: { 'Content-Type': 'multipart/form-data' }
@@ -37,6 +58,16 @@ export function updateDocumentSort(id: number, sortOrder: number) {
   return api.put(`/documents/${id}/sort`, null, { params: { sortOrder } });
 }
 
+// 将文档移到同一案件的另一文档之前或之后
+export function moveDocument(id: number, target: { beforeId?: number; afterId?: number }) {
+  return api.put(`/documents/${id}/move`, null, { params: target });
+}
+
+// 拖拽排序后一次提交所有位置变化的文档
+export function batchUpdateSort(caseId: number, items: { id: number; sortOrder: number }[]) {
+  return api.put('/documents/batch-sort', { caseId, items });
+}
+
 export function batchDownloadDocuments(ids: number[]) {
   return api.post('/documents/batch-download', { ids }, { responseType: 'blob' });
 }
@@ -109,6 +140,11 @@ export const safeGetDocuments = createAsyncErrorHandler(
   '获取文档列表失败'
 );
 
+export const safeSearchDocuments = createAsyncErrorHandler(
+  searchDocuments, 
+  '检索文档失败'
+);
+
 export const safeDownloadDocument = createAsyncErrorHandler(
   downloadDocument, 
   '下载文档失败'